@@ -0,0 +1,34 @@
+package android.graphics;
+
+/**
+ * A stand-in for Android's canvas, which draws through native code. Nothing is
+ * drawn on the JVM, so every drawing call does nothing.
+ *
+ * @author spear
+ */
+public class Canvas
+{
+    public Canvas()
+    {
+    }
+
+    public Canvas(Bitmap bitmap)
+    {
+    }
+
+    public void setBitmap(Bitmap bitmap)
+    {
+    }
+
+    public void drawColor(int color)
+    {
+    }
+
+    public void drawRect(float left, float top, float right, float bottom, Paint paint)
+    {
+    }
+
+    public void drawText(String text, float x, float y, Paint paint)
+    {
+    }
+}
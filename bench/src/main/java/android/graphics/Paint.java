@@ -0,0 +1,131 @@
+package android.graphics;
+
+/**
+ * A stand-in for Android's paint, which is made and measured by native code.
+ * Text is measured as if every character were a box 0.6 times as wide as the
+ * text size, which is close enough for laying out Text entities that are
+ * never drawn.
+ *
+ * @author spear
+ */
+public class Paint
+{
+    public static final int ANTI_ALIAS_FLAG = 1;
+
+    /**
+     * How text is filled
+     */
+    public enum Style
+    {
+        FILL, STROKE, FILL_AND_STROKE
+    }
+
+    /**
+     * How text is placed relative to its origin
+     */
+    public enum Align
+    {
+        LEFT, CENTER, RIGHT
+    }
+
+    /**
+     * The measurements of a font
+     */
+    public static class FontMetrics
+    {
+        public float top;
+
+        public float ascent;
+
+        public float descent;
+
+        public float bottom;
+
+        public float leading;
+    }
+
+    /**
+     * The width of a character, as a fraction of the text size
+     */
+    private static final float CHAR_WIDTH = 0.6f;
+
+    /**
+     * How far characters reach above the baseline, as a fraction of the text
+     * size
+     */
+    private static final float ASCENT = 0.8f;
+
+    /**
+     * The text size
+     */
+    private float _textSize = 12;
+
+    public Paint()
+    {
+    }
+
+    public Paint(int flags)
+    {
+    }
+
+    public void setAntiAlias(boolean aa)
+    {
+    }
+
+    public void setColor(int color)
+    {
+    }
+
+    public void setARGB(int a, int r, int g, int b)
+    {
+    }
+
+    public void setStyle(Style style)
+    {
+    }
+
+    public void setStrokeWidth(float width)
+    {
+    }
+
+    public Typeface setTypeface(Typeface typeface)
+    {
+        return typeface;
+    }
+
+    public void setTextSize(float textSize)
+    {
+        _textSize = textSize;
+    }
+
+    public float getTextSize()
+    {
+        return _textSize;
+    }
+
+    public FontMetrics getFontMetrics()
+    {
+        FontMetrics fm = new FontMetrics();
+        fm.ascent = fm.top = -_textSize * ASCENT;
+        fm.descent = fm.bottom = _textSize * (1 - ASCENT);
+        return fm;
+    }
+
+    public void getTextBounds(String text, int start, int end, Rect bounds)
+    {
+        bounds.set(0, (int) (-_textSize * ASCENT), (int) ((end - start) * _textSize * CHAR_WIDTH),
+                (int) (_textSize * (1 - ASCENT)));
+    }
+
+    public int getTextWidths(String text, float[] widths)
+    {
+        for (int i = 0; i < text.length(); ++i)
+            widths[i] = _textSize * CHAR_WIDTH;
+        return text.length();
+    }
+
+    public float measureText(String text)
+    {
+        return text.length() * _textSize * CHAR_WIDTH;
+    }
+}
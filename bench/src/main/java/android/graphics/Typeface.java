@@ -0,0 +1,45 @@
+package android.graphics;
+
+import android.content.res.AssetManager;
+
+/**
+ * A stand-in for Android's typefaces, which are made by native code. Fonts are
+ * never drawn on the JVM, so every typeface is the same.
+ *
+ * @author spear
+ */
+public class Typeface
+{
+    public static final int NORMAL = 0;
+
+    public static final int BOLD = 1;
+
+    public static final int ITALIC = 2;
+
+    public static final int BOLD_ITALIC = 3;
+
+    public static final Typeface DEFAULT = new Typeface();
+
+    public static final Typeface DEFAULT_BOLD = DEFAULT;
+
+    public static final Typeface SANS_SERIF = DEFAULT;
+
+    public static final Typeface SERIF = DEFAULT;
+
+    public static final Typeface MONOSPACE = DEFAULT;
+
+    public static Typeface create(Typeface family, int style)
+    {
+        return DEFAULT;
+    }
+
+    public static Typeface create(String familyName, int style)
+    {
+        return DEFAULT;
+    }
+
+    public static Typeface createFromAsset(AssetManager mgr, String path)
+    {
+        return DEFAULT;
+    }
+}
@@ -0,0 +1,35 @@
+package android.os;
+
+/**
+ * A stand-in for Android's system properties, which are read through native
+ * code. On the JVM there are no properties, so every lookup gets its default.
+ *
+ * @author spear
+ */
+public class SystemProperties
+{
+    public static String get(String key)
+    {
+        return "";
+    }
+
+    public static String get(String key, String def)
+    {
+        return def;
+    }
+
+    public static int getInt(String key, int def)
+    {
+        return def;
+    }
+
+    public static long getLong(String key, long def)
+    {
+        return def;
+    }
+
+    public static boolean getBoolean(String key, boolean def)
+    {
+        return def;
+    }
+}
@@ -0,0 +1,36 @@
+package android.text;
+
+/**
+ * A stand-in for Android's text utilities, whose real class loads the
+ * system's resources through native code as soon as it is used. Only the
+ * methods that AndEngine calls are here.
+ *
+ * @author spear
+ */
+public class TextUtils
+{
+    public static boolean isEmpty(CharSequence str)
+    {
+        return str == null || str.length() == 0;
+    }
+
+    public static boolean equals(CharSequence a, CharSequence b)
+    {
+        if (a == b)
+            return true;
+        return a != null && b != null && a.toString().equals(b.toString());
+    }
+
+    public static int indexOf(CharSequence s, char ch)
+    {
+        return indexOf(s, ch, 0);
+    }
+
+    public static int indexOf(CharSequence s, char ch, int start)
+    {
+        for (int i = start; i < s.length(); ++i)
+            if (s.charAt(i) == ch)
+                return i;
+        return -1;
+    }
+}
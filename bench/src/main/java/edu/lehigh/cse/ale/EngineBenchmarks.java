@@ -0,0 +1,381 @@
+package edu.lehigh.cse.ale;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import com.theteam1.wingdra.Wingdra;
+
+/**
+ * EngineBenchmarks measures the parts of the engine that run most often while
+ * Wingdra is being played: collisions, the timer triggers that fire and spawn
+ * waves, tilt, SVG parsing, and throwing projectiles. Every benchmark except
+ * the SVG one runs Wingdra's first level on a HeadlessPlatform. Each measured
+ * iteration starts from a new level, and the level's physics world is disposed
+ * when the iteration ends. Benchmarks whose calls add enemies to the level get
+ * a new level for every call instead, so that each call does the same work as
+ * the one before.
+ *
+ * See pom.xml in this folder for how to build and run them. Run with "-prof
+ * gc" to see how much each operation allocates.
+ *
+ * @author spear
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.library.path=target/natives")
+public class EngineBenchmarks
+{
+    /**
+     * The size of the projectile pool used by the projectile benchmarks
+     */
+    private static final int POOL_SIZE = 64;
+
+    /**
+     * The number of tilting obstacles in the tilt benchmark
+     */
+    private static final int TILT_ENTITIES = 1000;
+
+    /**
+     * The game, running on a headless platform, with a new first level for
+     * each iteration. States that add to the level extend this one, because
+     * JMH runs a superclass's setup methods before the subclass's.
+     */
+    @State(Scope.Thread)
+    public static class Engine
+    {
+        /**
+         * The path to the Wingdra project folder
+         */
+        @Param("..")
+        public String projectFolder;
+
+        /**
+         * The headless platform that runs the game
+         */
+        HeadlessPlatform platform;
+
+        /**
+         * The game being measured
+         */
+        Wingdra game;
+
+        /**
+         * Make the game and the platform once per fork
+         */
+        @Setup(org.openjdk.jmh.annotations.Level.Trial)
+        public void start()
+        {
+            game = new Wingdra();
+            platform = new HeadlessPlatform(game, projectFolder);
+        }
+
+        /**
+         * Start the first level over, and give it a projectile pool
+         */
+        @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+        public void freshLevel()
+        {
+            platform.loadLevel(1);
+            Projectile.configure(POOL_SIZE, 8, 8, "wingdra-and-bullets/wingdra_bullet.png", 0, -12, 0, 0, 1);
+            Projectile.setNumberOfProjectiles(-1);
+        }
+
+        /**
+         * Dispose of the level's physics world, so that iterations don't pile
+         * up bodies in native memory
+         */
+        @TearDown(org.openjdk.jmh.annotations.Level.Iteration)
+        public void endLevel()
+        {
+            platform.unloadLevel();
+        }
+    }
+
+    /**
+     * An SVG file, read ahead of time so that parsing it doesn't touch the
+     * disk, and a parser factory, since finding one searches the classpath
+     */
+    @State(Scope.Benchmark)
+    public static class Svg
+    {
+        /**
+         * The path to the Wingdra project folder
+         */
+        @Param("..")
+        public String projectFolder;
+
+        /**
+         * The contents of the file
+         */
+        byte[] file;
+
+        /**
+         * Makes a new SAX parser for each call
+         */
+        SAXParserFactory factory;
+
+        /**
+         * Read the file, and find the parser factory
+         */
+        @Setup(org.openjdk.jmh.annotations.Level.Trial)
+        public void readFile() throws IOException
+        {
+            file = Files.readAllBytes(new File(projectFolder, "assets/shape.svg").toPath());
+            factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+        }
+    }
+
+    /**
+     * An SVGParser that only counts the lines it finds. The desktop Box2D
+     * library can't make the edge bodies that Obstacle.makeFromSVG gives each
+     * line, so the benchmark measures the parsing alone.
+     */
+    static final class LineCounter extends SVGParser
+    {
+        /**
+         * The number of lines found so far
+         */
+        int lines;
+
+        /**
+         * Count the line instead of drawing it
+         *
+         * @param x1
+         *            X coordinate of first endpoint
+         * @param y1
+         *            Y coordinate of first endpoint
+         * @param x2
+         *            X coordinate of second endpoint
+         * @param y2
+         *            Y coordinate of second endpoint
+         */
+        @Override
+        void addLine(float x1, float y1, float x2, float y2)
+        {
+            lines++;
+        }
+    }
+
+    /**
+     * The game, with a new first level for every call
+     */
+    @State(Scope.Thread)
+    public static class Fresh extends Engine
+    {
+        /**
+         * Start the first level over before each call
+         */
+        @Setup(org.openjdk.jmh.annotations.Level.Invocation)
+        public void freshCall()
+        {
+            freshLevel();
+        }
+
+        /**
+         * Throw away what the call made
+         */
+        @TearDown(org.openjdk.jmh.annotations.Level.Invocation)
+        public void endCall()
+        {
+            endLevel();
+        }
+    }
+
+    /**
+     * The game, with the level's hero made strong enough that every hit does
+     * the same work
+     */
+    @State(Scope.Thread)
+    public static class Target extends Engine
+    {
+        /**
+         * The hero
+         */
+        Hero hero;
+
+        /**
+         * Find the hero in the new level
+         */
+        @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+        public void findHero()
+        {
+            hero = Hero.lastHero;
+            hero.setStrength(1 << 30);
+        }
+    }
+
+    /**
+     * The game, in a level whose first enemies have been spawned
+     */
+    @State(Scope.Thread)
+    public static class Spawned extends Engine
+    {
+        /**
+         * Let the new level run long enough to spawn enemies
+         */
+        @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+        public void spawnEnemies()
+        {
+            platform.run(3, TimerWheel.TICK);
+        }
+    }
+
+    /**
+     * The game, in a level full of obstacles that move by tilting
+     */
+    @State(Scope.Thread)
+    public static class Tilting extends Engine
+    {
+        /**
+         * The number of tilt events so far, which picks the next tilt
+         */
+        int events;
+
+        /**
+         * Turn on tilt and make the obstacles
+         */
+        @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+        public void makeObstacles()
+        {
+            Level.enableTilt(10, 20);
+            Level.setTiltAsVelocity(true);
+            for (int k = 0; k < TILT_ENTITIES; ++k)
+                Obstacle.makeAsMoveable(k % 40 * 10, k / 40 * 10, 8, 8, "red.png", 1, 0, 0).setMoveByTilting();
+        }
+    }
+
+    /**
+     * An enemy's shot hitting the hero, through the real collision path: one
+     * physics step, in which Box2D reports the contact to the ContactQueue, and
+     * then the drain that dispatches it to the hero
+     *
+     * @param target
+     *            The game, and the hero to hit
+     * @return The hero's remaining strength
+     */
+    @Benchmark
+    public int contactDispatch(Target target)
+    {
+        EnemyProjectile.fire(target.hero.getSprite().getX(), target.hero.getSprite().getY(), 0, 0, 0);
+        Level.physics.onUpdate(TimerWheel.TICK);
+        return target.hero.strength;
+    }
+
+    /**
+     * The hero's firing timer, followed by the frame that moves the new bullet
+     *
+     * @param engine
+     *            The game
+     * @return The number of frames run so far
+     */
+    @Benchmark
+    public long wingdraFire(Engine engine)
+    {
+        engine.game.onTimeTrigger(0, 2, 1);
+        engine.platform.step(TimerWheel.TICK);
+        return engine.platform.getStepCount();
+    }
+
+    /**
+     * The timer that spawns a new wave, in a level without enemies
+     *
+     * @param fresh
+     *            The game, with a new level
+     * @param bh
+     *            Consumes the number of enemies, so that spawning isn't
+     *            optimized away
+     */
+    @Benchmark
+    public void wingdraSpawnWave(Fresh fresh, Blackhole bh)
+    {
+        fresh.game.onTimeTrigger(0, 3, 1);
+        bh.consume(Wingdra.enemies.size());
+    }
+
+    /**
+     * Every shooting enemy firing at the hero
+     *
+     * @param spawned
+     *            The game, with enemies to shoot
+     * @param bh
+     *            Consumes the number of enemies
+     */
+    @Benchmark
+    public void wingdraEnemyFire(Spawned spawned, Blackhole bh)
+    {
+        spawned.game.onTimeTrigger(0, 5, 1);
+        bh.consume(Wingdra.enemies.size());
+    }
+
+    /**
+     * One tilt event, applied to a large number of tilting entities
+     *
+     * @param tilting
+     *            The game, with the tilting entities
+     */
+    @Benchmark
+    public void levelApplyTilt(Tilting tilting)
+    {
+        int i = tilting.events++;
+        Level.applyTilt((i & 7) - 4, 4 - (i & 3));
+    }
+
+    /**
+     * Parsing an SVG file's paths into lines, the way Obstacle.makeFromSVG
+     * does, with a new SAX parser
+     *
+     * @param svg
+     *            The file
+     * @return The number of lines found
+     */
+    @Benchmark
+    public int svgParse(Svg svg) throws Exception
+    {
+        XMLReader xmlReader = svg.factory.newSAXParser().getXMLReader();
+        LineCounter parser = new LineCounter();
+        xmlReader.setContentHandler(parser);
+        xmlReader.parse(new InputSource(new ByteArrayInputStream(svg.file)));
+        return parser.lines;
+    }
+
+    /**
+     * Throwing a projectile from the pool. Each one is put back right away, so
+     * the pool never runs dry.
+     *
+     * @param engine
+     *            The game
+     * @return The projectile that was thrown
+     */
+    @Benchmark
+    public Projectile projectileThrowFixed(Engine engine)
+    {
+        Projectile p = Projectile.throwFixed(100, 200);
+        p.getSprite().setVisible(false);
+        p.physBody.setActive(false);
+        return p;
+    }
+}
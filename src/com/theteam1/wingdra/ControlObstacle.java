@@ -4,8 +4,6 @@ import org.andengine.entity.scene.Scene;
 import org.andengine.input.touch.TouchEvent;
 import org.andengine.opengl.texture.region.TiledTextureRegion;
 
-import android.util.Log;
-
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
 
 import edu.lehigh.cse.ale.Hero;
@@ -13,20 +11,22 @@ import edu.lehigh.cse.ale.Level;
 import edu.lehigh.cse.ale.Media;
 import edu.lehigh.cse.ale.Obstacle;
 import edu.lehigh.cse.ale.PhysicsSprite;
+import edu.lehigh.cse.ale.Trace;
 
 public class ControlObstacle extends edu.lehigh.cse.ale.Obstacle {
 
 public static Hero hero;
 
+// touches are traced rather than logged, since there is one for every move of a finger
+private static final int TRACE_TOUCH = Trace.defineEvent(Trace.CATEGORY_INPUT, "control touch %1$d at (%2$.0f, %3$.0f)");
+
 public ControlObstacle(int x, int y, int width, int height, TiledTextureRegion ttr, Hero hero) {
 	super(x, y, width, height, ttr);
 	ControlObstacle.hero = hero;
-	Log.v("wingdra-game","entering ControlObstacle's constructor");
 }
 
 static public ControlObstacle makeAsStationary(int x, int y, int width, int height, String imgName, Hero hero)
 {
-	Log.v("wingdra-game","entering ControlObstacle's makeAsStationary method");
     // get image
     TiledTextureRegion ttr = Media.getImage(imgName);
     // make object
@@ -50,7 +50,7 @@ static public ControlObstacle makeAsMoveableBox(int x, int y, int width, int hei
 
 protected static boolean handleSceneTouch(final Scene scene, final TouchEvent event)
     {
-		Log.v("wingdra-game","entering ControlObstacle's handleSceneTouch");
+		Trace.record(TRACE_TOUCH, event.getAction(), event.getX(), event.getY());
         // only do this if we have a valid scene, valid physics, a valid
         // currentSprite, and a down press
         switch (event.getAction()) {
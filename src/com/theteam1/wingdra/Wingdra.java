@@ -15,7 +15,6 @@ import org.andengine.util.HorizontalAlign;
 import android.graphics.Color;
 import android.graphics.Typeface;
 import android.os.Looper;
-import android.util.Log;
 import android.view.GestureDetector;
 import android.view.GestureDetector.OnGestureListener;
 import android.view.MotionEvent;
@@ -32,7 +31,7 @@ import edu.lehigh.cse.ale.*;
  * 
  * @author spear
  */
-public class Wingdra extends ALE
+public class Wingdra extends Game
 {
     /**
      * Provide the names of all sound and image files that will be used by the game.
@@ -66,11 +65,19 @@ public class Wingdra extends ALE
 	private ControlObstacle co;
 	private Obstacle bg;
 	public static ArrayList<Enemy> enemies;
+	// reused for asking the spatial grid which enemies are in an area
+	private final ArrayList<Enemy> nearby = new ArrayList<Enemy>();
+	
+	// trace events, so that spawning and clamping can be followed without logging every frame
+	private static final int TRACE_LEVEL_START = Trace.defineEvent(Trace.CATEGORY_GAME, "level %1$d started");
+	private static final int TRACE_ENEMY_CREATED = Trace.defineEvent(Trace.CATEGORY_GAME, "enemy %1$d created at (%2$.0f, %3$.0f)");
+	private static final int TRACE_ENEMY_CLAMPED = Trace.defineEvent(Trace.CATEGORY_GAME, "enemy %1$d out of bounds at (%2$.0f, %3$.0f)");
+	private static final int TRACE_ENEMY_REMOVED = Trace.defineEvent(Trace.CATEGORY_GAME, "removing enemy %1$d");
 	private LinkedList<Obstacle> enemyBoxes;
 	private LinkedList<Enemy> etemp;
 	private LinkedList<Obstacle> otemp;
 	private int enemySpawnDivisor = 2;
-	private int enemyFireDivisor = 1;
+	private float enemyFireDivisor = 1;
 	private Enemy curBoss = null;
 	private Text levelText;
 	private Text waveText;
@@ -94,6 +101,13 @@ public class Wingdra extends ALE
 	
     public void nameResources()
     {
+        // pack the sprites onto a few shared textures, so that drawing
+        // bullets, enemies and bonuses together doesn't keep switching textures
+        Media.setAtlasPacking(true);
+        // only keep the textures we're using on the GPU; most of the boss and
+        // monster variants aren't needed at any one time
+        Media.setTextureMemoryBudget(32);
+
         // first, let's load sounds... these are short audio clips that play on
         // demand. All we need to do is provide the name of the file.
         Media.registerSound("fwapfwap.ogg");//
@@ -103,11 +117,14 @@ public class Wingdra extends ALE
         Media.registerSound("slowdown.ogg");
         Media.registerSound("winsound.ogg");//
         Media.registerSound("woowoowoo.ogg");
-        Media.registerSound("gun.ogg");
-        Media.registerSound("explosion.ogg");
-        Media.registerSound("laser.ogg");
-        Media.registerSound("ricochet.ogg");
-        Media.registerSound("collect.ogg");
+        // the sounds below play many times a second in a heavy wave, so cap
+        // how many copies can overlap. The laser plays on every shot, so it
+        // is the first to give way; the boss explosion always gets through.
+        Media.registerSound("gun.ogg", 2, 1, 0.05f);
+        Media.registerSound("explosion.ogg", 1, 3, 0);
+        Media.registerSound("laser.ogg", 2, 0, 0.08f);
+        Media.registerSound("ricochet.ogg", 1, 2, 0.1f);
+        Media.registerSound("collect.ogg", 1, 2, 0.1f);
 
         // second, let's register music files... these are long audio clips that
         // play in the background. We provide the name of the file, and also
@@ -235,13 +252,21 @@ public class Wingdra extends ALE
          * @whatsnew: win by reaching a destination
          */
         if (whichLevel == 1) {
-    		Log.v("mygame", "entered");
+    		Trace.record(TRACE_LEVEL_START, whichLevel);
             // create our level: the playable area is a 460x320 box, and there
             // are no default forces on the hero
             Level.configure(VIEW_WIDTH, VIEW_HEIGHT, 0, 0);
-    		Level.setTimerTrigger(2, 1); // ID 2 = firing mechanism
+            // nothing stacks or is jointed, so cheap steps are accurate enough; draw
+            // between steps so that shots don't jitter on fast screens
+            Level.setPhysicsQuality(4, 2, 3);
+            Level.setPhysicsInterpolation(true);
+            // load the things every wave uses now, rather than in the middle of the first wave
+            Media.preloadImages("wingdra-and-bullets/wingdra_bullet.png", "wingdra-and-bullets/enemy_bullet.png", "bonuses/3x.png", "bonuses/clear.png");
+            for (String[] monsters : monsterIcons)
+            	Media.preloadImages(monsters);
+    		Level.setPeriodicTimerTrigger(2, 1, 0.2f); // ID 2 = firing mechanism
     		Level.setTimerTrigger(3,2f); // ID 3 = enemy spawn
-    		Level.setTimerTrigger(4,.01f); // ID 4 = timer
+    		Level.setPeriodicTimerTrigger(4, .01f, 0.1f); // ID 4 = timer
     		Level.setTimerTrigger(5, 1); // ID 5 = enemy firing mechanism
     		Level.setTimerTrigger(8, 2f);
             // in this level, we'll use tilt to move some things around. The
@@ -250,7 +275,29 @@ public class Wingdra extends ALE
             Level.enableTilt(10, 20);
             Level.setTiltAsVelocity(true);
             Level.setGravityMultiplier(10);
+            // steady the ship when the phone is held still, without making it sluggish
+            Level.setTiltFilter(0.05f, 0.3f);
             Obstacle.drawBoundingBox(0, 0, VIEW_WIDTH, VIEW_HEIGHT, "red.png", 0, 0, 0);
+            // enemy and boss shots share one pool; at the fastest fire rate,
+            // a few dozen can be on screen at once
+            EnemyProjectile.configure(48, HERO_BULLET_SIZE-5, HERO_BULLET_SIZE-5, "wingdra-and-bullets/enemy_bullet.png", 2);
+            // the hero's shots fly straight, so they skip the physics world; with
+            // the triple shot, up to 30 can be alive at once
+            BulletField.configure(48, HERO_BULLET_SIZE, HERO_BULLET_SIZE, "wingdra-and-bullets/wingdra_bullet.png", 1, 2);
+            BulletField.setFireSound("laser.ogg");
+            // enemy shots go back to the pool as soon as they leave the field, and
+            // power-ups go away a second after they land on the bottom wall, where
+            // the hero can still grab them
+            EnemyProjectile.setDespawnMargins(HERO_BULLET_SIZE, HERO_BULLET_SIZE, HERO_BULLET_SIZE, HERO_BULLET_SIZE);
+            Goodie.setDespawnMargins(PWRUP_SIZE, PWRUP_SIZE, PWRUP_SIZE, -(PWRUP_SIZE/2 + 2), 1);
+            // only let pairs that matter reach the collision code: the hero's
+            // shots only hit enemies, enemies never touch each other, and falling
+            // power-ups only hit the hero and the walls
+            PhysicsSprite.setDefaultCollisionMask(PhysicsSprite.CATEGORY_WEAPON, PhysicsSprite.CATEGORY_ENEMY);
+            PhysicsSprite.setDefaultCollisionMask(PhysicsSprite.CATEGORY_ENEMY, (short) (PhysicsSprite.CATEGORY_HERO
+                    | PhysicsSprite.CATEGORY_WEAPON | PhysicsSprite.CATEGORY_OBSTACLE));
+            PhysicsSprite.setDefaultCollisionMask(PhysicsSprite.CATEGORY_GOODIE, (short) (PhysicsSprite.CATEGORY_HERO
+                    | PhysicsSprite.CATEGORY_OBSTACLE));
             Level.setMusic("afterburners.ogg");
             //Level.makeVerticalBackgroundLayer("bg2/b1.png", 10, 0, 0);
             Level.makeBackgroundLayer("bg2/background1.png", 50, 0, 0);
@@ -385,27 +432,16 @@ public class Wingdra extends ALE
     {
     	switch (id) {
     	case 2: // Create a bullet
-    		Obstacle fire = Obstacle.makeAsMoveable((int)(wingdra.getSprite().getX() + (wingdra.getSprite().getWidth()/2) - HERO_BULLET_SIZE/2), (int)wingdra.getSprite().getY(), (int)HERO_BULLET_SIZE, (int)HERO_BULLET_SIZE, "wingdra-and-bullets/wingdra_bullet.png", (float)0, (float)0, (float)0);
-    		fire.setAppearSound("laser.ogg");
-    		fire.playSound();
+    		float bulletX = wingdra.getSprite().getX() + (wingdra.getSprite().getWidth()/2) - HERO_BULLET_SIZE/2;
+    		float bulletY = wingdra.getSprite().getY();
     		switch (wingdra.currentWeaponType) {
     		case 0:
-    			fire.setVelocity(0,-12);
+    			BulletField.fire(bulletX, bulletY, 0, -12);
     			break;
     		case 1:
-    			fire.setVelocity(0,-12);
-    			Obstacle fire2 = Obstacle.makeAsMoveable((int)(wingdra.getSprite().getX() + (wingdra.getSprite().getWidth()/2) - HERO_BULLET_SIZE/2), (int)wingdra.getSprite().getY(), (int)HERO_BULLET_SIZE, (int)HERO_BULLET_SIZE, "wingdra-and-bullets/wingdra_bullet.png", (float)0, (float)0, (float)0);
-    			Obstacle fire3 = Obstacle.makeAsMoveable((int)(wingdra.getSprite().getX() + (wingdra.getSprite().getWidth()/2) - HERO_BULLET_SIZE/2), (int)wingdra.getSprite().getY(), (int)HERO_BULLET_SIZE, (int)HERO_BULLET_SIZE, "wingdra-and-bullets/wingdra_bullet.png", (float)0, (float)0, (float)0);    		
-    			fire2.setVelocity(4,-12);
-    			fire3.setVelocity(-4, -12);
-    			fire2.setDisappearDelay(2);
-    			fire2.toggleCollisionEffect(false);
-    			fire2.setSubClass(1);
-    			fire2.setDisapearAfterDefeatEnemy();
-    			fire3.setDisappearDelay(2);
-    			fire3.toggleCollisionEffect(false);
-    			fire3.setSubClass(1);
-    			fire3.setDisapearAfterDefeatEnemy();
+    			BulletField.fire(bulletX, bulletY, 0, -12);
+    			BulletField.fire(bulletX, bulletY, 4, -12);
+    			BulletField.fire(bulletX, bulletY, -4, -12);
     			Level.setTimerTrigger(7, PWR_RESET_TIME);
     			wingdra.setVelocity(0, 0);
     			break;
@@ -425,22 +461,21 @@ public class Wingdra extends ALE
     			}
     			Level.setTimerTrigger(7, PWR_RESET_TIME);
     			*/
+    			BulletField.fire(bulletX, bulletY, 0, 0);
     			break;
     		case 3:
     			for (int i = 0; i < enemies.size(); i++) {
     				enemies.get(id).shouldShoot = false;
     				enemies.get(id).setDisappearDelay(1);
     			}
+    			BulletField.fire(bulletX, bulletY, 0, 0);
     			break;
     		default:
-    			fire.setVelocity(0,-12);
+    			BulletField.fire(bulletX, bulletY, 0, -12);
         		break;
     		}
-    		fire.setDisappearDelay(2);
-    		fire.toggleCollisionEffect(false);
-    		fire.setSubClass(1);
-    		fire.setDisapearAfterDefeatEnemy();
-    		Level.setTimerTrigger(2, 0.2f);
+    		// one sound for the whole volley
+    		BulletField.playFireSound();
     		break;
     	case 3: // Create a wave of enemies and reset timer
     		boolean allgone = true;
@@ -453,7 +488,7 @@ public class Wingdra extends ALE
     			int whichBoss = Util.getRandom(bossIcons.length-1);
     			int whichColor = Util.getRandom(bossIcons[0].length-1);
     			String bossIconToUse = bossIcons[whichBoss][whichColor];
-    			curBoss = Enemy.makeAsMoveableBox(VIEW_WIDTH/2 - BOSS_SIZE/2, 0, BOSS_SIZE, BOSS_SIZE, bossIconToUse, 0, 0, 0, "boss");
+    			curBoss = Enemy.makeAsMoveableBox(VIEW_WIDTH/2 - BOSS_SIZE/2, 0, BOSS_SIZE, BOSS_SIZE, bossIconToUse, 0, 0, 0, Enemy.Archetype.BOSS);
 				int randSide = Util.getRandom(5)-Util.getRandom(5);
     			curBoss.setVelocity(randSide,2);
     			curBoss.setAppearSound("explosion.ogg");
@@ -465,8 +500,8 @@ public class Wingdra extends ALE
     		}
     		else {
     			currentWave += 1;
-    		    waveText = new Text(0, 40, Util.makeFont(255, 255, 255, 18), "Wave " + currentLevel, ("Wave XXX").length(), ALE.self()
-    	                .getVertexBufferObjectManager());
+    		    waveText = new Text(0, 40, Util.makeFont(255, 255, 255, 18), "Wave " + currentLevel, ("Wave XXX").length(),
+    	            getVertexBufferObjectManager());
     			int whichMonster = Util.getRandom(monsterIcons.length-1);
     			int whichMonsterColor = Util.getRandom(monsterIcons[0].length-1);
     			String monsterIconToUse = monsterIcons[whichMonster][whichMonsterColor];
@@ -479,15 +514,17 @@ public class Wingdra extends ALE
 					if (enemies.size() < NUM_ENEMIES) { // Can still bring out enemies this level
 						Enemy e = Enemy.makeAsMoveableBox(xPos, yPos, 100, 100, monsterIconToUse, 0, 0, 0);
 						enemies.add(e);
+						int enemyId = enemies.size() - 1; // e was just added at the end
 						e.setDisappearSound("gun.ogg");
-						e.setDefeatTrigger(enemies.indexOf(e)); // Remove enemy from list, and it will stop firing (among other things)
+						e.setDefeatTrigger(enemyId); // Remove enemy from list, and it will stop firing (among other things)
 						e.getSprite().setVisible(true);
 						e.getSprite().setPosition(xPos,yPos);
 						e.toggleCollisionEffect(false);
 						e.setVelocity(xVel, yVel);
 						e.setSubClass(1);
-						e.setDefeatTrigger(enemies.indexOf(e)); // Remove enemy from list, and it will stop firing (among other things)
-						Log.v("wingdra-game","Enemy at index " + enemies.indexOf(e) + " has been created.");
+						e.setBatched();
+						e.setDefeatTrigger(enemyId); // Remove enemy from list, and it will stop firing (among other things)
+						Trace.record(TRACE_ENEMY_CREATED, enemyId, xPos, yPos);
 					}
 				}
 	    		// Here, the ENEMY_SPAWN_RATE is the standard base rate at which the enemy groups spawn,
@@ -504,12 +541,17 @@ public class Wingdra extends ALE
     		}
     		break;
     	case 4:
-    		// Stop enemies from moving further if they have gotten to close to Wingdra
-    		for (int i = 0; i < enemies.size(); i++) {
-    			if (enemies.get(i).getSprite().getY() >= VIEW_HEIGHT / 2) {
-    				Log.v("wingdra",enemies.get(i).toString() + " is out of bounds.");
-    				enemies.get(i).getSprite().setPosition(enemies.get(i).getSprite().getX(),VIEW_HEIGHT/2);
-    				enemies.get(i).setVelocity(0,0);
+    		// Stop enemies from moving further if they have gotten to close to Wingdra; the grid
+    		// only hands back the ones in the bottom half of the screen
+    		SpatialGrid.findEnemiesInRectangle(-Float.MAX_VALUE, VIEW_HEIGHT / 2, Float.MAX_VALUE, Float.MAX_VALUE, nearby);
+    		for (int i = 0; i < nearby.size(); i++) {
+    			Enemy e = nearby.get(i);
+    			if (e != curBoss && e.getSprite().getY() >= VIEW_HEIGHT / 2) {
+    				// finding the enemy's number means searching the list, so only do it when tracing
+    				if (Trace.isEnabled(Trace.CATEGORY_GAME))
+    					Trace.record(TRACE_ENEMY_CLAMPED, enemies.indexOf(e), e.getSprite().getX(), e.getSprite().getY());
+    				e.getSprite().setPosition(e.getSprite().getX(),VIEW_HEIGHT/2);
+    				e.setVelocity(0,0);
     			}
     		}
     		if (curBoss != null) {
@@ -536,25 +578,23 @@ public class Wingdra extends ALE
         		wingdra.setVelocity(0,0);
         		wingdra.getSprite().setPosition(wingdra.getSprite().getX(),5);
         	}*/
-    		Level.setTimerTrigger(4,0.1f);
     		break;
     	case 5:
     		for (int i = 0; i < enemies.size(); i++) {
     			if (enemies.get(i).shouldShoot == true) {
-	    			// Made as an enemy so if it touches Wingdra, Wingdra dies.
-	        		Enemy efire = Enemy.makeAsMoveable((int)(enemies.get(i).getSprite().getX() + (enemies.get(i).getSprite().getWidth()/2) - 5), (int)enemies.get(i).getSprite().getY(), (int)HERO_BULLET_SIZE-5, (int)HERO_BULLET_SIZE-5, "wingdra-and-bullets/enemy_bullet.png", (float)0, (float)0, (float)0);
+	    			// Enemy shots come from a pool; if one touches Wingdra, Wingdra dies.
+	    			float fireX = enemies.get(i).getSprite().getX() + (enemies.get(i).getSprite().getWidth()/2) - 5;
+	    			float fireY = enemies.get(i).getSprite().getY();
 	        		if (enemies.get(i).getSprite().getX() < wingdra.getSprite().getX()-10 || enemies.get(i).getSprite().getX() > wingdra.getSprite().getX()+10) {
 	        			double distX = wingdra.getSprite().getX() - enemies.get(i).getSprite().getX();
 	        			double distY = wingdra.getSprite().getY() - enemies.get(i).getSprite().getY();
 	        			double xComp = distX / Math.sqrt(Math.pow(distX, 2) + Math.pow(distY, 2));
 	        			double yComp = distY / Math.sqrt(Math.pow(distX, 2) + Math.pow(distY, 2));
-	        			efire.setVelocity((float)xComp*6,(float)yComp*6);
+	        			EnemyProjectile.fire(fireX, fireY, (float)xComp*6, (float)yComp*6, 0);
 	        		}
 	        		else {
-	        			efire.setVelocity(0,6);
+	        			EnemyProjectile.fire(fireX, fireY, 0, 6, 0);
 	        		}
-	        		efire.setDisappearDelay(3);
-	        		efire.toggleCollisionEffect(false);
 	    		}
     		}
     		if (enemyFireDivisor == 0) {
@@ -568,25 +608,21 @@ public class Wingdra extends ALE
     		break;
     	case 6:
     		if (curBoss.shouldShoot == true) {
-    			// Made as an enemy so if it touches Wingdra, Wingdra dies.
-        		Enemy ebossfire = Enemy.makeAsMoveable((int)(curBoss.getSprite().getX() + (curBoss.getSprite().getWidth()/2) - 30), (int)(curBoss.getSprite().getY() + curBoss.getSprite().getHeight()), (int)HERO_BULLET_SIZE, (int)HERO_BULLET_SIZE, "wingdra-and-bullets/enemy_bullet.png", (float)0, (float)0, (float)0);
-        		Enemy ebossfire2 = Enemy.makeAsMoveable((int)(curBoss.getSprite().getX() + (curBoss.getSprite().getWidth()/2) - 30), (int)(curBoss.getSprite().getY() + curBoss.getSprite().getHeight()), (int)HERO_BULLET_SIZE, (int)HERO_BULLET_SIZE, "wingdra-and-bullets/enemy_bullet.png", (float)0, (float)0, (float)0);
+    			// Boss shots come from the same pool; if one touches Wingdra, Wingdra dies.
+    			float fireX = curBoss.getSprite().getX() + (curBoss.getSprite().getWidth()/2) - 30;
+    			float fireY = curBoss.getSprite().getY() + curBoss.getSprite().getHeight();
         		if (curBoss.getSprite().getX() < wingdra.getSprite().getX()-10 || curBoss.getSprite().getX() > wingdra.getSprite().getX()+10) {
         			double distX = wingdra.getSprite().getX() - curBoss.getSprite().getX();
         			double distY = wingdra.getSprite().getY() - curBoss.getSprite().getY();
         			double xComp = distX / Math.sqrt(Math.pow(distX, 2) + Math.pow(distY, 2));
         			double yComp = distY / Math.sqrt(Math.pow(distX, 2) + Math.pow(distY, 2));
-        			ebossfire.setVelocity((float)xComp*12,(float)yComp*12);
-        			ebossfire2.setVelocity((float)xComp*14,(float)yComp*12);
+        			EnemyProjectile.fire(fireX, fireY, (float)xComp*12, (float)yComp*12, 0);
+        			EnemyProjectile.fire(fireX, fireY, (float)xComp*14, (float)yComp*12, 0);
         		}
         		else {
-        			ebossfire.setVelocity(0,12);
-        			ebossfire2.setVelocity(2,12);
+        			EnemyProjectile.fire(fireX, fireY, 0, 12, 0);
+        			EnemyProjectile.fire(fireX, fireY, 2, 12, 0);
         		}
-        		ebossfire.setDisappearDelay(2);
-        		ebossfire2.setDisappearDelay(2);
-        		ebossfire.toggleCollisionEffect(false);
-        		ebossfire2.toggleCollisionEffect(false);
     		if (enemyFireDivisor == 0) {
     			enemyFireDivisor = 1;
     		}
@@ -648,15 +684,15 @@ public class Wingdra extends ALE
 			enemyFireDivisor += 0.2;
 			// Update information
 			currentLevel += 1;
-		    levelText = new Text(0, 40, Util.makeFont(255, 255, 255, 18), "Level " + currentLevel, ("Level XXX").length(), ALE.self()
-	                .getVertexBufferObjectManager());
+		    levelText = new Text(0, 40, Util.makeFont(255, 255, 255, 18), "Level " + currentLevel, ("Level XXX").length(),
+	            getVertexBufferObjectManager());
 		    /*
 		        float w = t.getWidth();
 		        float x = screenWidth / 2 - w / 2;
 		        */
 		}
 		else {
-			Log.v("wingdra-game","Attempting to remove enemy at index " + id + ".");
+			Trace.record(TRACE_ENEMY_REMOVED, id);
 			if (id < enemies.size()) {
 				enemies.get(id).shouldShoot = false;
 				enemies.get(id).setDisappearDelay(1);
@@ -667,7 +703,10 @@ public class Wingdra extends ALE
 					case 0:
 						Obstacle pwrShot = Obstacle.makeAsMoveable((int)enemies.get(id).getSprite().getX(),(int)enemies.get(id).getSprite().getY(),PWRUP_SIZE,PWRUP_SIZE,"bonuses/3x.png",0f,0f,0f);
 						pwrShot.setVelocity(0,8);
+						pwrShot.setCollisionMask((short) (PhysicsSprite.CATEGORY_HERO | PhysicsSprite.CATEGORY_OBSTACLE));
 						pwrShot.setCollisionTrigger(10, wingdra);
+						pwrShot.setBatched();
+						pwrShot.setOwnDespawnMargins(PWRUP_SIZE, PWRUP_SIZE, PWRUP_SIZE, -(PWRUP_SIZE/2 + 2), 1);
 						break;
 					case 1:
 						/*
@@ -684,6 +723,7 @@ public class Wingdra extends ALE
 						Goodie g = Goodie.makeAsMoveable((int)enemies.get(id).getSprite().getX(), (int)enemies.get(id).getSprite().getY(), PWRUP_SIZE, PWRUP_SIZE, "bonuses/clear.png");
 						g.setVelocity(0,8);
 						g.setInvincibilityDuration(10);
+						g.setBatched();
 						break;
 					case 3:
 						/*
@@ -0,0 +1,21 @@
+package com.theteam1.wingdra;
+
+import edu.lehigh.cse.ale.ALE;
+import edu.lehigh.cse.ale.Game;
+
+/**
+ * The Activity that Android starts to play Wingdra on a phone
+ * 
+ * @author spear
+ */
+public class WingdraActivity extends ALE
+{
+    /**
+     * Play Wingdra
+     */
+    @Override
+    protected Game makeGame()
+    {
+        return new Wingdra();
+    }
+}
@@ -1,35 +1,30 @@
 package edu.lehigh.cse.ale;
 
-import java.util.ArrayList;
+import java.io.File;
 
 import org.andengine.engine.camera.SmoothCamera;
 import org.andengine.engine.options.EngineOptions;
 import org.andengine.engine.options.resolutionpolicy.RatioResolutionPolicy;
-import org.andengine.entity.scene.IOnSceneTouchListener;
 import org.andengine.entity.scene.Scene;
 import org.andengine.input.sensor.acceleration.AccelerationData;
 import org.andengine.input.sensor.acceleration.IAccelerationListener;
-import org.andengine.input.touch.TouchEvent;
+import org.andengine.opengl.font.FontManager;
+import org.andengine.opengl.texture.TextureManager;
+import org.andengine.opengl.vbo.VertexBufferObjectManager;
 import org.andengine.ui.activity.SimpleBaseGameActivity;
-import org.andengine.util.debug.Debug;
 
-import android.util.Log;
 import android.view.KeyEvent;
 
-import com.badlogic.gdx.physics.box2d.Contact;
-import com.badlogic.gdx.physics.box2d.ContactImpulse;
-import com.badlogic.gdx.physics.box2d.ContactListener;
-import com.badlogic.gdx.physics.box2d.Manifold;
-import com.theteam1.wingdra.Wingdra;
+import com.theteam1.wingdra.BuildConfig;
 
 /**
- * Every game must extend this Framework class to gain access to all of the
- * components of ALE. See Wingdra for an example.
+ * Every game's Activity must extend this Framework class to run the game on a
+ * phone. The game itself extends Game, and the Activity makes it in
+ * makeGame(). See WingdraActivity for an example.
  * 
  * @author spear
  */
-public class ALE extends SimpleBaseGameActivity implements IAccelerationListener, ContactListener,
-        IOnSceneTouchListener
+public abstract class ALE extends SimpleBaseGameActivity implements IAccelerationListener
 {
     /**
      * The camera for this game
@@ -58,129 +53,60 @@ public class ALE extends SimpleBaseGameActivity implements IAccelerationListener
     HelpScene helpScene;
 
     /**
-     * To use the framework, you must override this to explain how to configure
-     * each level
-     */
-    public void configureLevel(int whichLevel)
-    {
-    }
-
-    /**
-     * Override this to indicate the names of the sound and picture files your
-     * game uses.
-     */
-    public void nameResources()
-    {
-    }
-
-    /**
-     * If you want to use trigger objects, you must override this to define what
-     * happens when the hero hits the obstacle
+     * Every game's Activity must override this to make the game that it runs
      * 
-     * @param score
-     *            The current number of goodies collected, in case it is useful
-     * @param id
-     *            The id that was assigned to the obstacle that was in the
-     *            collision
-     * @param whichLevel
-     *            The current level
+     * @return The game
      */
-    public void onCollideTrigger(int score, int id, int whichLevel)
-    {
-
-    }
-    
-    public void onCollideGuideTrigger(int id, ArrayList<Enemy> assocEnemy, int whichLevel) {
-    	if (id == 3) {
-    		Log.v("wingdra","collideguidetrigger");
-    		assocEnemy.get(0).setVelocity(0,0);
-    	}
-    	else if (id == 12) {
-    		for (int i = 0; i < Wingdra.enemies.size(); i++) {
-    			Wingdra.enemies.get(i).shouldShoot = false;
-    			Wingdra.enemies.get(i).setDisappearDelay(1);
-    		}
-    	}
-    	else if (id == 13) {
-    		for (int i = 0; i < assocEnemy.size(); i++) {
-    			
-    		}
-    	}
-    }
-    public void onCollidePowerTrigger(int id, Hero assocHero, int whichLevel) {
-    	if (id == 10) {
-    		if (assocHero.currentWeaponType != 1) {
-    			assocHero.currentWeaponType = 1;
-    		}
-    	}
-    	if (id == 11) {
-    		if (assocHero.currentWeaponType != 2) {
-    			assocHero.currentWeaponType = 2;
-    		}
-    	}
-    }
+    protected abstract Game makeGame();
 
     /**
-     * If you want to use TouchTrigger objects, you must override this to define
-     * what happens when the object is touched.
+     * Accessor for pseudo-singleton pattern
      * 
-     * @param score
-     *            The current number of goodies collected, in case it is useful
-     * @param id
-     *            The id that was assigned to the obstacle that was touched
-     * @param whichLevel
-     *            The current level
+     * @return The "singleton" Framework for the current game
      */
-    public void onTouchTrigger(int score, int id, int whichLevel)
+    protected static ALE self()
     {
+        return _self;
     }
 
     /**
-     * If you want to have timertriggers, then you must override this to define
-     * what happens when the timer expires
+     * Sprites and text get their vertex buffer manager from the installed
+     * Platform, so that they can be made even when there is no engine
      * 
-     * @param score
-     *            The current number of goodies collected, in case it is useful
-     * @param id
-     *            The id that was assigned to the timer that exired
-     * @param whichLevel
-     *            The current level
-     */
-    public void onTimeTrigger(int score, int id, int whichLevel)
-    {
-    }
-
-    /**
-     * If you want to have enemytriggers, then you must override this to define
-     * what happens when the enemy is defeated
+     * Note: user code should never call this
      * 
-     * @param score
-     *            The current number of goodies collected, in case it is useful
-     * @param id
-     *            The id that was assigned to the enemy who was defeated
-     * @param whichLevel
-     *            The current level
+     * @return The vertex buffer object manager
      */
-    public void onEnemyTrigger(int score, int id, int whichLevel)
+    @Override
+    public VertexBufferObjectManager getVertexBufferObjectManager()
     {
+        return Platform.current().getVertexBufferObjectManager();
     }
 
     /**
-     * If you want to use help scenes, then you will need to override this
-     * method
+     * Textures are managed by the installed Platform
+     * 
+     * Note: user code should never call this
+     * 
+     * @return The texture manager
      */
-    public void configureHelpScene(int whichScene)
+    @Override
+    public TextureManager getTextureManager()
     {
+        return Platform.current().getTextureManager();
     }
 
     /**
-     * Accessor for pseudo-singleton pattern
+     * Fonts are managed by the installed Platform
      * 
-     * @return The "singleton" Framework for the current game
+     * Note: user code should never call this
+     * 
+     * @return The font manager
      */
-    protected static ALE self()
+    @Override
+    public FontManager getFontManager()
     {
-        return _self;
+        return Platform.current().getFontManager();
     }
 
     /**
@@ -207,83 +133,6 @@ public class ALE extends SimpleBaseGameActivity implements IAccelerationListener
         return super.onKeyDown(keyCode, event);
     }
 
-    /**
-     * Main collision-detection routine: when a contact occurs, this dispatches
-     * appropriately so that the more important entity manages the collision
-     * 
-     * Note: user code should never call this
-     * 
-     * @param contact
-     *            They type of contact that occurred
-     */
-    @Override
-    public void beginContact(Contact contact)
-    {
-        // get the two objects' userdata
-        final Object a = contact.getFixtureA().getBody().getUserData();
-        final Object b = contact.getFixtureB().getBody().getUserData();
-
-        // NB: we can't actually do this work on the local thread; we need to
-        // defer it and run it on the update thread. Otherwise, box2d might
-        // crash.
-        this.runOnUpdateThread(new Runnable()
-        {
-            @Override
-            public void run()
-            {
-                // print a diagnostic message
-                String msg1 = a == null ? "null" : a.toString();
-                String msg2 = b == null ? "null" : b.toString();
-                Debug.d("Collision: " + msg1 + " hit " + msg2);
-
-                // we only do more if both are GFObjects
-                if (!(a instanceof PhysicsSprite) || !(b instanceof PhysicsSprite))
-                    return;
-
-                // filter so that the one with the smaller type handles the
-                // collision
-                PhysicsSprite gfoA = (PhysicsSprite) a;
-                PhysicsSprite gfoB = (PhysicsSprite) b;
-                if (gfoA.myType > gfoB.myType)
-                    gfoB.onCollide(gfoA);
-                else
-                    gfoA.onCollide(gfoB);
-                // at this point, we should check for win/loss
-            }
-        });
-
-    }
-
-    /**
-     * Unused collision detection routine
-     * 
-     * Note: user code should never call this
-     */
-    @Override
-    public void endContact(Contact contact)
-    {
-    }
-
-    /**
-     * Unused collision detection routine
-     * 
-     * Note: user code should never call this
-     */
-    @Override
-    public void postSolve(Contact contact, ContactImpulse impulse)
-    {
-    }
-
-    /**
-     * Unused collision detection routine
-     * 
-     * Note: user code should never call this
-     */
-    @Override
-    public void preSolve(Contact contact, Manifold oldManifold)
-    {
-    }
-
     /**
      * whenever the tilt of the phone changes, this will be called automatically
      * 
@@ -294,7 +143,9 @@ public class ALE extends SimpleBaseGameActivity implements IAccelerationListener
     @Override
     public void onAccelerationChanged(AccelerationData info)
     {
-        Level.onAccelerationChanged(info);
+        // this runs on the sensor's thread, so just store the sample for the
+        // next physics step
+        TiltInput.offer(info.getX(), info.getY());
     }
 
     /**
@@ -348,6 +199,13 @@ public class ALE extends SimpleBaseGameActivity implements IAccelerationListener
     public EngineOptions onCreateEngineOptions()
     {
         _self = this;
+        Platform.install(new AndroidPlatform(this));
+        Game.install(makeGame());
+        // debug builds record everything, and keep the trace if they crash
+        if (BuildConfig.DEBUG) {
+            Trace.setEnabledCategories(Trace.CATEGORY_ALL);
+            Trace.dumpOnCrash(new File(getFilesDir(), "trace.txt"));
+        }
         // configure the camera.
         _camera = new SmoothCamera(0, 0, Configuration.getCameraWidth(), Configuration.getCameraHeight(),
                 Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, 1f);
@@ -363,6 +221,7 @@ public class ALE extends SimpleBaseGameActivity implements IAccelerationListener
         // indicate that we may use sound and background music
         eo.getAudioOptions().setNeedsMusic(true);
         eo.getAudioOptions().setNeedsSound(true);
+        eo.getAudioOptions().getSoundOptions().setMaxSimultaneousStreams(Mixer.MAX_STREAMS);
 
         // turn on multitouch
         eo.getTouchOptions().setNeedsMultiTouch(true);
@@ -371,8 +230,8 @@ public class ALE extends SimpleBaseGameActivity implements IAccelerationListener
     }
 
     /**
-     * Load a scene. The menuManager will either draw a splash screen, a
-     * chooser, or a playable level
+     * Load a scene. The menuManager will either draw a loading screen, a
+     * splash screen, a chooser, or a playable level
      * 
      * Note: user code should never call this
      */
@@ -384,22 +243,13 @@ public class ALE extends SimpleBaseGameActivity implements IAccelerationListener
             menuManager = new MenuManager();
             helpScene = new HelpScene();
         }
-        // invoke the menumanager to display a scene
+        // show progress until the images are loaded, and then invoke the
+        // menumanager to display a scene
+        if (!Media.updateLoading())
+            return menuManager.drawLoading();
         return menuManager.display();
     }
 
-    /**
-     * When the scene is touched, this will run and forward to a handler for
-     * pokeable obstacles
-     * 
-     * Note: user code should never call this
-     */
-    @Override
-    public boolean onSceneTouchEvent(final Scene pScene, final TouchEvent te)
-    {
-        return Obstacle.handleSceneTouch(pScene, te);
-    }
-
     /**
      * A pretty weak helper method. Since the enable/disable accelerometer
      * methods are protected, and we want to call them from another class, we
@@ -429,14 +279,16 @@ public class ALE extends SimpleBaseGameActivity implements IAccelerationListener
     }
 
     /**
-     * This method is required by AndEngine, and forwards to our method for
-     * naming the resources to load
+     * This method is required by AndEngine, and forwards to the game's method
+     * for naming the resources to load
      * 
      * Note: user code should never call this
      */
     @Override
     public void onCreateResources()
     {
-        nameResources();
+        Game.current().nameResources();
+        // images finish loading behind the loading screen
+        Media.loadImages();
     }
 }
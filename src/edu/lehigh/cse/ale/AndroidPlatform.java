@@ -0,0 +1,667 @@
+package edu.lehigh.cse.ale;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.andengine.audio.music.Music;
+import org.andengine.audio.music.MusicFactory;
+import org.andengine.audio.sound.Sound;
+import org.andengine.audio.sound.SoundFactory;
+import org.andengine.audio.sound.SoundManager;
+import org.andengine.engine.camera.SmoothCamera;
+import org.andengine.opengl.font.FontManager;
+import org.andengine.opengl.texture.ITexture;
+import org.andengine.opengl.texture.ITextureStateListener;
+import org.andengine.opengl.texture.TextureManager;
+import org.andengine.opengl.texture.TextureOptions;
+import org.andengine.opengl.texture.atlas.bitmap.BitmapTextureAtlas;
+import org.andengine.opengl.texture.atlas.bitmap.BitmapTextureAtlasTextureRegionFactory;
+import org.andengine.opengl.texture.atlas.bitmap.source.IBitmapTextureAtlasSource;
+import org.andengine.opengl.texture.atlas.source.BaseTextureAtlasSource;
+import org.andengine.opengl.texture.compressed.etc1.ETC1Texture;
+import org.andengine.opengl.texture.region.TextureRegion;
+import org.andengine.opengl.texture.region.TiledTextureRegion;
+import org.andengine.opengl.vbo.VertexBufferObjectManager;
+import org.andengine.util.debug.Debug;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.SoundPool;
+
+/**
+ * The AndroidPlatform is the Platform for running on a real device, through
+ * the AndEngine activity that is hosting the game
+ *
+ * @author spear
+ */
+class AndroidPlatform extends Platform
+{
+    /**
+     * An image in an atlas that can be decoded ahead of time, on a worker
+     * thread, so that the GL thread only has to upload it
+     */
+    private final class AssetImageSource extends BaseTextureAtlasSource implements IBitmapTextureAtlasSource,
+            Runnable
+    {
+        /**
+         * The name of the image file
+         */
+        private final String _name;
+
+        /**
+         * The image, if it was decoded ahead of time and hasn't been uploaded
+         * yet
+         */
+        private volatile Bitmap _decoded;
+
+        /**
+         * Has the worker finished with this image?
+         */
+        volatile boolean done;
+
+        /**
+         * Make a source for an image
+         *
+         * @param name
+         *            The name of the image file
+         * @param x
+         *            The X coordinate of the image in the atlas
+         * @param y
+         *            The Y coordinate of the image in the atlas
+         * @param width
+         *            The width of the image
+         * @param height
+         *            The height of the image
+         */
+        AssetImageSource(String name, int x, int y, int width, int height)
+        {
+            super(x, y, width, height);
+            _name = name;
+        }
+
+        /**
+         * Decode the image on a worker thread
+         */
+        @Override
+        public void run()
+        {
+            _decoded = decode(Bitmap.Config.ARGB_8888);
+            done = true;
+        }
+
+        /**
+         * Internal method to decode the image. If the source is a different
+         * size than the image, the image is stretched to fit.
+         *
+         * @param config
+         *            The pixel format to decode to
+         * @return The image, or null if it couldn't be decoded
+         */
+        private Bitmap decode(Bitmap.Config config)
+        {
+            BitmapFactory.Options opts = new BitmapFactory.Options();
+            opts.inPreferredConfig = config;
+            InputStream in = null;
+            try {
+                in = openAsset(_name);
+                Bitmap b = BitmapFactory.decodeStream(in, null, opts);
+                if (b != null && (b.getWidth() != mTextureWidth || b.getHeight() != mTextureHeight)) {
+                    Bitmap stretched = Bitmap.createScaledBitmap(b, mTextureWidth, mTextureHeight, true);
+                    b.recycle();
+                    b = stretched;
+                }
+                return b;
+            }
+            catch (IOException e) {
+                Debug.d("Error loading image file " + _name);
+                return null;
+            }
+            finally {
+                try {
+                    if (in != null)
+                        in.close();
+                }
+                catch (IOException e) {
+                }
+            }
+        }
+
+        /**
+         * Hand the decoded image to the atlas for uploading. If the atlas is
+         * ever loaded again (for example, after the GL context is lost), the
+         * image is decoded again.
+         *
+         * @param config
+         *            The pixel format that the atlas wants
+         */
+        @Override
+        public Bitmap onLoadBitmap(Bitmap.Config config)
+        {
+            Bitmap b = _decoded;
+            _decoded = null;
+            if (b != null && b.getConfig() == config)
+                return b;
+            if (b != null)
+                b.recycle();
+            return decode(config);
+        }
+
+        /**
+         * Copy this source, without any decoded image
+         */
+        @Override
+        public AssetImageSource deepCopy()
+        {
+            return new AssetImageSource(_name, mTextureX, mTextureY, mTextureWidth, mTextureHeight);
+        }
+    }
+
+    /**
+     * The activity that is hosting the game
+     */
+    private final ALE _game;
+
+    /**
+     * The images in each atlas, so that they can be decoded whenever the atlas
+     * is about to be loaded
+     */
+    private final HashMap<BitmapTextureAtlas, ArrayList<AssetImageSource>> _sources = new HashMap<BitmapTextureAtlas, ArrayList<AssetImageSource>>();
+
+    /**
+     * Atlases that are in texture memory. The GL thread changes this, and the
+     * update thread reads it.
+     */
+    private final Set<ITexture> _uploaded = Collections.newSetFromMap(new ConcurrentHashMap<ITexture, Boolean>());
+
+    /**
+     * Keeps _uploaded up to date as atlases are loaded and unloaded
+     */
+    private final ITextureStateListener _uploadListener = new ITextureStateListener()
+    {
+        @Override
+        public void onLoadedToHardware(ITexture texture)
+        {
+            _uploaded.add(texture);
+        }
+
+        @Override
+        public void onUnloadedFromHardware(ITexture texture)
+        {
+            _uploaded.remove(texture);
+        }
+    };
+
+    /**
+     * Worker threads for decoding images, one per core. They exit when there
+     * is nothing left to decode.
+     */
+    private final ThreadPoolExecutor _decoders;
+
+    /**
+     * The engine's sound pool, for stopping streams that a Sound no longer
+     * remembers, or null if it hasn't been looked up yet
+     */
+    private SoundPool _soundPool;
+
+    /**
+     * Make a platform for a game
+     *
+     * @param game
+     *            The activity that is hosting the game
+     */
+    AndroidPlatform(ALE game)
+    {
+        _game = game;
+        int cores = Runtime.getRuntime().availableProcessors();
+        _decoders = new ThreadPoolExecutor(cores, cores, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        _decoders.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * The engine keeps the clock
+     */
+    @Override
+    float getSecondsElapsedTotal()
+    {
+        return _game.getEngine().getSecondsElapsedTotal();
+    }
+
+    /**
+     * The activity knows the game's resources
+     *
+     * @param resId
+     *            The resource ID of the string, from R.string
+     */
+    @Override
+    String getString(int resId)
+    {
+        return _game.getString(resId);
+    }
+
+    /**
+     * The engine knows how to vibrate
+     *
+     * @param milliseconds
+     *            How long to vibrate
+     */
+    @Override
+    void vibrate(long milliseconds)
+    {
+        _game.getEngine().vibrate(milliseconds);
+    }
+
+    /**
+     * The engine owns the vertex buffers
+     */
+    @Override
+    VertexBufferObjectManager getVertexBufferObjectManager()
+    {
+        return _game.getEngine().getVertexBufferObjectManager();
+    }
+
+    /**
+     * The engine owns the textures
+     */
+    @Override
+    TextureManager getTextureManager()
+    {
+        return _game.getEngine().getTextureManager();
+    }
+
+    /**
+     * The engine owns the fonts
+     */
+    @Override
+    FontManager getFontManager()
+    {
+        return _game.getEngine().getFontManager();
+    }
+
+    /**
+     * The activity made the camera when it configured the engine
+     */
+    @Override
+    SmoothCamera getCamera()
+    {
+        return _game._camera;
+    }
+
+    /**
+     * The menu manager shows the "you won" screen
+     */
+    @Override
+    void winLevel()
+    {
+        _game.menuManager.winLevel();
+    }
+
+    /**
+     * The menu manager shows the "you lost" screen
+     *
+     * @param loseText
+     *            The text to show the player
+     */
+    @Override
+    void loseLevel(String loseText)
+    {
+        _game.menuManager.loseLevel(loseText);
+    }
+
+    /**
+     * The activity owns the accelerometer
+     *
+     * @param enabled
+     *            True if tilt events should be delivered to the level
+     */
+    @Override
+    void setTiltEnabled(boolean enabled)
+    {
+        _game.configAccelerometer(enabled);
+    }
+
+    /**
+     * Assets come from the APK
+     *
+     * @param assetName
+     *            The name of the file, relative to the assets folder
+     */
+    @Override
+    InputStream openAsset(String assetName) throws IOException
+    {
+        return _game.getAssets().open(assetName);
+    }
+
+    /**
+     * Decode just the image's header
+     *
+     * @param imgName
+     *            The name of the image file
+     * @param size
+     *            Where to put the width and height
+     */
+    @Override
+    boolean readImageSize(String imgName, int[] size)
+    {
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inJustDecodeBounds = true;
+        InputStream in = null;
+        try {
+            in = openAsset(imgName);
+            BitmapFactory.decodeStream(in, null, opts);
+        }
+        catch (IOException e) {
+            return false;
+        }
+        finally {
+            try {
+                if (in != null)
+                    in.close();
+            }
+            catch (IOException e) {
+            }
+        }
+        size[0] = opts.outWidth;
+        size[1] = opts.outHeight;
+        return opts.outWidth > 0 && opts.outHeight > 0;
+    }
+
+    /**
+     * The image will be decoded from the assets folder by startDecoding, or
+     * else when the atlas is loaded
+     *
+     * @param atlas
+     *            The atlas to put the image in
+     * @param imgName
+     *            The name of the image file
+     * @param x
+     *            The X coordinate of the image's top left corner in the atlas
+     * @param y
+     *            The Y coordinate of the image's top left corner in the atlas
+     * @param width
+     *            The width of the image
+     * @param height
+     *            The height of the image
+     * @param cellColumns
+     *            The number of animation cells in the image
+     */
+    @Override
+    TiledTextureRegion addImageToAtlas(BitmapTextureAtlas atlas, String imgName, int x, int y, int width,
+            int height, int cellColumns)
+    {
+        AssetImageSource source = new AssetImageSource(imgName, x, y, width, height);
+        addSource(atlas, source);
+        return BitmapTextureAtlasTextureRegionFactory.createTiledFromSource(atlas, source, x, y, cellColumns, 1);
+    }
+
+    /**
+     * The image is decoded, and stretched, when the atlas is loaded
+     *
+     * @param atlas
+     *            The atlas to fill
+     * @param imgName
+     *            The name of the image file
+     */
+    @Override
+    TextureRegion fillAtlasWithImage(BitmapTextureAtlas atlas, String imgName)
+    {
+        AssetImageSource source = new AssetImageSource(imgName, 0, 0, atlas.getWidth(), atlas.getHeight());
+        addSource(atlas, source);
+        return BitmapTextureAtlasTextureRegionFactory.createFromSource(atlas, source, 0, 0);
+    }
+
+    /**
+     * Internal method to add an image to an atlas, and remember it so that it
+     * can be decoded again
+     *
+     * @param atlas
+     *            The atlas
+     * @param source
+     *            The image
+     */
+    private void addSource(BitmapTextureAtlas atlas, AssetImageSource source)
+    {
+        ArrayList<AssetImageSource> sources = _sources.get(atlas);
+        if (sources == null) {
+            sources = new ArrayList<AssetImageSource>();
+            _sources.put(atlas, sources);
+        }
+        sources.add(source);
+    }
+
+    /**
+     * ETC1 textures read their file on the GL thread when they are loaded.
+     * Images with transparency are split across two of them.
+     *
+     * @param colorName
+     *            The name of the compressed file with the image's colors
+     * @param alphaName
+     *            The name of the compressed file with the image's
+     *            transparency, or null if the image is opaque
+     * @param width
+     *            The width of the image
+     * @param height
+     *            The height of the image
+     * @param options
+     *            How the texture is sampled
+     */
+    @Override
+    ITexture makeCompressedTexture(String colorName, String alphaName, int width, int height,
+            TextureOptions options)
+    {
+        try {
+            ETC1Texture color = makeETC1Texture(colorName, options);
+            if (alphaName == null)
+                return color;
+            return new SplitAlphaTexture(getTextureManager(), color, makeETC1Texture(alphaName, options));
+        }
+        catch (IOException e) {
+            Debug.d("Error loading compressed image " + colorName);
+            return null;
+        }
+    }
+
+    /**
+     * Internal method to make an ETC1 texture from a file in the assets
+     *
+     * @param name
+     *            The name of the compressed file
+     * @param options
+     *            How the texture is sampled
+     * @return The texture, which hasn't been loaded yet
+     */
+    private ETC1Texture makeETC1Texture(final String name, TextureOptions options) throws IOException
+    {
+        return new ETC1Texture(getTextureManager(), options)
+        {
+            @Override
+            protected InputStream getInputStream() throws IOException
+            {
+                return openAsset(name);
+            }
+        };
+    }
+
+    /**
+     * Decode the atlas's images on the worker threads
+     *
+     * @param atlas
+     *            An atlas whose images have all been added
+     */
+    @Override
+    void startDecoding(ITexture atlas)
+    {
+        ArrayList<AssetImageSource> sources = _sources.get(atlas);
+        if (sources == null)
+            return;
+        for (AssetImageSource source : sources) {
+            source.done = false;
+            _decoders.execute(source);
+        }
+    }
+
+    /**
+     * The atlas is decoded once the workers have finished all of its images
+     *
+     * @param atlas
+     *            An atlas that startDecoding was called on
+     */
+    @Override
+    boolean isDecoded(ITexture atlas)
+    {
+        ArrayList<AssetImageSource> sources = _sources.get(atlas);
+        if (sources != null)
+            for (AssetImageSource source : sources)
+                if (!source.done)
+                    return false;
+        return true;
+    }
+
+    /**
+     * The engine's texture manager sends the atlas to GL, on the GL thread.
+     * Each image's bitmap is recycled as soon as it has been copied, and then
+     * the atlas tells our listener that it is loaded.
+     *
+     * @param atlas
+     *            The atlas to load
+     */
+    @Override
+    void loadAtlas(ITexture atlas)
+    {
+        atlas.setTextureStateListener(_uploadListener);
+        getTextureManager().loadTexture(atlas);
+    }
+
+    /**
+     * The engine runs the code before it updates the scene. Unlike an update
+     * handler, it survives the menus clearing the engine's update handlers.
+     *
+     * @param r
+     *            The code to run
+     */
+    @Override
+    void runNextFrame(Runnable r)
+    {
+        _game.getEngine().runOnUpdateThread(r);
+    }
+
+    /**
+     * The listener hears about the upload on the GL thread
+     *
+     * @param atlas
+     *            An atlas that loadAtlas was called on
+     */
+    @Override
+    boolean isUploaded(ITexture atlas)
+    {
+        return _uploaded.contains(atlas);
+    }
+
+    /**
+     * The engine's texture manager frees the atlas's GL texture
+     *
+     * @param atlas
+     *            The atlas to unload
+     */
+    @Override
+    void unloadAtlas(ITexture atlas)
+    {
+        getTextureManager().unloadTexture(atlas);
+    }
+
+    /**
+     * Load the sound through the engine's sound manager
+     *
+     * @param soundName
+     *            The name of the sound file
+     */
+    @Override
+    Sound loadSound(String soundName)
+    {
+        try {
+            return SoundFactory.createSoundFromAsset(_game.getEngine().getSoundManager(), _game, soundName);
+        }
+        catch (IOException e) {
+            Debug.d("Error encountered while trying to load audio file " + soundName
+                    + ".  Common causes include a misspelled file name, an incorrect path, "
+                    + "or an invalid file type.");
+            return null;
+        }
+    }
+
+    /**
+     * Play the sound through the engine's sound manager
+     *
+     * @param sound
+     *            The sound to play
+     */
+    @Override
+    int playSound(Sound sound)
+    {
+        sound.play();
+        return sound.getStreamID();
+    }
+
+    /**
+     * A Sound can only stop its most recent stream, so older streams are
+     * stopped through the sound pool
+     *
+     * @param sound
+     *            The sound
+     * @param streamId
+     *            The stream, from playSound
+     */
+    @Override
+    void stopSound(Sound sound, int streamId)
+    {
+        if (sound.getStreamID() == streamId) {
+            sound.stop();
+            return;
+        }
+        if (_soundPool == null) {
+            // the engine doesn't share its pool, so ask for it by name
+            try {
+                Method m = SoundManager.class.getDeclaredMethod("getSoundPool");
+                m.setAccessible(true);
+                _soundPool = (SoundPool) m.invoke(_game.getEngine().getSoundManager());
+            }
+            catch (Exception e) {
+                Debug.d("Unable to reach the sound pool");
+                return;
+            }
+        }
+        _soundPool.stop(streamId);
+    }
+
+    /**
+     * Load the music through the engine's music manager
+     *
+     * @param musicName
+     *            The name of the music file
+     * @param loop
+     *            True if the music should repeat when it reaches the end
+     */
+    @Override
+    Music loadMusic(String musicName, boolean loop)
+    {
+        try {
+            Music m = MusicFactory.createMusicFromAsset(_game.getEngine().getMusicManager(), _game, musicName);
+            m.setLooping(loop);
+            return m;
+        }
+        catch (final IOException e) {
+            Debug.d("Error encountered while trying to load audio file " + musicName
+                    + ".  Common causes include a misspelled file name, an incorrect path, "
+                    + "or an invalid file type.");
+            return null;
+        }
+    }
+}
@@ -2,94 +2,180 @@ package edu.lehigh.cse.ale;
 
 import org.andengine.opengl.texture.region.TiledTextureRegion;
 
-import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+/**
+ * BossEnemies are enemies that take many hits to defeat. Projectiles only do a
+ * fraction of their usual damage to them, and obstacles with a matching
+ * subclass have to hit them several times before they are defeated.
+ *
+ * BossEnemies are made by the Enemy factories when they are given the BOSS
+ * archetype, or by the factories in this class.
+ *
+ * @author spear
+ */
+public class BossEnemy extends Enemy
+{
+    /**
+     * How many hits from a matching obstacle it takes to defeat a boss
+     */
+    static final int HITS_TO_DEFEAT = 20;
 
-public class BossEnemy extends Enemy {
-	
-	private BossEnemy(int x, int y, int width, int height, TiledTextureRegion ttr, boolean stationary, float density,
+    /**
+     * Projectiles only do this fraction of their strength to a boss
+     */
+    static final int PROJECTILE_DIVISOR = 20;
+
+    /**
+     * Number of times a matching obstacle has hit this boss
+     */
+    private int hitCount = 0;
+
+    /**
+     * Internal method to create a boss; see the Enemy constructor
+     *
+     * @param x
+     *            X coordinate of top left corner
+     * @param y
+     *            Y coordinate of top left corner
+     * @param width
+     *            Width of boss
+     * @param height
+     *            Height of boss
+     * @param ttr
+     *            The image to display
+     * @param stationary
+     *            Is the boss stationary or can it move?
+     * @param density
+     *            Density of the boss. When in doubt, use 1
+     * @param elasticity
+     *            Elasticity of the boss. When in doubt, use 0
+     * @param friction
+     *            Friction of the boss. When in doubt, use 1
+     * @param isBox
+     *            Does the boss have a box shape, instead of a circle?
+     */
+    BossEnemy(int x, int y, int width, int height, TiledTextureRegion ttr, boolean stationary, float density,
             float elasticity, float friction, boolean isBox)
     {
         super(x, y, width, height, ttr, stationary, density, elasticity, friction, isBox);
     }
-	
-	public static BossEnemy makeAsMoveable(int x, int y, int width, int height, String imgName, float density,
+
+    /**
+     * Add a boss who uses a circle as its fixture and who can move via a route
+     * or tilt
+     *
+     * @param x
+     *            X coordinate of top left corner
+     * @param y
+     *            Y coordinate of top left corner
+     * @param width
+     *            Width of boss
+     * @param height
+     *            Height of boss
+     * @param imgName
+     *            Name of image to display
+     * @param density
+     *            Density of the boss. When in doubt, use 1
+     * @param elasticity
+     *            Elasticity of the boss. When in doubt, use 0
+     * @param friction
+     *            Friction of the boss. When in doubt, use 1
+     *
+     * @return the boss, so we can modify its properties
+     */
+    public static BossEnemy makeAsMoveable(int x, int y, int width, int height, String imgName, float density,
             float elasticity, float friction)
     {
-		Enemy e = Enemy.makeAsMoveable(x, y, width, height, imgName, density,
-	            elasticity, friction);
-		return (BossEnemy)e;
+        return (BossEnemy) Enemy.makeAsMoveable(x, y, width, height, imgName, density, elasticity, friction,
+                Archetype.BOSS);
     }
 
-  
+    /**
+     * Add a boss who uses a circle as its fixture and who doesn't move
+     *
+     * @param x
+     *            X coordinate of top left corner
+     * @param y
+     *            Y coordinate of top left corner
+     * @param width
+     *            Width of boss
+     * @param height
+     *            Height of boss
+     * @param imgName
+     *            Name of image to display
+     * @param density
+     *            Density of the boss. When in doubt, use 1
+     * @param elasticity
+     *            Elasticity of the boss. When in doubt, use 0
+     * @param friction
+     *            Friction of the boss. When in doubt, use 1
+     *
+     * @return the boss, so we can modify its properties
+     */
     public static BossEnemy makeAsStationary(int x, int y, int width, int height, String imgName, float density,
             float elasticity, float friction)
     {
-    	Enemy e = Enemy.makeAsStationary(x, y, width, height, imgName, density,
-	            elasticity, friction);
-		return (BossEnemy)e;
+        return (BossEnemy) Enemy.makeAsStationary(x, y, width, height, imgName, density, elasticity, friction,
+                Archetype.BOSS);
     }
 
-
+    /**
+     * Add a boss who uses a box as its fixture and who can move via a route or
+     * tilt
+     *
+     * @param x
+     *            X coordinate of top left corner
+     * @param y
+     *            Y coordinate of top left corner
+     * @param width
+     *            Width of boss
+     * @param height
+     *            Height of boss
+     * @param imgName
+     *            Name of image to display
+     * @param density
+     *            Density of the boss. When in doubt, use 1
+     * @param elasticity
+     *            Elasticity of the boss. When in doubt, use 0
+     * @param friction
+     *            Friction of the boss. When in doubt, use 1
+     *
+     * @return the boss, so we can modify its properties
+     */
     public static BossEnemy makeAsMoveableBox(int x, int y, int width, int height, String imgName, float density,
             float elasticity, float friction)
     {
-    	Enemy e = Enemy.makeAsMoveableBox(x, y, width, height, imgName, density,
-	            elasticity, friction);
-		return (BossEnemy)e;
+        return (BossEnemy) Enemy.makeAsMoveableBox(x, y, width, height, imgName, density, elasticity, friction,
+                Archetype.BOSS);
     }
-    
+
+    /**
+     * Bosses only take a fraction of a projectile's strength as damage
+     *
+     * @return the amount to subtract from this boss's damage
+     */
     @Override
-    void onCollide(PhysicsSprite other)
+    int damageFromProjectile()
     {
-        // handle bullets
-        if (other.myType == PhysicsSprite.TYPE_PROJECTILE) {
-            // compute damage to determine if the enemy is dead
-            damage -= Projectile._strength/3;
-            if (damage <= 0) {
-                // remove this enemy
-                enemiesDefeated++;
-                getSprite().setVisible(false);
-                //vanish(false);
-                //physBody.setActive(false);
-                // hide the bullet quietly, so that the sound of the enemy can
-                // be heard
-                //other.vanish(true);
-                //other.physBody.setActive(false);
-                // handle triggers
-                if (isTrigger)
-                    ALE.self().onEnemyTrigger(Goodie.goodiescollected, triggerID, MenuManager._currLevel);
-            }
-            else {
-                // hide the bullet
-                other.vanish(true);
-                other.physBody.setActive(false);
-            }
-            // check if this wins the level
-            if (Enemy.checkWinByDefeatEnemies()) {
-                ALE.self().menuManager.winLevel();
-            }
-        }
-        // handle obstacles with a matching subclass
-        if (other.myType == PhysicsSprite.TYPE_OBSTACLE) {
-            Obstacle o = (Obstacle) other;
-            if ((mySubClass != 0) && (mySubClass == o.mySubClass)) {
-                // remove the enemy
-                vanish(false);
-                physBody.setActive(false);
-                Enemy.enemiesDefeated++;
-                if (Enemy.checkWinByDefeatEnemies()) {
-                    ALE.self().menuManager.winLevel();
-                }
-                // hide the obstacle?
-                if (o.disappearAfterDefeatEnemy) {
-                    o.vanish(false);
-                    o.physBody.setActive(false);
-                }
-                // handle triggers
-                if (isTrigger)
-                    ALE.self().onEnemyTrigger(Goodie.goodiescollected, triggerID, MenuManager._currLevel);
-            }
-        }
+        return Projectile._strength / PROJECTILE_DIVISOR;
     }
 
+    /**
+     * A matching weapon only defeats a boss once it has hit it enough times;
+     * every hit uses up the weapon
+     *
+     * @param disappearAfterDefeat
+     *            Ignored, since the weapon always disappears
+     * @return true, since the weapon always disappears
+     */
+    @Override
+    boolean onHitByWeapon(boolean disappearAfterDefeat)
+    {
+        if (hitCount < HITS_TO_DEFEAT)
+            hitCount++;
+        if (hitCount == HITS_TO_DEFEAT) {
+            hitCount = 0;
+            defeatByWeapon();
+        }
+        return true;
+    }
 }
@@ -0,0 +1,407 @@
+package edu.lehigh.cse.ale;
+
+import java.util.ArrayList;
+
+import org.andengine.engine.camera.Camera;
+import org.andengine.engine.handler.IUpdateHandler;
+import org.andengine.entity.sprite.batch.DynamicSpriteBatch;
+import org.andengine.extension.physics.box2d.util.constants.PhysicsConstants;
+import org.andengine.opengl.texture.region.ITextureRegion;
+import org.andengine.opengl.texture.region.TiledTextureRegion;
+
+/**
+ * The BulletField simulates the hero's shots without the physics world.
+ *
+ * A pooled bullet obstacle still has a dynamic body, a fixture, a
+ * PhysicsConnector, and contact callbacks, even though all it ever does is fly
+ * in a straight line at a constant speed until it hits an enemy. The
+ * BulletField keeps each bullet as a position, a velocity and a remaining
+ * lifetime in parallel arrays, and moves the bullets itself once per update.
+ * Each bullet's path for the update is tested against the nearby enemies
+ * that its subclass hurts, which the SpatialGrid finds, as a box or a circle
+ * to match the enemy's body. The first enemy along the path is hit the same
+ * way that a subclassed obstacle would hit it. Since the test covers the
+ * whole path, fast bullets can't skip over small enemies. All of the bullets
+ * are drawn with one sprite batch.
+ *
+ * Bullets disappear when their lifetime runs out, when they leave the camera's
+ * view, or when they hit an enemy.
+ *
+ * @author spear
+ */
+public class BulletField
+{
+    /**
+     * Draws every live bullet, with one draw call
+     */
+    private static final class Batch extends DynamicSpriteBatch
+    {
+        /**
+         * Make the batch
+         *
+         * @param ttr
+         *            The bullets' image
+         * @param capacity
+         *            The most bullets that can be drawn
+         */
+        Batch(TiledTextureRegion ttr, int capacity)
+        {
+            super(ttr.getTexture(), capacity, Platform.current().getVertexBufferObjectManager());
+            // draw at the same depth as sprites
+            setZIndex(1);
+            if (ttr.getTexture() instanceof SplitAlphaTexture)
+                setShaderProgram(SplitAlphaShaderProgram.getInstance());
+        }
+
+        /**
+         * Each frame, copy every live bullet into the batch
+         *
+         * @return true, since the batch always changes
+         */
+        @Override
+        protected boolean onUpdateSpriteBatch()
+        {
+            for (int i = 0; i < _count; ++i)
+                drawWithoutChecks(_region, _x[i], _y[i], _width, _height, 1, 1, 1, 1);
+            return true;
+        }
+    }
+
+    /**
+     * The one update handler that moves the bullets
+     */
+    private static final IUpdateHandler handler = new IUpdateHandler()
+    {
+        @Override
+        public void onUpdate(float pSecondsElapsed)
+        {
+            step(pSecondsElapsed);
+        }
+
+        @Override
+        public void reset()
+        {
+        }
+    };
+
+    /**
+     * The x coordinate of the top left corner of each bullet
+     */
+    private static float[] _x = new float[0];
+
+    /**
+     * The y coordinate of the top left corner of each bullet
+     */
+    private static float[] _y = new float[0];
+
+    /**
+     * The x velocity of each bullet, in pixels per second
+     */
+    private static float[] _vx = new float[0];
+
+    /**
+     * The y velocity of each bullet, in pixels per second
+     */
+    private static float[] _vy = new float[0];
+
+    /**
+     * The seconds each bullet has left before it disappears
+     */
+    private static float[] _life = new float[0];
+
+    /**
+     * The number of live bullets. They are always the first ones in the arrays.
+     */
+    private static int _count;
+
+    /**
+     * The size of a bullet
+     */
+    private static float _width, _height;
+
+    /**
+     * The image of a bullet
+     */
+    private static ITextureRegion _region;
+
+    /**
+     * How long a bullet lasts, in seconds
+     */
+    private static float _lifetime;
+
+    /**
+     * Enemies with this subclass are hurt by bullets
+     */
+    private static int _subClass;
+
+    /**
+     * The sound to play when a volley of bullets is fired
+     */
+    private static SoundEffect _fireSound;
+
+    /**
+     * The enemies near a bullet's path
+     */
+    private static final ArrayList<Enemy> _nearby = new ArrayList<Enemy>();
+
+    /**
+     * Prevent this from being created
+     */
+    private BulletField()
+    {
+    }
+
+    /**
+     * Call this whenever we create a new level, since the old level's batch
+     * belongs to its scene
+     */
+    static void onNewLevel()
+    {
+        _count = 0;
+        _x = _y = _vx = _vy = _life = new float[0];
+        _region = null;
+        _fireSound = null;
+    }
+
+    /**
+     * Describe the bullets in a level. This must be called while configuring
+     * the level, before any bullets are fired.
+     *
+     * @param capacity
+     *            The most bullets that can be on the screen at once
+     * @param width
+     *            The width of a bullet
+     * @param height
+     *            The height of a bullet
+     * @param imgName
+     *            The name of the bullet's image
+     * @param subClass
+     *            The subclass of enemies that bullets defeat
+     * @param lifetime
+     *            How long a bullet lasts, in seconds
+     */
+    public static void configure(int capacity, int width, int height, String imgName, int subClass, float lifetime)
+    {
+        TiledTextureRegion ttr = Media.getImage(imgName);
+        _x = new float[capacity];
+        _y = new float[capacity];
+        _vx = new float[capacity];
+        _vy = new float[capacity];
+        _life = new float[capacity];
+        _count = 0;
+        _width = width;
+        _height = height;
+        _region = ttr.getTextureRegion(0);
+        _subClass = subClass;
+        _lifetime = lifetime;
+        _fireSound = null;
+        Level.current.attachChild(new Batch(ttr, capacity));
+        Level.current.registerUpdateHandler(handler);
+    }
+
+    /**
+     * Specify a sound to play when a volley of bullets is fired
+     *
+     * @param soundName
+     *            Name of the sound file to play
+     */
+    public static void setFireSound(String soundName)
+    {
+        _fireSound = Media.getSound(soundName);
+    }
+
+    /**
+     * Fire a bullet. If there are already as many bullets as the field can
+     * hold, nothing happens.
+     *
+     * @param x
+     *            The x coordinate of the top left corner of the bullet
+     * @param y
+     *            The y coordinate of the top left corner of the bullet
+     * @param velocityX
+     *            The x velocity of the bullet, in the same units as
+     *            PhysicsSprite.setVelocity
+     * @param velocityY
+     *            The y velocity of the bullet, in the same units as
+     *            PhysicsSprite.setVelocity
+     */
+    public static void fire(float x, float y, float velocityX, float velocityY)
+    {
+        if (_count == _x.length)
+            return;
+        int i = _count++;
+        _x[i] = x;
+        _y[i] = y;
+        _vx[i] = velocityX * PhysicsConstants.PIXEL_TO_METER_RATIO_DEFAULT;
+        _vy[i] = velocityY * PhysicsConstants.PIXEL_TO_METER_RATIO_DEFAULT;
+        _life[i] = _lifetime;
+    }
+
+    /**
+     * Play the fire sound. Call this once for each volley, since a volley of
+     * several bullets should only make one sound.
+     */
+    public static void playFireSound()
+    {
+        if (_fireSound != null)
+            _fireSound.play();
+    }
+
+    /**
+     * Internal method to move every bullet, and hit the first enemy along
+     * each bullet's path
+     *
+     * @param elapsed
+     *            Seconds since the last update
+     */
+    private static void step(float elapsed)
+    {
+        Camera c = Platform.current().getCamera();
+        float left = c.getXMin() - _width;
+        float right = c.getXMax();
+        float top = c.getYMin() - _height;
+        float bottom = c.getYMax();
+        ArrayList<Enemy> enemies = _nearby;
+        int i = 0;
+        while (i < _count) {
+            _life[i] -= elapsed;
+            float dx = _vx[i] * elapsed;
+            float dy = _vy[i] * elapsed;
+
+            // find the first enemy that the bullet's path enters, among the
+            // ones near it
+            SpatialGrid.findEnemiesInRectangle(Math.min(_x[i], _x[i] + dx), Math.min(_y[i], _y[i] + dy),
+                    Math.max(_x[i], _x[i] + dx) + _width, Math.max(_y[i], _y[i] + dy) + _height, enemies);
+            Enemy hit = null;
+            float first = 2;
+            for (int e = enemies.size() - 1; e >= 0; --e) {
+                Enemy en = enemies.get(e);
+                if (!en.isHurtBy(_subClass) || !en.getSprite().isVisible() || !en.physBody.isActive())
+                    continue;
+                float t = en.hasBoxShape() ? sweepBox(i, dx, dy, en) : sweepCircle(i, dx, dy, en);
+                if (t < first) {
+                    first = t;
+                    hit = en;
+                }
+            }
+
+            boolean dead = false;
+            if (hit != null) {
+                _x[i] += dx * first;
+                _y[i] += dy * first;
+                dead = hit.onHitByWeapon(true);
+            }
+            else {
+                _x[i] += dx;
+                _y[i] += dy;
+            }
+            if (dead || _life[i] <= 0 || _x[i] < left || _x[i] > right || _y[i] < top || _y[i] > bottom)
+                remove(i);
+            else
+                ++i;
+        }
+    }
+
+    /**
+     * Internal method to find when a bullet's path enters a box-shaped enemy.
+     * The enemy's box is grown by half the bullet's size, so that the bullet
+     * can be treated as a point at its center.
+     *
+     * @param i
+     *            The bullet
+     * @param dx
+     *            How far the bullet moves in x
+     * @param dy
+     *            How far the bullet moves in y
+     * @param en
+     *            The enemy
+     * @return The fraction of the path at which the bullet touches the enemy,
+     *         or 2 if it doesn't
+     */
+    private static float sweepBox(int i, float dx, float dy, Enemy en)
+    {
+        float px = _x[i] + _width / 2;
+        float py = _y[i] + _height / 2;
+        float minX = en.getSprite().getX() - _width / 2;
+        float maxX = en.getSprite().getX() + en.getSprite().getWidth() + _width / 2;
+        float minY = en.getSprite().getY() - _height / 2;
+        float maxY = en.getSprite().getY() + en.getSprite().getHeight() + _height / 2;
+        float enter = 0;
+        float exit = 1;
+        // clip the path against the box's x extent, and then its y extent
+        if (dx == 0) {
+            if (px < minX || px > maxX)
+                return 2;
+        }
+        else {
+            float t1 = (minX - px) / dx;
+            float t2 = (maxX - px) / dx;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        if (dy == 0) {
+            if (py < minY || py > maxY)
+                return 2;
+        }
+        else {
+            float t1 = (minY - py) / dy;
+            float t2 = (maxY - py) / dy;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        return enter <= exit ? enter : 2;
+    }
+
+    /**
+     * Internal method to find when a bullet's path enters a circular enemy.
+     * The enemy's radius is grown by the bullet's, so that the bullet can be
+     * treated as a point at its center.
+     *
+     * @param i
+     *            The bullet
+     * @param dx
+     *            How far the bullet moves in x
+     * @param dy
+     *            How far the bullet moves in y
+     * @param en
+     *            The enemy
+     * @return The fraction of the path at which the bullet touches the enemy,
+     *         or 2 if it doesn't
+     */
+    private static float sweepCircle(int i, float dx, float dy, Enemy en)
+    {
+        float radius = en.getSprite().getWidth() / 2 + _width / 2;
+        float fx = _x[i] + _width / 2 - (en.getSprite().getX() + en.getSprite().getWidth() / 2);
+        float fy = _y[i] + _height / 2 - (en.getSprite().getY() + en.getSprite().getHeight() / 2);
+        float c = fx * fx + fy * fy - radius * radius;
+        // already touching
+        if (c <= 0)
+            return 0;
+        float a = dx * dx + dy * dy;
+        if (a == 0)
+            return 2;
+        float b = 2 * (fx * dx + fy * dy);
+        float disc = b * b - 4 * a * c;
+        if (disc < 0)
+            return 2;
+        float t = (-b - (float) Math.sqrt(disc)) / (2 * a);
+        return (t >= 0 && t <= 1) ? t : 2;
+    }
+
+    /**
+     * Internal method to remove a bullet, by moving the last live bullet into
+     * its place
+     *
+     * @param i
+     *            The bullet
+     */
+    private static void remove(int i)
+    {
+        int last = --_count;
+        _x[i] = _x[last];
+        _y[i] = _y[last];
+        _vx[i] = _vx[last];
+        _vy[i] = _vy[last];
+        _life[i] = _life[last];
+    }
+}
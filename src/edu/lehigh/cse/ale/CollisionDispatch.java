@@ -0,0 +1,271 @@
+package edu.lehigh.cse.ale;
+
+/**
+ * CollisionDispatch decides what code runs when two entities collide.
+ *
+ * Rather than have each entity's onCollide method figure out what it hit
+ * through a chain of type checks, we keep a table indexed by the types of the
+ * two entities. Each cell holds the handler for that pair of types, or null if
+ * nothing should happen. The entity with the smaller type is always passed to
+ * the handler first, which matches the old rule that the entity with the
+ * smaller type handles the collision.
+ *
+ * The table is rebuilt whenever a new level is created.
+ *
+ * @author spear
+ */
+public class CollisionDispatch
+{
+    /**
+     * Code to run when two entities of particular types collide
+     */
+    interface Handler
+    {
+        /**
+         * Handle a collision
+         *
+         * @param first
+         *            The entity with the smaller type
+         * @param second
+         *            The entity with the larger (or equal) type
+         */
+        void onCollide(PhysicsSprite first, PhysicsSprite second);
+    }
+
+    /**
+     * The number of entity types
+     */
+    static final int TYPE_COUNT = PhysicsSprite.TYPE_ENEMY_PROJECTILE + 1;
+
+    /**
+     * The handlers, indexed by [smaller type][larger type]
+     */
+    private static final Handler[][] _table = new Handler[TYPE_COUNT][TYPE_COUNT];
+
+    /**
+     * Let the first entity's onCollide method figure out what to do
+     */
+    private static final Handler FALLBACK = new Handler()
+    {
+        @Override
+        public void onCollide(PhysicsSprite first, PhysicsSprite second)
+        {
+            first.onCollide(second);
+        }
+    };
+
+    /**
+     * Heroes that hit other heroes, projectiles, and anything else without
+     * special behavior only need their rotation fixed
+     */
+    private static final Handler HERO_PLAIN = new Handler()
+    {
+        @Override
+        public void onCollide(PhysicsSprite first, PhysicsSprite second)
+        {
+            ((Hero) first).afterCollision();
+        }
+    };
+
+    /**
+     * Heroes that hit enemies
+     */
+    private static final Handler HERO_ENEMY = new Handler()
+    {
+        @Override
+        public void onCollide(PhysicsSprite first, PhysicsSprite second)
+        {
+            Hero h = (Hero) first;
+            h.onCollideWithEnemy((Enemy) second);
+            h.afterCollision();
+        }
+    };
+
+    /**
+     * Heroes that hit goodies
+     */
+    private static final Handler HERO_GOODIE = new Handler()
+    {
+        @Override
+        public void onCollide(PhysicsSprite first, PhysicsSprite second)
+        {
+            Hero h = (Hero) first;
+            h.onCollideWithGoodie((Goodie) second);
+            h.afterCollision();
+        }
+    };
+
+    /**
+     * Heroes that hit obstacles
+     */
+    private static final Handler HERO_OBSTACLE = new Handler()
+    {
+        @Override
+        public void onCollide(PhysicsSprite first, PhysicsSprite second)
+        {
+            Hero h = (Hero) first;
+            h.onCollideWithObstacle((Obstacle) second);
+            h.afterCollision();
+        }
+    };
+
+    /**
+     * Heroes that hit SVG lines
+     */
+    private static final Handler HERO_SVG = new Handler()
+    {
+        @Override
+        public void onCollide(PhysicsSprite first, PhysicsSprite second)
+        {
+            Hero h = (Hero) first;
+            h.onCollideWithSVG(second);
+            h.afterCollision();
+        }
+    };
+
+    /**
+     * Heroes that reach destinations
+     */
+    private static final Handler HERO_DESTINATION = new Handler()
+    {
+        @Override
+        public void onCollide(PhysicsSprite first, PhysicsSprite second)
+        {
+            Hero h = (Hero) first;
+            h.onCollideWithDestination((Destination) second);
+            h.afterCollision();
+        }
+    };
+
+    /**
+     * Heroes that get shot by enemies
+     */
+    private static final Handler HERO_ENEMY_PROJECTILE = new Handler()
+    {
+        @Override
+        public void onCollide(PhysicsSprite first, PhysicsSprite second)
+        {
+            Hero h = (Hero) first;
+            h.onCollideWithEnemyProjectile((EnemyProjectile) second);
+            h.afterCollision();
+        }
+    };
+
+    /**
+     * Enemies that get hit by projectiles
+     */
+    private static final Handler ENEMY_PROJECTILE = new Handler()
+    {
+        @Override
+        public void onCollide(PhysicsSprite first, PhysicsSprite second)
+        {
+            ((Enemy) first).onCollideWithProjectile((Projectile) second);
+        }
+    };
+
+    /**
+     * Enemies that hit obstacles
+     */
+    private static final Handler ENEMY_OBSTACLE = new Handler()
+    {
+        @Override
+        public void onCollide(PhysicsSprite first, PhysicsSprite second)
+        {
+            ((Enemy) first).onCollideWithObstacle((Obstacle) second);
+        }
+    };
+
+    /**
+     * Projectiles that hit anything that doesn't handle projectiles itself
+     */
+    private static final Handler PROJECTILE_ANY = new Handler()
+    {
+        @Override
+        public void onCollide(PhysicsSprite first, PhysicsSprite second)
+        {
+            ((Projectile) first).onCollide(second);
+        }
+    };
+
+    /**
+     * Prevent this object from ever being created directly... it is a pure
+     * static class
+     */
+    private CollisionDispatch()
+    {
+    }
+
+    /**
+     * Call this whenever we create a new level, to put the standard handlers
+     * into the table
+     */
+    static void onNewLevel()
+    {
+        for (int i = 0; i < TYPE_COUNT; ++i)
+            for (int j = 0; j < TYPE_COUNT; ++j)
+                _table[i][j] = null;
+
+        // we don't know anything about untyped entities, so let them decide
+        for (int j = 0; j < TYPE_COUNT; ++j)
+            register(PhysicsSprite.TYPE_UNKNOWN, j, FALLBACK);
+
+        // heroes
+        for (int j = PhysicsSprite.TYPE_HERO; j < TYPE_COUNT; ++j)
+            register(PhysicsSprite.TYPE_HERO, j, HERO_PLAIN);
+        register(PhysicsSprite.TYPE_HERO, PhysicsSprite.TYPE_ENEMY, HERO_ENEMY);
+        register(PhysicsSprite.TYPE_HERO, PhysicsSprite.TYPE_GOODIE, HERO_GOODIE);
+        register(PhysicsSprite.TYPE_HERO, PhysicsSprite.TYPE_OBSTACLE, HERO_OBSTACLE);
+        register(PhysicsSprite.TYPE_HERO, PhysicsSprite.TYPE_SVG, HERO_SVG);
+        register(PhysicsSprite.TYPE_HERO, PhysicsSprite.TYPE_DESTINATION, HERO_DESTINATION);
+        register(PhysicsSprite.TYPE_HERO, PhysicsSprite.TYPE_ENEMY_PROJECTILE, HERO_ENEMY_PROJECTILE);
+
+        // enemies
+        register(PhysicsSprite.TYPE_ENEMY, PhysicsSprite.TYPE_PROJECTILE, ENEMY_PROJECTILE);
+        register(PhysicsSprite.TYPE_ENEMY, PhysicsSprite.TYPE_OBSTACLE, ENEMY_OBSTACLE);
+
+        // projectiles
+        for (int j = PhysicsSprite.TYPE_PROJECTILE; j < TYPE_COUNT; ++j)
+            register(PhysicsSprite.TYPE_PROJECTILE, j, PROJECTILE_ANY);
+
+        // goodies, obstacles, SVG lines, destinations, and enemy projectiles
+        // don't do anything on their own when they collide
+    }
+
+    /**
+     * Internal method to set the handler for a pair of types
+     *
+     * @param typeA
+     *            The type of one entity
+     * @param typeB
+     *            The type of the other entity
+     * @param handler
+     *            The handler to run, or null if nothing should happen
+     */
+    static void register(int typeA, int typeB, Handler handler)
+    {
+        if (typeA > typeB)
+            _table[typeB][typeA] = handler;
+        else
+            _table[typeA][typeB] = handler;
+    }
+
+    /**
+     * Internal method to run the handler for a collision
+     *
+     * @param a
+     *            One entity involved in the collision
+     * @param b
+     *            The other entity involved in the collision
+     */
+    static void dispatch(PhysicsSprite a, PhysicsSprite b)
+    {
+        if (a.myType > b.myType) {
+            PhysicsSprite tmp = a;
+            a = b;
+            b = tmp;
+        }
+        Handler h = _table[a.myType][b.myType];
+        if (h != null)
+            h.onCollide(a, b);
+    }
+}
@@ -19,7 +19,7 @@ public class Configuration
      */
     static int getCameraHeight()
     {
-        return Integer.parseInt(ALE.self().getString(R.string.game_camera_height));
+        return Integer.parseInt(Platform.current().getString(R.string.game_camera_height));
     }
 
     /**
@@ -29,7 +29,7 @@ public class Configuration
      */
     static int getCameraWidth()
     {
-        return Integer.parseInt(ALE.self().getString(R.string.game_camera_width));
+        return Integer.parseInt(Platform.current().getString(R.string.game_camera_width));
     }
 
     /**
@@ -39,7 +39,7 @@ public class Configuration
      */
     static ScreenOrientation getCameraOrientation()
     {
-        String s = ALE.self().getString(R.string.game_orientation);
+        String s = Platform.current().getString(R.string.game_orientation);
         if (s.equals("portrait"))
             return ScreenOrientation.PORTRAIT_FIXED;
         else
@@ -53,7 +53,7 @@ public class Configuration
      */
     static int getNumLevels()
     {
-        return Integer.parseInt(ALE.self().getString(R.string.game_levels));
+        return Integer.parseInt(Platform.current().getString(R.string.game_levels));
     }
 
     /**
@@ -63,7 +63,7 @@ public class Configuration
      */
     static int getHelpScenes()
     {
-        return Integer.parseInt(ALE.self().getString(R.string.game_help_scenes));
+        return Integer.parseInt(Platform.current().getString(R.string.game_help_scenes));
     }
 
     /**
@@ -71,7 +71,7 @@ public class Configuration
      */
     static String getTitle()
     {
-        return ALE.self().getString(R.string.game_title);
+        return Platform.current().getString(R.string.game_title);
     }
 
     /**
@@ -79,7 +79,7 @@ public class Configuration
      */
     static String getPlayButtonText()
     {
-        return ALE.self().getString(R.string.play_button_text);
+        return Platform.current().getString(R.string.play_button_text);
     }
 
     /**
@@ -87,7 +87,7 @@ public class Configuration
      */
     static String getHelpButtonText()
     {
-        return ALE.self().getString(R.string.help_button_text);
+        return Platform.current().getString(R.string.help_button_text);
     }
 
     /**
@@ -95,7 +95,7 @@ public class Configuration
      */
     static String getQuitButtonText()
     {
-        return ALE.self().getString(R.string.quit_button_text);
+        return Platform.current().getString(R.string.quit_button_text);
     }
 
     /**
@@ -104,7 +104,7 @@ public class Configuration
      */
     static String getSplashBackground()
     {
-        return ALE.self().getString(R.string.main_screen_background);
+        return Platform.current().getString(R.string.main_screen_background);
     }
 
     /**
@@ -113,7 +113,7 @@ public class Configuration
      */
     static boolean isDeveloperOverride()
     {
-        return ALE.self().getString(R.string.developer_unlock).equals("TRUE");
+        return Platform.current().getString(R.string.developer_unlock).equals("TRUE");
     }
 
     /**
@@ -121,6 +121,6 @@ public class Configuration
      */
     static boolean isVibrationOn()
     {
-        return ALE.self().getString(R.string.enable_vibration).equals("TRUE");
+        return Platform.current().getString(R.string.enable_vibration).equals("TRUE");
     }
 }
@@ -0,0 +1,250 @@
+package edu.lehigh.cse.ale;
+
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Manifold;
+
+/**
+ * The ContactQueue holds the collisions reported by Box2D during a physics step
+ * until the step is over.
+ *
+ * We can't handle a collision while Box2D is stepping, because our collision
+ * code changes the physics world (for example, by deactivating bodies), and that
+ * can crash Box2D. Instead, each contact is recorded as a pair of entities in a
+ * preallocated ring, and right after the step the whole ring is drained in one
+ * pass. If the same pair of entities is reported more than once before the
+ * ring is drained, it is only handled once: waiting pairs are also kept in a
+ * small hash table, so that a duplicate is found without scanning the ring.
+ * If the ring fills up, further contacts are dropped and counted.
+ *
+ * @author spear
+ */
+public class ContactQueue
+{
+    /**
+     * The contact listener for every level's physics world. When a contact
+     * begins, it queues the two entities so that the more important one can
+     * manage the collision once the step is over.
+     */
+    static final ContactListener listener = new ContactListener()
+    {
+        @Override
+        public void beginContact(Contact contact)
+        {
+            // get the two objects' userdata
+            Object a = contact.getFixtureA().getBody().getUserData();
+            Object b = contact.getFixtureB().getBody().getUserData();
+
+            // we only do more if both are PhysicsSprites
+            if (!(a instanceof PhysicsSprite) || !(b instanceof PhysicsSprite))
+                return;
+            Trace.record(Trace.CONTACT, ((PhysicsSprite) a).myType, ((PhysicsSprite) b).myType, 0);
+
+            // NB: we can't actually do this work while box2d is stepping, or
+            // else box2d might crash. Instead, we queue the pair, and the queue
+            // is drained on the update thread as soon as the step finishes.
+            push((PhysicsSprite) a, (PhysicsSprite) b);
+        }
+
+        @Override
+        public void endContact(Contact contact)
+        {
+        }
+
+        @Override
+        public void preSolve(Contact contact, Manifold oldManifold)
+        {
+        }
+
+        @Override
+        public void postSolve(Contact contact, ContactImpulse impulse)
+        {
+        }
+    };
+
+    /**
+     * The most contacts that can be waiting at once
+     */
+    static final int CAPACITY = 256;
+
+    /**
+     * The first entity of each waiting contact
+     */
+    private static final PhysicsSprite[] _first = new PhysicsSprite[CAPACITY];
+
+    /**
+     * The second entity of each waiting contact
+     */
+    private static final PhysicsSprite[] _second = new PhysicsSprite[CAPACITY];
+
+    /**
+     * The number of bits in a slot of the hash table of waiting pairs
+     */
+    private static final int TABLE_BITS = 9;
+
+    /**
+     * The number of slots in the hash table, which is at least twice CAPACITY,
+     * so that probes stay short
+     */
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+
+    /**
+     * The ring index of the pair in each slot of the hash table
+     */
+    private static final int[] _slots = new int[TABLE_SIZE];
+
+    /**
+     * The generation in which each slot of the hash table was filled. Slots
+     * from an older generation are empty, so the table is emptied just by
+     * starting a new generation.
+     */
+    private static final int[] _slotGenerations = new int[TABLE_SIZE];
+
+    /**
+     * The current generation of the hash table
+     */
+    private static int _generation = 1;
+
+    /**
+     * Index of the oldest waiting contact
+     */
+    private static int _head;
+
+    /**
+     * Number of waiting contacts
+     */
+    private static int _count;
+
+    /**
+     * Number of contacts dropped because the ring was full
+     */
+    private static int _overflows;
+
+    /**
+     * Number of contacts ignored because the same pair was already waiting
+     */
+    private static int _duplicates;
+
+    /**
+     * Prevent this object from ever being created directly... it is a pure
+     * static class
+     */
+    private ContactQueue()
+    {
+    }
+
+    /**
+     * Call this whenever we create a new level, to forget any old contacts
+     */
+    static void onNewLevel()
+    {
+        clear();
+        _overflows = 0;
+        _duplicates = 0;
+    }
+
+    /**
+     * Internal method to record a contact. This is called from within the
+     * physics step, so it must not change the physics world.
+     *
+     * @param a
+     *            One entity involved in the contact
+     * @param b
+     *            The other entity involved in the contact
+     */
+    static void push(PhysicsSprite a, PhysicsSprite b)
+    {
+        // suppress duplicates of a pair that is already waiting. The hash
+        // doesn't depend on the order of the pair.
+        int slot = ((System.identityHashCode(a) ^ System.identityHashCode(b)) * 0x9E3779B9) >>> (32 - TABLE_BITS);
+        while (_slotGenerations[slot] == _generation) {
+            int idx = _slots[slot];
+            if ((_first[idx] == a && _second[idx] == b) || (_first[idx] == b && _second[idx] == a)) {
+                _duplicates++;
+                return;
+            }
+            slot = (slot + 1) & (TABLE_SIZE - 1);
+        }
+        if (_count == CAPACITY) {
+            _overflows++;
+            return;
+        }
+        int tail = (_head + _count) % CAPACITY;
+        _first[tail] = a;
+        _second[tail] = b;
+        _count++;
+        _slots[slot] = tail;
+        _slotGenerations[slot] = _generation;
+    }
+
+    /**
+     * Internal method to handle all of the waiting contacts. This must be
+     * called on the update thread, after the physics step.
+     */
+    static void drain()
+    {
+        while (_count > 0) {
+            PhysicsSprite a = _first[_head];
+            PhysicsSprite b = _second[_head];
+            _first[_head] = null;
+            _second[_head] = null;
+            _head = (_head + 1) % CAPACITY;
+            _count--;
+            CollisionDispatch.dispatch(a, b);
+        }
+        _head = 0;
+        emptyTable();
+    }
+
+    /**
+     * Internal method to throw away all waiting contacts
+     */
+    private static void clear()
+    {
+        for (int i = 0; i < CAPACITY; ++i) {
+            _first[i] = null;
+            _second[i] = null;
+        }
+        _head = 0;
+        _count = 0;
+        emptyTable();
+    }
+
+    /**
+     * Internal method to empty the hash table of waiting pairs, by starting a
+     * new generation
+     */
+    private static void emptyTable()
+    {
+        _generation++;
+        // on the rare wrap around, old slots could look current again
+        if (_generation == 0) {
+            for (int i = 0; i < TABLE_SIZE; ++i)
+                _slotGenerations[i] = 0;
+            _generation = 1;
+        }
+    }
+
+    /**
+     * Report the number of contacts that were dropped in this level because
+     * too many happened during one physics step
+     *
+     * @return The number of dropped contacts
+     */
+    public static int getOverflowCount()
+    {
+        return _overflows;
+    }
+
+    /**
+     * Report the number of contacts in this level that were ignored because
+     * the same pair of entities was already waiting to be handled
+     *
+     * @return The number of duplicate contacts
+     */
+    public static int getDuplicateCount()
+    {
+        return _duplicates;
+    }
+}
@@ -1,8 +1,7 @@
 package edu.lehigh.cse.ale;
 
 import org.andengine.engine.camera.hud.HUD;
-import org.andengine.engine.handler.timer.ITimerCallback;
-import org.andengine.engine.handler.timer.TimerHandler;
+import org.andengine.engine.handler.IUpdateHandler;
 import org.andengine.entity.sprite.AnimatedSprite;
 import org.andengine.entity.text.Text;
 import org.andengine.input.touch.TouchEvent;
@@ -59,7 +58,8 @@ public class Controls
     static void resetHUD()
     {
         hud = new HUD();
-        ALE.self()._camera.setHUD(hud);
+        Platform.current().getCamera().setHUD(hud);
+        HudCounter.reset();
     }
 
     /**
@@ -136,7 +136,7 @@ public class Controls
         timeUpText = text;
         // figure out how much time between right now, and when the program
         // started.
-        timerDelta = ALE.self().getEngine().getSecondsElapsedTotal();
+        timerDelta = Platform.current().getSecondsElapsedTotal();
 
         // record how many seconds to complete this level
         final float countdownFrom = timeout;
@@ -145,31 +145,36 @@ public class Controls
         timeractive = true;
 
         // make the text object to display
-        final Text elapsedText = new Text(x, y, f, "", "XXXX".length(), ALE.self().getVertexBufferObjectManager());
+        Text elapsedText = new Text(x, y, f, "", HudCounter.MAX_DIGITS,
+                Platform.current().getVertexBufferObjectManager());
+        final HudCounter counter = new HudCounter(elapsedText, "");
 
-        // set up an autoupdate for the time every .05 seconds
-        TimerHandler HUDTimer = new TimerHandler(1 / 20.0f, true, new ITimerCallback()
+        // check the time every frame; the text only changes once a second
+        Level.current.registerUpdateHandler(new IUpdateHandler()
         {
             @Override
-            public void onTimePassed(TimerHandler pTimerHandler)
+            public void onUpdate(float pSecondsElapsed)
             {
                 // get the elapsed time for this level
-                float newtext = ALE.self().getEngine().getSecondsElapsedTotal() - timerDelta;
+                float newtext = Platform.current().getSecondsElapsedTotal() - timerDelta;
                 newtext = countdownFrom - newtext;
                 // figure out if time is up
                 if (newtext < 0) {
                     newtext = 0;
-                    ALE.self().menuManager.loseLevel(timeUpText);
+                    Platform.current().loseLevel(timeUpText);
                 }
                 // update the text
-                if (timeractive)
-                    elapsedText.setText("" + (int) newtext);
+                counter.show((int) newtext);
+            }
+
+            @Override
+            public void reset()
+            {
             }
         });
-        Level.current.registerUpdateHandler(HUDTimer);
 
         // Add the text to the HUD
-        ALE.self()._camera.getHUD().attachChild(elapsedText);
+        Platform.current().getCamera().getHUD().attachChild(elapsedText);
     }
 
     /**
@@ -239,7 +244,8 @@ public class Controls
             final PhysicsSprite entity)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager())
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager())
         {
             @Override
             public boolean onAreaTouched(TouchEvent e, float x, float y)
@@ -331,7 +337,8 @@ public class Controls
             final PhysicsSprite entity)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager())
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager())
         {
             @Override
             public boolean onAreaTouched(TouchEvent e, float x, float y)
@@ -423,7 +430,8 @@ public class Controls
             final PhysicsSprite entity)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager())
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager())
         {
             @Override
             public boolean onAreaTouched(TouchEvent e, float x, float y)
@@ -518,7 +526,8 @@ public class Controls
             final PhysicsSprite entity)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager())
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager())
         {
             @Override
             public boolean onAreaTouched(TouchEvent e, float x, float y)
@@ -627,30 +636,19 @@ public class Controls
         // turn on the timer
         timeractive = true;
 
-        final String suffix = (max > 0) ? "/" + max + " " + goodieText : " " + goodieText;
+        String suffix = (max > 0) ? "/" + max + " " + goodieText : " " + goodieText;
 
         // make the text object to display
-        final Text elapsedText = new Text(x, y, f, "", ("XXX/XXX " + goodieText).length(), ALE.self()
+        Text elapsedText = new Text(x, y, f, "", HudCounter.MAX_DIGITS + suffix.length(), Platform.current()
                 .getVertexBufferObjectManager());
 
-        // set up an autoupdate for the time every .05 seconds
-        TimerHandler HUDTimer = new TimerHandler(1 / 20.0f, true, new ITimerCallback()
-        {
-            @Override
-            public void onTimePassed(TimerHandler pTimerHandler)
-            {
-                // get elapsed time for this level
-                String newtext = "" + Goodie.goodiescollected + suffix;
-
-                // update the text
-                if (timeractive)
-                    elapsedText.setText(newtext);
-            }
-        });
-        Level.current.registerUpdateHandler(HUDTimer);
+        // the text is rebuilt whenever the count changes
+        HudCounter counter = new HudCounter(elapsedText, suffix);
+        HudCounter.attach(HudCounter.GOODIES, counter);
+        counter.show(Goodie.goodiescollected);
 
         // add the text to the hud
-        ALE.self()._camera.getHUD().attachChild(elapsedText);
+        Platform.current().getCamera().getHUD().attachChild(elapsedText);
     }
 
     /**
@@ -724,30 +722,19 @@ public class Controls
         // turn on the timer
         timeractive = true;
 
-        final String suffix = (max > 0) ? "/" + max + " " + defeatedText : " " + defeatedText;
+        String suffix = (max > 0) ? "/" + max + " " + defeatedText : " " + defeatedText;
 
         // make the text object to display
-        final Text elapsedText = new Text(x, y, f, "", ("XXX/XXX " + defeatedText).length(), ALE.self()
+        Text elapsedText = new Text(x, y, f, "", HudCounter.MAX_DIGITS + suffix.length(), Platform.current()
                 .getVertexBufferObjectManager());
 
-        // set up an autoupdate for the time every .05 seconds
-        TimerHandler HUDTimer = new TimerHandler(1 / 20.0f, true, new ITimerCallback()
-        {
-            @Override
-            public void onTimePassed(TimerHandler pTimerHandler)
-            {
-                // get elapsed time for this level
-                String newtext = "" + Enemy.enemiesDefeated + suffix;
-
-                // update the text
-                if (timeractive)
-                    elapsedText.setText(newtext);
-            }
-        });
-        Level.current.registerUpdateHandler(HUDTimer);
+        // the text is rebuilt whenever the count changes
+        HudCounter counter = new HudCounter(elapsedText, suffix);
+        HudCounter.attach(HudCounter.DEFEATED, counter);
+        counter.show(Enemy.enemiesDefeated);
 
         // add the text to the hud
-        ALE.self()._camera.getHUD().attachChild(elapsedText);
+        Platform.current().getCamera().getHUD().attachChild(elapsedText);
     }
 
     /**
@@ -768,7 +755,8 @@ public class Controls
     public static void addCrawlButton(int x, int y, int width, int height, String imgName)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager())
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager())
         {
             @Override
             public boolean onAreaTouched(TouchEvent e, float x, float y)
@@ -806,7 +794,8 @@ public class Controls
     public static void addJumpButton(int x, int y, int width, int height, String imgName)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager())
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager())
         {
             @Override
             public boolean onAreaTouched(TouchEvent e, float x, float y)
@@ -836,7 +825,8 @@ public class Controls
     public static void addThrowButton(int x, int y, int width, int height, String imgName)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager())
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager())
         {
             @Override
             public boolean onAreaTouched(TouchEvent e, float x, float y)
@@ -867,7 +857,8 @@ public class Controls
     public static void addSingleThrowButton(int x, int y, int width, int height, String imgName)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager())
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager())
         {
             @Override
             public boolean onAreaTouched(TouchEvent e, float x, float y)
@@ -903,7 +894,8 @@ public class Controls
     public static void addVectorSingleThrowButton(int x, int y, int width, int height, String imgName)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager())
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager())
         {
             @Override
             public boolean onAreaTouched(TouchEvent e, float x, float y)
@@ -911,8 +903,8 @@ public class Controls
                 if (!e.isActionDown())
                     return false;
                 // move the x,y coordinates based on the camera center
-                x = x + ALE.self()._camera.getCenterX() - Configuration.getCameraWidth() / 2;
-                y = y + ALE.self()._camera.getCenterY() - Configuration.getCameraHeight() / 2;
+                x = x + Platform.current().getCamera().getCenterX() - Configuration.getCameraWidth() / 2;
+                y = y + Platform.current().getCamera().getCenterY() - Configuration.getCameraHeight() / 2;
                 Projectile.throwAt(Hero.lastHero.getSprite().getX(), Hero.lastHero.getSprite().getY(), x, y);
                 return true;
             }
@@ -943,14 +935,15 @@ public class Controls
     public static void addVectorThrowButton(int x, int y, int width, int height, String imgName)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager())
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager())
         {
             @Override
             public boolean onAreaTouched(TouchEvent e, float x, float y)
             {
                 // move the x,y coordinates based on the camera center
-                x = x + ALE.self()._camera.getCenterX() - Configuration.getCameraWidth() / 2;
-                y = y + ALE.self()._camera.getCenterY() - Configuration.getCameraHeight() / 2;
+                x = x + Platform.current().getCamera().getCenterX() - Configuration.getCameraWidth() / 2;
+                y = y + Platform.current().getCamera().getCenterY() - Configuration.getCameraHeight() / 2;
                 Projectile.throwAt(Hero.lastHero.getSprite().getX(), Hero.lastHero.getSprite().getY(), x, y);
                 return true;
             }
@@ -1014,32 +1007,37 @@ public class Controls
     {
         // figure out how much time between right now, and when the program
         // started
-        timerDelta = ALE.self().getEngine().getSecondsElapsedTotal();
+        timerDelta = Platform.current().getSecondsElapsedTotal();
 
         // turn on the timer
         timeractive = true;
 
         // make the text object to display
-        final Text elapsedText = new Text(x, y, f, "", "XXXX".length(), ALE.self().getVertexBufferObjectManager());
+        Text elapsedText = new Text(x, y, f, "", HudCounter.MAX_DIGITS,
+                Platform.current().getVertexBufferObjectManager());
+        final HudCounter counter = new HudCounter(elapsedText, "");
 
-        // set up an autoupdate for the time every .05 seconds
-        TimerHandler HUDTimer = new TimerHandler(1 / 20.0f, true, new ITimerCallback()
+        // check the time every frame; the text only changes once a second
+        Level.current.registerUpdateHandler(new IUpdateHandler()
         {
             @Override
-            public void onTimePassed(TimerHandler pTimerHandler)
+            public void onUpdate(float pSecondsElapsed)
             {
                 // get elapsed time for this level
-                float newtext = ALE.self().getEngine().getSecondsElapsedTotal() - timerDelta;
+                float newtext = Platform.current().getSecondsElapsedTotal() - timerDelta;
 
                 // update the text
-                if (timeractive)
-                    elapsedText.setText("" + (int) newtext);
+                counter.show((int) newtext);
+            }
+
+            @Override
+            public void reset()
+            {
             }
         });
-        Level.current.registerUpdateHandler(HUDTimer);
 
         // add the text to the hud
-        ALE.self()._camera.getHUD().attachChild(elapsedText);
+        Platform.current().getCamera().getHUD().attachChild(elapsedText);
     }
 
     /**
@@ -1108,30 +1106,57 @@ public class Controls
         timeractive = true;
 
         // make the text object to display
-        final Text elapsedText = new Text(x, y, f, "", ("XXXX " + strengthText).length(), ALE.self()
+        Text elapsedText = new Text(x, y, f, "", HudCounter.MAX_DIGITS + 1 + strengthText.length(), Platform.current()
                 .getVertexBufferObjectManager());
 
-        // set up an autoupdate for the time every .05 seconds
-        TimerHandler HUDTimer = new TimerHandler(1 / 20.0f, true, new ITimerCallback()
+        // the text is rebuilt whenever the most recent hero's strength
+        // changes
+        HudCounter counter = new HudCounter(elapsedText, " " + strengthText);
+        HudCounter.attach(HudCounter.STRENGTH, counter);
+        Hero h = Hero.lastHero;
+        counter.show(h == null ? 0 : h.strength);
+
+        // add the text to the hud
+        Platform.current().getCamera().getHUD().attachChild(elapsedText);
+    }
+
+    /**
+     * Display how much texture memory is in use, in kilobytes. This is meant
+     * for debugging: TextureStats can report the details.
+     * 
+     * @param x
+     *            The x coordinate where the text should be drawn
+     * @param y
+     *            The y coordinate where the text should be drawn
+     */
+    static public void addTextureMeter(int x, int y)
+    {
+        // turn on the timer
+        timeractive = true;
+
+        // make the text object to display
+        final String suffix = " KB of textures";
+        Text memoryText = new Text(x, y, Util.makeFont(255, 255, 255, 20), "", HudCounter.MAX_DIGITS
+                + suffix.length(), Platform.current().getVertexBufferObjectManager());
+        final HudCounter counter = new HudCounter(memoryText, suffix);
+
+        // check the total every frame; the text only changes with it
+        Level.current.registerUpdateHandler(new IUpdateHandler()
         {
             @Override
-            public void onTimePassed(TimerHandler pTimerHandler)
+            public void onUpdate(float pSecondsElapsed)
             {
-                // get hero strength
-                Hero h = Hero.lastHero;
-                String newtext = "0";
-                if (h != null)
-                    newtext = "" + Hero.lastHero.strength;
+                counter.show((int) (TextureStats.getLoadedBytes() / 1024));
+            }
 
-                // update the text
-                if (timeractive)
-                    elapsedText.setText(newtext + " " + strengthText);
+            @Override
+            public void reset()
+            {
             }
         });
-        Level.current.registerUpdateHandler(HUDTimer);
 
         // add the text to the hud
-        ALE.self()._camera.getHUD().attachChild(elapsedText);
+        Platform.current().getCamera().getHUD().attachChild(memoryText);
     }
 
     /**
@@ -1153,15 +1178,16 @@ public class Controls
     public static void addZoomInButton(int x, int y, int width, int height, String imgName, final float maxZoom)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager())
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager())
         {
             @Override
             public boolean onAreaTouched(TouchEvent e, float x, float y)
             {
                 if (e.getAction() == MotionEvent.ACTION_DOWN) {
-                    float curr_zoom = ALE.self()._camera.getZoomFactor();
+                    float curr_zoom = Platform.current().getCamera().getZoomFactor();
                     if (curr_zoom < maxZoom)
-                        ALE.self()._camera.setZoomFactor(curr_zoom * 2);
+                        Platform.current().getCamera().setZoomFactor(curr_zoom * 2);
                     return true;
                 }
                 return false;
@@ -1190,15 +1216,16 @@ public class Controls
     public static void addZoomOutButton(int x, int y, int width, int height, String imgName, final float minZoom)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager())
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager())
         {
             @Override
             public boolean onAreaTouched(TouchEvent e, float x, float y)
             {
                 if (e.getAction() == MotionEvent.ACTION_DOWN) {
-                    float curr_zoom = ALE.self()._camera.getZoomFactor();
+                    float curr_zoom = Platform.current().getCamera().getZoomFactor();
                     if (curr_zoom > minZoom)
-                        ALE.self()._camera.setZoomFactor(curr_zoom / 2);
+                        Platform.current().getCamera().setZoomFactor(curr_zoom / 2);
                     return true;
                 }
                 return false;
@@ -1227,7 +1254,8 @@ public class Controls
     public static void addRotateButton(int x, int y, int width, int height, String imgName, final float rate)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager())
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager())
         {
             @Override
             public boolean onAreaTouched(TouchEvent e, float x, float y)
@@ -1266,29 +1294,18 @@ public class Controls
         // turn on the timer
         timeractive = true;
 
-        final String suffix = " " + text;
+        String suffix = " " + text;
 
         // make the text object to display
-        final Text elapsedText = new Text(x, y, f, "", ("XXXX" + suffix).length(), ALE.self()
+        Text elapsedText = new Text(x, y, f, "", HudCounter.MAX_DIGITS + suffix.length(), Platform.current()
                 .getVertexBufferObjectManager());
 
-        // set up an autoupdate for the time every .05 seconds
-        TimerHandler HUDTimer = new TimerHandler(1 / 20.0f, true, new ITimerCallback()
-        {
-            @Override
-            public void onTimePassed(TimerHandler pTimerHandler)
-            {
-                // get number of remaining projectiles
-                String newtext = "" + Projectile.projectilesRemaining + suffix;
-
-                // update the text
-                if (timeractive)
-                    elapsedText.setText(newtext);
-            }
-        });
-        Level.current.registerUpdateHandler(HUDTimer);
+        // the text is rebuilt whenever a projectile is thrown
+        HudCounter counter = new HudCounter(elapsedText, suffix);
+        HudCounter.attach(HudCounter.PROJECTILES, counter);
+        counter.show(Projectile.projectilesRemaining);
 
         // add the text to the hud
-        ALE.self()._camera.getHUD().attachChild(elapsedText);
+        Platform.current().getCamera().getHUD().attachChild(elapsedText);
     }
 }
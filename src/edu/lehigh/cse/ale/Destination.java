@@ -1,6 +1,5 @@
 package edu.lehigh.cse.ale;
 
-import org.andengine.audio.sound.Sound;
 import org.andengine.opengl.texture.region.TiledTextureRegion;
 
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
@@ -37,7 +36,7 @@ public class Destination extends PhysicsSprite
     /**
      * Sound to play when a hero arrives at this destination
      */
-    private Sound arrivalSound;
+    private SoundEffect arrivalSound;
 
     /**
      * Specify the sound to play when a hero arrives at this destination
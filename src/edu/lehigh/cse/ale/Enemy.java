@@ -1,12 +1,11 @@
 package edu.lehigh.cse.ale;
 
-import org.andengine.engine.handler.timer.ITimerCallback;
-import org.andengine.engine.handler.timer.TimerHandler;
+import java.util.ArrayList;
+
 import org.andengine.input.touch.TouchEvent;
 import org.andengine.opengl.texture.region.TiledTextureRegion;
 
 import android.util.FloatMath;
-import android.util.Log;
 
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
@@ -38,6 +37,22 @@ public class Enemy extends PhysicsSprite
      */
     static int enemiesDefeated;
 
+    /**
+     * The enemies made in this level. Enemies that have been reclaimed are
+     * removed by the SpatialGrid.
+     */
+    static final ArrayList<Enemy> liveEnemies = new ArrayList<Enemy>();
+
+    /**
+     * The SpatialGrid cell that this enemy is in, or -1
+     */
+    int gridCell = -1;
+
+    /**
+     * The enemies before and after this one in its SpatialGrid cell
+     */
+    Enemy gridPrev, gridNext;
+
     /**
      * Image used for this enemy
      */
@@ -146,10 +161,15 @@ public class Enemy extends PhysicsSprite
      */
     boolean isTrigger;
     
-    private String enemyType = "";
-    
-    private int bossDamageCount = 0;
-    
+    /**
+     * The kinds of enemies that the factories can make: regular enemies, and
+     * bosses that take many hits to defeat
+     */
+    public enum Archetype
+    {
+        REGULAR, BOSS
+    }
+
     public boolean shouldShoot = true;
 
     /**
@@ -250,6 +270,7 @@ public class Enemy extends PhysicsSprite
         chaseMultiplier = 0;
         lastOSMU = 0;
         enemiesCreated++;
+        liveEnemies.add(this);
         // record information so we can reproduce this enemy if needed
         onDefeatHeroText = "";
         _ttr = ttr;
@@ -268,18 +289,56 @@ public class Enemy extends PhysicsSprite
             setCirclePhysics(density, elasticity, friction, bt, false, false, true);
     }
     
-    protected Enemy(int x, int y, int width, int height, TiledTextureRegion ttr, boolean stationary, float density,
-            float elasticity, float friction, boolean isBox, String enemyType) {
-    	this(x, y, width, height, ttr, stationary, density,
-            elasticity, friction, isBox);
-    	this.enemyType = enemyType;
+
+    /**
+     * Internal method to make an enemy of the given archetype
+     * 
+     * @param x
+     *            X coordinate of top left corner
+     * @param y
+     *            Y coordinate of top left corner
+     * @param width
+     *            Width of enemy
+     * @param height
+     *            Height of enemy
+     * @param imgName
+     *            Name of image to display
+     * @param stationary
+     *            Is the enemy stationary or can it move?
+     * @param density
+     *            Density of the obstacle. When in doubt, use 1
+     * @param elasticity
+     *            Elasticity of the obstacle. When in doubt, use 0
+     * @param friction
+     *            Friction of the obstacle. When in doubt, use 1
+     * @param isBox
+     *            Does the enemy have a box shape, instead of a circle?
+     * @param archetype
+     *            The kind of enemy to make
+     * @return the enemy, already attached to the current level
+     */
+    private static Enemy make(int x, int y, int width, int height, String imgName, boolean stationary,
+            float density, float elasticity, float friction, boolean isBox, Archetype archetype)
+    {
+        TiledTextureRegion ttr = Media.getImage(imgName);
+        Enemy enemy;
+        if (archetype == Archetype.BOSS)
+            enemy = new BossEnemy(x, y, width, height, ttr, stationary, density, elasticity, friction, isBox);
+        else
+            enemy = new Enemy(x, y, width, height, ttr, stationary, density, elasticity, friction, isBox);
+        Level.current.attachChild(enemy.getSprite());
+        return enemy;
     }
 
     /**
      * Collision behavior of enemies. Based on our PhysicsSprite numbering
      * scheme, the only concerns are to ensure that when a bullet hits this
      * enemy, we remove the enemy and hide the bullet, and to handle collisions
-     * with SubClass obstacles
+     * with SubClass obstacles.
+     * 
+     * Collisions are normally routed straight to onCollideWithProjectile or
+     * onCollideWithObstacle by CollisionDispatch; this is only used for pairs
+     * that have no handler of their own.
      * 
      * @param other
      *            The other entity involved in the collision
@@ -287,69 +346,133 @@ public class Enemy extends PhysicsSprite
     @Override
     void onCollide(PhysicsSprite other)
     {
-        // handle bullets
-        if (other.myType == PhysicsSprite.TYPE_PROJECTILE) {
-            // compute damage to determine if the enemy is dead
-        	if (enemyType == "boss") {
-        		damage -= Projectile._strength/20;
-        	}
-        	else {
-        		damage -= Projectile._strength;
-        	}
-            if (damage <= 0) {
-                // remove this enemy
-                enemiesDefeated++;
-                getSprite().setVisible(false);
-                //vanish(false);
-                //physBody.setActive(false);
-                // hide the bullet quietly, so that the sound of the enemy can
-                // be heard
-                //other.vanish(true);
-                //other.physBody.setActive(false);
-                // handle triggers
-                if (isTrigger)
-                    ALE.self().onEnemyTrigger(Goodie.goodiescollected, triggerID, MenuManager._currLevel);
-            }
-            else {
-                // hide the bullet
-                other.vanish(true);
-                other.physBody.setActive(false);
-            }
-            // check if this wins the level
-            if (Enemy.checkWinByDefeatEnemies()) {
-                ALE.self().menuManager.winLevel();
-            }
+        if (other.myType == PhysicsSprite.TYPE_PROJECTILE)
+            onCollideWithProjectile((Projectile) other);
+        else if (other.myType == PhysicsSprite.TYPE_OBSTACLE)
+            onCollideWithObstacle((Obstacle) other);
+    }
+
+    /**
+     * Internal method to figure out how much damage a projectile does to this
+     * enemy
+     * 
+     * @return the amount to subtract from this enemy's damage
+     */
+    int damageFromProjectile()
+    {
+        return Projectile._strength;
+    }
+
+    /**
+     * Internal method for handling a collision with a projectile: the enemy
+     * loses strength, and if it has none left it is removed. Otherwise the
+     * projectile is hidden.
+     * 
+     * @param other
+     *            The projectile that hit this enemy
+     */
+    void onCollideWithProjectile(Projectile other)
+    {
+        // compute damage to determine if the enemy is dead
+        damage -= damageFromProjectile();
+        if (damage <= 0) {
+            // remove this enemy
+            enemiesDefeated++;
+            HudCounter.publish(HudCounter.DEFEATED, enemiesDefeated);
+            getSprite().setVisible(false);
+            //vanish(false);
+            //physBody.setActive(false);
+            // hide the bullet quietly, so that the sound of the enemy can
+            // be heard
+            //other.vanish(true);
+            //other.physBody.setActive(false);
+            // handle triggers
+            if (isTrigger)
+                Game.current().onEnemyTrigger(Goodie.goodiescollected, triggerID, MenuManager._currLevel);
         }
-        // handle obstacles with a matching subclass
-        if (other.myType == PhysicsSprite.TYPE_OBSTACLE) {
-            Obstacle o = (Obstacle) other;
-            if ((mySubClass != 0) && (mySubClass == o.mySubClass)) {
-               	if (bossDamageCount < 20 && enemyType.equals("boss")) {
-            		bossDamageCount += 1;
-            		o.vanish(false);
-                    o.physBody.setActive(false);
-            	}
-            	if (!enemyType.equals("boss") || bossDamageCount == 20) {
-            		Log.v("wingdra-game","Destroying. Enemy type is " + enemyType + " and damage count is " + bossDamageCount);
-            		bossDamageCount = 0;
-	                // remove the enemy
-	                vanish(false);
-	                physBody.setActive(false);
-	                Enemy.enemiesDefeated++;
-	                if (Enemy.checkWinByDefeatEnemies()) {
-	                    ALE.self().menuManager.winLevel();
-	                }
-	                // hide the obstacle?
-	                if (o.disappearAfterDefeatEnemy) {
-	                    o.vanish(false);
-	                    o.physBody.setActive(false);
-	                }
-	                // handle triggers
-	                if (isTrigger)
-	                    ALE.self().onEnemyTrigger(Goodie.goodiescollected, triggerID, MenuManager._currLevel);
-	            }
-            }
+        else {
+            // hide the bullet
+            other.vanish(true);
+            other.physBody.setActive(false);
+        }
+        // check if this wins the level
+        if (Enemy.checkWinByDefeatEnemies()) {
+            Platform.current().winLevel();
+        }
+    }
+
+    /**
+     * Internal method for handling a collision with an obstacle: obstacles
+     * with a matching subclass defeat this enemy
+     * 
+     * @param o
+     *            The obstacle that hit this enemy
+     */
+    void onCollideWithObstacle(Obstacle o)
+    {
+        if (!isHurtBy(o.mySubClass))
+            return;
+        // hide the obstacle?
+        if (onHitByWeapon(o.disappearAfterDefeatEnemy)) {
+            o.vanish(false);
+            o.physBody.setActive(false);
+        }
+    }
+
+    /**
+     * Internal method to check whether a weapon of some subclass, such as a
+     * subclassed obstacle or a bullet in the BulletField, hurts this enemy
+     * 
+     * @param subClass
+     *            The subclass of the weapon
+     * @return true if the weapon hurts this enemy
+     */
+    boolean isHurtBy(int subClass)
+    {
+        return (mySubClass != 0) && (mySubClass == subClass);
+    }
+
+    /**
+     * Internal method to handle being hit by a weapon that hurts this enemy:
+     * an ordinary enemy is defeated right away
+     * 
+     * @param disappearAfterDefeat
+     *            Should the weapon disappear once it defeats an enemy?
+     * @return true if the weapon should disappear
+     */
+    boolean onHitByWeapon(boolean disappearAfterDefeat)
+    {
+        defeatByWeapon();
+        return disappearAfterDefeat;
+    }
+
+    /**
+     * Internal method to remove this enemy after a weapon with a matching
+     * subclass defeats it
+     */
+    void defeatByWeapon()
+    {
+        // remove the enemy
+        vanish(false);
+        physBody.setActive(false);
+        Enemy.enemiesDefeated++;
+        HudCounter.publish(HudCounter.DEFEATED, enemiesDefeated);
+        if (Enemy.checkWinByDefeatEnemies()) {
+            Platform.current().winLevel();
         }
+        // handle triggers
+        if (isTrigger)
+            Game.current().onEnemyTrigger(Goodie.goodiescollected, triggerID, MenuManager._currLevel);
+    }
+
+    /**
+     * Internal method to report the shape of this enemy's body
+     * 
+     * @return true for a box, false for a circle
+     */
+    boolean hasBoxShape()
+    {
+        return _isBox;
     }
 
     /**
@@ -409,70 +532,90 @@ public class Enemy extends PhysicsSprite
         reproductions = numReproductions;
         reproduceDuration = timeBetweenReproductions;
         reproduceSpawn = reproductionsPerInterval;
-        // set up a timer to handle reproduction
-        TimerHandler t = new TimerHandler(reproduceDuration, reproductions > 0, new ITimerCallback()
+        // set up a repeating timer to handle reproduction
+        if (reproductions > 0)
+            TimerWheel.schedulePeriodic(reproduceDuration, reproduceDuration, reproduceCallback, this, null, 0);
+    }
+
+    /**
+     * All reproducing enemies share this callback
+     */
+    private static final TimerWheel.Callback reproduceCallback = new TimerWheel.Callback()
+    {
+        @Override
+        public void onTimer(TimerWheel.Entry e)
         {
-            @Override
-            public void onTimePassed(TimerHandler th)
-            {
-                // don't reproduce dead enemies
-                if (getSprite().isVisible() && reproductions > 0) {
-                    reproductions--;
-                    // use a random number generator to place the new enemies
-                    for (int i = 0; i < reproduceSpawn; ++i) {
-                        // get a number between 0 and 10
-                        int dice = Util.getRandom(10);
-                        // this will be the next x/y
-                        int nextX, nextY;
-                        // should we make an enemy that is really far away?
-                        //
-                        // NB: These values should be configurable, but
-                        // currently are not...
-                        if (dice >= 9) {
-                            nextX = Util.getRandom(200) - 50;
-                            nextY = Util.getRandom(100) - 50;
-                        }
-                        else {
-                            nextX = Util.getRandom(10) - 5;
-                            nextY = Util.getRandom(10) - 5;
-                        }
-                        // now that we have deltas, add them to the current
-                        // enemy's position, but don't draw enemies off scene
-                        nextX += getSprite().getX();
-                        nextY += getSprite().getY();
-                        if (nextX < 0)
-                            nextX = 0;
-                        if (nextY < 0)
-                            nextY = 0;
-                        if (nextX > Level._width)
-                            nextX = Level._width;
-                        if (nextY > Level._height)
-                            nextY = Level._height;
-                        // make the new enemy exactly like this one
-                        Enemy e = new Enemy(nextX, nextY, _width, _height, _ttr, isStationary, _density, _elasticity,
-                                _friction, _isBox);
-                        e.setDefeatHeroText(onDefeatHeroText);
-                        e.setDamage(damage);
-                        if (isTilt)
-                            e.setMoveByTilting();
-                        if (removeByCrawl)
-                            e.setDefeatByCrawl();
-                        e.disappearSound = disappearSound;
-                        e.alwaysDoesDamage = alwaysDoesDamage;
-                        e.immuneToInvincibility = immuneToInvincibility;
-                        // The child can only reproduce as many times as its
-                        // parent has left
-                        if (reproductions > 0)
-                            e.setReproductions(reproductions, reproduceDuration, reproduceSpawn);
-                        Level.current.attachChild(e.getSprite());
-                    }
-                    // NB: if a reproduce enemy has a route, the spawned ones
-                    // won't. Same for if the reproduce enemy has a custom
-                    // animation
+            Enemy enemy = (Enemy) e.target;
+            // once the enemy is gone or can't reproduce any more, stop the
+            // timer
+            if (enemy.reclaimed || enemy.reclaimPending || enemy.reproductions <= 0) {
+                TimerWheel.cancel(e);
+                return;
+            }
+            enemy.reproduce();
+        }
+    };
+
+    /**
+     * Internal method to make copies of this enemy near it
+     */
+    private void reproduce()
+    {
+        // don't reproduce dead enemies
+        if (getSprite().isVisible() && reproductions > 0) {
+            reproductions--;
+            // use a random number generator to place the new enemies
+            for (int i = 0; i < reproduceSpawn; ++i) {
+                // get a number between 0 and 10
+                int dice = Util.getRandom(10);
+                // this will be the next x/y
+                int nextX, nextY;
+                // should we make an enemy that is really far away?
+                //
+                // NB: These values should be configurable, but
+                // currently are not...
+                if (dice >= 9) {
+                    nextX = Util.getRandom(200) - 50;
+                    nextY = Util.getRandom(100) - 50;
                 }
+                else {
+                    nextX = Util.getRandom(10) - 5;
+                    nextY = Util.getRandom(10) - 5;
+                }
+                // now that we have deltas, add them to the current
+                // enemy's position, but don't draw enemies off scene
+                nextX += getSprite().getX();
+                nextY += getSprite().getY();
+                if (nextX < 0)
+                    nextX = 0;
+                if (nextY < 0)
+                    nextY = 0;
+                if (nextX > Level._width)
+                    nextX = Level._width;
+                if (nextY > Level._height)
+                    nextY = Level._height;
+                // make the new enemy exactly like this one
+                Enemy e = new Enemy(nextX, nextY, _width, _height, _ttr, isStationary, _density, _elasticity,
+                        _friction, _isBox);
+                e.setDefeatHeroText(onDefeatHeroText);
+                e.setDamage(damage);
+                if (isTilt)
+                    e.setMoveByTilting();
+                if (removeByCrawl)
+                    e.setDefeatByCrawl();
+                e.disappearSound = disappearSound;
+                e.alwaysDoesDamage = alwaysDoesDamage;
+                e.immuneToInvincibility = immuneToInvincibility;
+                // The child can only reproduce as many times as its
+                // parent has left
+                if (reproductions > 0)
+                    e.setReproductions(reproductions, reproduceDuration, reproduceSpawn);
+                Level.current.attachChild(e.getSprite());
             }
-        });
-        Level.current.registerUpdateHandler(t);
+            // NB: if a reproduce enemy has a route, the spawned ones
+            // won't. Same for if the reproduce enemy has a custom
+            // animation
+        }
     }
 
     /**
@@ -501,19 +644,38 @@ public class Enemy extends PhysicsSprite
     public static Enemy makeAsMoveable(int x, int y, int width, int height, String imgName, float density,
             float elasticity, float friction)
     {
-        TiledTextureRegion ttr = Media.getImage(imgName);
-        Enemy enemy = new Enemy(x, y, width, height, ttr, false, density, elasticity, friction, false);
-        Level.current.attachChild(enemy.getSprite());
-        return enemy;
+        return make(x, y, width, height, imgName, false, density, elasticity, friction, false, Archetype.REGULAR);
     }
-    
+
+    /**
+     * Add an enemy of a specific archetype. This is just like the version of
+     * makeAsMoveable without an archetype, except that BOSS makes a BossEnemy
+     * 
+     * @param x
+     *            X coordinate of top left corner
+     * @param y
+     *            Y coordinate of top left corner
+     * @param width
+     *            Width of enemy
+     * @param height
+     *            Height of enemy
+     * @param imgName
+     *            Name of image to display
+     * @param density
+     *            Density of the obstacle. When in doubt, use 1
+     * @param elasticity
+     *            Elasticity of the obstacle. When in doubt, use 0
+     * @param friction
+     *            Friction of the obstacle. When in doubt, use 1
+     * @param archetype
+     *            The kind of enemy to make
+     * 
+     * @return the enemy, so we can modify its properties
+     */
     public static Enemy makeAsMoveable(int x, int y, int width, int height, String imgName, float density,
-            float elasticity, float friction, String enemyType)
+            float elasticity, float friction, Archetype archetype)
     {
-        TiledTextureRegion ttr = Media.getImage(imgName);
-        Enemy enemy = new Enemy(x, y, width, height, ttr, false, density, elasticity, friction, false, enemyType);
-        Level.current.attachChild(enemy.getSprite());
-        return enemy;
+        return make(x, y, width, height, imgName, false, density, elasticity, friction, false, archetype);
     }
 
     /**
@@ -541,19 +703,38 @@ public class Enemy extends PhysicsSprite
     public static Enemy makeAsStationary(int x, int y, int width, int height, String imgName, float density,
             float elasticity, float friction)
     {
-        TiledTextureRegion ttr = Media.getImage(imgName);
-        Enemy enemy = new Enemy(x, y, width, height, ttr, true, density, elasticity, friction, false);
-        Level.current.attachChild(enemy.getSprite());
-        return enemy;
+        return make(x, y, width, height, imgName, true, density, elasticity, friction, false, Archetype.REGULAR);
     }
-    
+
+    /**
+     * Add an enemy of a specific archetype. This is just like the version of
+     * makeAsStationary without an archetype, except that BOSS makes a BossEnemy
+     * 
+     * @param x
+     *            X coordinate of top left corner
+     * @param y
+     *            Y coordinate of top left corner
+     * @param width
+     *            Width of enemy
+     * @param height
+     *            Height of enemy
+     * @param imgName
+     *            Name of image to display
+     * @param density
+     *            Density of the obstacle. When in doubt, use 1
+     * @param elasticity
+     *            Elasticity of the obstacle. When in doubt, use 0
+     * @param friction
+     *            Friction of the obstacle. When in doubt, use 1
+     * @param archetype
+     *            The kind of enemy to make
+     * 
+     * @return the enemy, so we can modify its properties
+     */
     public static Enemy makeAsStationary(int x, int y, int width, int height, String imgName, float density,
-            float elasticity, float friction, String enemyType)
+            float elasticity, float friction, Archetype archetype)
     {
-        TiledTextureRegion ttr = Media.getImage(imgName);
-        Enemy enemy = new Enemy(x, y, width, height, ttr, true, density, elasticity, friction, false, enemyType);
-        Level.current.attachChild(enemy.getSprite());
-        return enemy;
+        return make(x, y, width, height, imgName, true, density, elasticity, friction, false, archetype);
     }
 
     /**
@@ -582,19 +763,38 @@ public class Enemy extends PhysicsSprite
     public static Enemy makeAsMoveableBox(int x, int y, int width, int height, String imgName, float density,
             float elasticity, float friction)
     {
-        TiledTextureRegion ttr = Media.getImage(imgName);
-        Enemy enemy = new Enemy(x, y, width, height, ttr, false, density, elasticity, friction, true);
-        Level.current.attachChild(enemy.getSprite());
-        return enemy;
+        return make(x, y, width, height, imgName, false, density, elasticity, friction, true, Archetype.REGULAR);
     }
-    
+
+    /**
+     * Add an enemy of a specific archetype. This is just like the version of
+     * makeAsMoveableBox without an archetype, except that BOSS makes a BossEnemy
+     * 
+     * @param x
+     *            X coordinate of top left corner
+     * @param y
+     *            Y coordinate of top left corner
+     * @param width
+     *            Width of enemy
+     * @param height
+     *            Height of enemy
+     * @param imgName
+     *            Name of image to display
+     * @param density
+     *            Density of the obstacle. When in doubt, use 1
+     * @param elasticity
+     *            Elasticity of the obstacle. When in doubt, use 0
+     * @param friction
+     *            Friction of the obstacle. When in doubt, use 1
+     * @param archetype
+     *            The kind of enemy to make
+     * 
+     * @return the enemy, so we can modify its properties
+     */
     public static Enemy makeAsMoveableBox(int x, int y, int width, int height, String imgName, float density,
-            float elasticity, float friction, String enemyType)
+            float elasticity, float friction, Archetype archetype)
     {
-        TiledTextureRegion ttr = Media.getImage(imgName);
-        Enemy enemy = new Enemy(x, y, width, height, ttr, false, density, elasticity, friction, true, enemyType);
-        Level.current.attachChild(enemy.getSprite());
-        return enemy;
+        return make(x, y, width, height, imgName, false, density, elasticity, friction, true, archetype);
     }
 
     /**
@@ -622,19 +822,38 @@ public class Enemy extends PhysicsSprite
     public static Enemy makeAsStationaryBox(int x, int y, int width, int height, String imgName, float density,
             float elasticity, float friction)
     {
-        TiledTextureRegion ttr = Media.getImage(imgName);
-        Enemy enemy = new Enemy(x, y, width, height, ttr, true, density, elasticity, friction, true);
-        Level.current.attachChild(enemy.getSprite());
-        return enemy;
+        return make(x, y, width, height, imgName, true, density, elasticity, friction, true, Archetype.REGULAR);
     }
-    
+
+    /**
+     * Add an enemy of a specific archetype. This is just like the version of
+     * makeAsStationaryBox without an archetype, except that BOSS makes a BossEnemy
+     * 
+     * @param x
+     *            X coordinate of top left corner
+     * @param y
+     *            Y coordinate of top left corner
+     * @param width
+     *            Width of enemy
+     * @param height
+     *            Height of enemy
+     * @param imgName
+     *            Name of image to display
+     * @param density
+     *            Density of the obstacle. When in doubt, use 1
+     * @param elasticity
+     *            Elasticity of the obstacle. When in doubt, use 0
+     * @param friction
+     *            Friction of the obstacle. When in doubt, use 1
+     * @param archetype
+     *            The kind of enemy to make
+     * 
+     * @return the enemy, so we can modify its properties
+     */
     public static Enemy makeAsStationaryBox(int x, int y, int width, int height, String imgName, float density,
-            float elasticity, float friction, String enemyType)
+            float elasticity, float friction, Archetype archetype)
     {
-        TiledTextureRegion ttr = Media.getImage(imgName);
-        Enemy enemy = new Enemy(x, y, width, height, ttr, true, density, elasticity, friction, true, enemyType);
-        Level.current.attachChild(enemy.getSprite());
-        return enemy;
+        return make(x, y, width, height, imgName, true, density, elasticity, friction, true, archetype);
     }
 
     /**
@@ -644,6 +863,26 @@ public class Enemy extends PhysicsSprite
     {
         enemiesCreated = 0;
         enemiesDefeated = 0;
+        liveEnemies.clear();
+    }
+
+    /**
+     * Make enemies vanish once their centers are farther than some distance
+     * past the edges of the level. They are not counted as defeated, and the
+     * margins should leave room for enemies that are made off the screen.
+     *
+     * @param left
+     *            How far past the left edge, in pixels
+     * @param top
+     *            How far past the top edge, in pixels
+     * @param right
+     *            How far past the right edge, in pixels
+     * @param bottom
+     *            How far past the bottom edge, in pixels
+     */
+    public static void setDespawnMargins(float left, float top, float right, float bottom)
+    {
+        PlayfieldBounds.setMargins(PhysicsSprite.TYPE_ENEMY, left, top, right, bottom, 0);
     }
 
     /**
@@ -682,7 +921,7 @@ public class Enemy extends PhysicsSprite
         }
         
         // Don't run this too frequently...
-        float now = ALE.self().getEngine().getSecondsElapsedTotal();
+        float now = Platform.current().getSecondsElapsedTotal();
         if (now < lastOSMU + 0.25) {
             super.onSpriteManagedUpdate();
             return;
@@ -726,17 +965,18 @@ public class Enemy extends PhysicsSprite
         // refactoring into its own function?
         if (disappearOnTouch) {
             if (Configuration.isVibrationOn())
-                ALE.self().getEngine().vibrate(100);
+                Platform.current().vibrate(100);
             // hide the enemy
             vanish(false);
             physBody.setActive(false);
             Enemy.enemiesDefeated++;
+            HudCounter.publish(HudCounter.DEFEATED, enemiesDefeated);
             if (checkWinByDefeatEnemies()) {
-                ALE.self().menuManager.winLevel();
+                Platform.current().winLevel();
             }
             // handle enemy triggers?
             if (isTrigger)
-                ALE.self().onEnemyTrigger(Goodie.goodiescollected, triggerID, MenuManager._currLevel);
+                Game.current().onEnemyTrigger(Goodie.goodiescollected, triggerID, MenuManager._currLevel);
 
         }
         return super.onSpriteAreaTouched(e, x, y);
@@ -0,0 +1,252 @@
+package edu.lehigh.cse.ale;
+
+import org.andengine.extension.physics.box2d.util.constants.PhysicsConstants;
+import org.andengine.opengl.texture.region.TiledTextureRegion;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+
+/**
+ * EnemyProjectiles are the shots that enemies fire at the hero.
+ *
+ * Like Projectiles, they come from a pool that is configured once per level, so
+ * that firing does not create new sprites or bodies. Unlike Enemies, they are
+ * not counted as enemies that were created or defeated, so they do not affect
+ * the "defeat all enemies" victory condition.
+ *
+ * Each shot gets its own velocity and lifetime when it is fired. If every shot
+ * in the pool is in use, the oldest one is recycled.
+ *
+ * @author spear
+ */
+public class EnemyProjectile extends PhysicsSprite
+{
+    /**
+     * A collection of all the available enemy projectiles
+     */
+    private static EnemyProjectile _pool[];
+
+    /**
+     * The number of enemy projectiles in the pool
+     */
+    private static int _poolSize;
+
+    /**
+     * Index of the next enemy projectile to use
+     */
+    private static int _nextIndex;
+
+    /**
+     * How much damage does an enemy projectile do to a hero?
+     */
+    static int _damage;
+
+    /**
+     * Rather than use a Vector2 pool, we'll keep a vector around for placing
+     * enemy projectiles
+     */
+    private static final Vector2 _position = new Vector2();
+
+    /**
+     * Rather than use a Vector2 pool, we'll keep a vector around for setting
+     * the velocity of enemy projectiles
+     */
+    private static final Vector2 _velocity = new Vector2();
+
+    /**
+     * The time at which this projectile should disappear, or 0 if it should
+     * not disappear on its own
+     */
+    private float expireTime;
+
+    /**
+     * The time at which this projectile was last fired, so that the oldest one
+     * can be recycled when every projectile in the pool is in use
+     */
+    private float fireTime;
+
+    /**
+     * Internal method to create an enemy projectile. Enemy projectiles have an
+     * underlying circle as their physics body, and they are always sensors.
+     *
+     * @param x
+     *            initial x position of the projectile
+     * @param y
+     *            initial y position of the projectile
+     * @param width
+     *            width of the projectile
+     * @param height
+     *            height of the projectile
+     * @param ttr
+     *            animatable image to display as the projectile
+     */
+    private EnemyProjectile(int x, int y, int width, int height, TiledTextureRegion ttr)
+    {
+        super(x, y, width, height, ttr, PhysicsSprite.TYPE_ENEMY_PROJECTILE);
+        setCirclePhysics(0, 0, 0, BodyType.DynamicBody, true, true, false);
+        // enemy projectiles live in a pool, so they must not be reclaimed
+        reclaimOnVanish = false;
+    }
+
+    /**
+     * Describe the shots that enemies fire in this level.
+     *
+     * You must call this if you intend to use enemy projectiles in your level
+     *
+     * @param size
+     *            number of enemy projectiles that can be on the screen at once
+     * @param width
+     *            width of an enemy projectile
+     * @param height
+     *            height of an enemy projectile
+     * @param imgName
+     *            name of the image to use for enemy projectiles
+     * @param damage
+     *            the amount of damage that an enemy projectile does to a hero
+     */
+    public static void configure(int size, int width, int height, String imgName, int damage)
+    {
+        TiledTextureRegion ttr = Media.getImage(imgName);
+        _pool = new EnemyProjectile[size];
+        for (int i = 0; i < size; ++i) {
+            _pool[i] = new EnemyProjectile(-100, -100, width, height, ttr);
+            _pool[i].getSprite().setVisible(false);
+            _pool[i].physBody.setActive(false);
+            Level.current.attachChild(_pool[i].getSprite());
+            _pool[i].setBatched();
+        }
+        _nextIndex = 0;
+        _poolSize = size;
+        _damage = damage;
+    }
+
+    /**
+     * Send enemy projectiles back to the pool as soon as their centers are
+     * farther than some distance past the edges of the level, so that they
+     * don't need a lifetime
+     *
+     * @param left
+     *            How far past the left edge, in pixels
+     * @param top
+     *            How far past the top edge, in pixels
+     * @param right
+     *            How far past the right edge, in pixels
+     * @param bottom
+     *            How far past the bottom edge, in pixels
+     */
+    public static void setDespawnMargins(float left, float top, float right, float bottom)
+    {
+        PlayfieldBounds.setMargins(PhysicsSprite.TYPE_ENEMY_PROJECTILE, left, top, right, bottom, 0);
+    }
+
+    /**
+     * Call this whenever we create a new level, so that we don't use a pool
+     * from an old level
+     */
+    static void onNewLevel()
+    {
+        _pool = null;
+        _poolSize = 0;
+        _nextIndex = 0;
+    }
+
+    /**
+     * Fire an enemy projectile
+     *
+     * @param x
+     *            x coordinate of the top left corner of the projectile
+     * @param y
+     *            y coordinate of the top left corner of the projectile
+     * @param velocityX
+     *            x velocity of the projectile
+     * @param velocityY
+     *            y velocity of the projectile
+     * @param lifetime
+     *            how long the projectile stays on the screen, or 0 if it
+     *            should not disappear on its own
+     * @return the projectile that was fired, or null if there is no pool
+     */
+    public static EnemyProjectile fire(float x, float y, float velocityX, float velocityY, float lifetime)
+    {
+        if (_poolSize == 0)
+            return null;
+        // find a projectile that isn't in use... if they are all in use, take
+        // the one that was fired earliest
+        float now = Platform.current().getSecondsElapsedTotal();
+        int index = -1;
+        int oldest = _nextIndex;
+        for (int i = 0; i < _poolSize; ++i) {
+            int candidate = (_nextIndex + i) % _poolSize;
+            if (!_pool[candidate].getSprite().isVisible()) {
+                index = candidate;
+                break;
+            }
+            if (_pool[candidate].fireTime < _pool[oldest].fireTime)
+                oldest = candidate;
+        }
+        if (index == -1)
+            index = oldest;
+        _nextIndex = (index + 1) % _poolSize;
+        EnemyProjectile p = _pool[index];
+
+        // anything scheduled for the last use of this projectile is stale
+        p.incarnation++;
+        // put the projectile on the screen and place it in the physics world
+        p.getSprite().setPosition(x, y);
+        _position.x = (x + p.getSprite().getWidth() * 0.5f) / PhysicsConstants.PIXEL_TO_METER_RATIO_DEFAULT;
+        _position.y = (y + p.getSprite().getHeight() * 0.5f) / PhysicsConstants.PIXEL_TO_METER_RATIO_DEFAULT;
+        p.physBody.setActive(true);
+        p.physBody.setTransform(_position, 0);
+        _velocity.x = velocityX;
+        _velocity.y = velocityY;
+        p.physBody.setLinearVelocity(_velocity);
+        p.getSprite().setVisible(true);
+        // figure out when it expires
+        p.fireTime = now;
+        if (lifetime > 0)
+            p.expireTime = now + lifetime;
+        else
+            p.expireTime = 0;
+        return p;
+    }
+
+    /**
+     * When an enemy projectile vanishes, it goes back to the pool
+     *
+     * @param quiet
+     *            True if the disappear sound should not be played
+     */
+    @Override
+    void vanish(boolean quiet)
+    {
+        super.vanish(quiet);
+        physBody.setActive(false);
+    }
+
+    /**
+     * Internal method for making projectiles disappear when their time is up
+     */
+    @Override
+    protected void onSpriteManagedUpdate()
+    {
+        if (expireTime > 0 && getSprite().isVisible()
+                && Platform.current().getSecondsElapsedTotal() >= expireTime)
+        {
+            expireTime = 0;
+            vanish(true);
+        }
+        super.onSpriteManagedUpdate();
+    }
+
+    /**
+     * Enemy projectiles only matter to heroes, and heroes handle those
+     * collisions, so there is nothing to do here
+     *
+     * @param other
+     *            The other entity involved in the collision
+     */
+    @Override
+    void onCollide(PhysicsSprite other)
+    {
+    }
+}
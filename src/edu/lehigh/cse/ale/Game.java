@@ -0,0 +1,173 @@
+package edu.lehigh.cse.ale;
+
+import java.util.ArrayList;
+
+import org.andengine.opengl.vbo.VertexBufferObjectManager;
+
+import com.theteam1.wingdra.Wingdra;
+
+/**
+ * Every game must extend this class to describe its levels, name its
+ * resources, and respond to triggers. See Wingdra for an example.
+ * 
+ * A Game is not an Activity, so the same game can be run by ALE on a phone, or
+ * by a HeadlessPlatform on a plain JVM. On a phone, the game's Activity
+ * extends ALE, and makes the Game in makeGame().
+ * 
+ * @author spear
+ */
+public abstract class Game
+{
+    /**
+     * The game that is being played
+     */
+    private static Game _current;
+
+    /**
+     * Make this the game that ALE runs from now on
+     * 
+     * @param game
+     *            The game to run
+     */
+    public static void install(Game game)
+    {
+        _current = game;
+    }
+
+    /**
+     * Internal method to get the game that is being played
+     * 
+     * @return The game
+     */
+    static Game current()
+    {
+        return _current;
+    }
+
+    /**
+     * To use the framework, you must override this to explain how to configure
+     * each level
+     */
+    public void configureLevel(int whichLevel)
+    {
+    }
+
+    /**
+     * Override this to indicate the names of the sound and picture files your
+     * game uses.
+     */
+    public void nameResources()
+    {
+    }
+
+    /**
+     * If you want to use trigger objects, you must override this to define what
+     * happens when the hero hits the obstacle
+     * 
+     * @param score
+     *            The current number of goodies collected, in case it is useful
+     * @param id
+     *            The id that was assigned to the obstacle that was in the
+     *            collision
+     * @param whichLevel
+     *            The current level
+     */
+    public void onCollideTrigger(int score, int id, int whichLevel)
+    {
+
+    }
+    
+    public void onCollideGuideTrigger(int id, ArrayList<Enemy> assocEnemy, int whichLevel) {
+    	if (id == 3) {
+    		Trace.record(Trace.GUIDE_TRIGGER, id);
+    		assocEnemy.get(0).setVelocity(0,0);
+    	}
+    	else if (id == 12) {
+    		for (int i = 0; i < Wingdra.enemies.size(); i++) {
+    			Wingdra.enemies.get(i).shouldShoot = false;
+    			Wingdra.enemies.get(i).setDisappearDelay(1);
+    		}
+    	}
+    	else if (id == 13) {
+    		for (int i = 0; i < assocEnemy.size(); i++) {
+    			
+    		}
+    	}
+    }
+    public void onCollidePowerTrigger(int id, Hero assocHero, int whichLevel) {
+    	if (id == 10) {
+    		if (assocHero.currentWeaponType != 1) {
+    			assocHero.currentWeaponType = 1;
+    		}
+    	}
+    	if (id == 11) {
+    		if (assocHero.currentWeaponType != 2) {
+    			assocHero.currentWeaponType = 2;
+    		}
+    	}
+    }
+
+    /**
+     * If you want to use TouchTrigger objects, you must override this to define
+     * what happens when the object is touched.
+     * 
+     * @param score
+     *            The current number of goodies collected, in case it is useful
+     * @param id
+     *            The id that was assigned to the obstacle that was touched
+     * @param whichLevel
+     *            The current level
+     */
+    public void onTouchTrigger(int score, int id, int whichLevel)
+    {
+    }
+
+    /**
+     * If you want to have timertriggers, then you must override this to define
+     * what happens when the timer expires
+     * 
+     * @param score
+     *            The current number of goodies collected, in case it is useful
+     * @param id
+     *            The id that was assigned to the timer that exired
+     * @param whichLevel
+     *            The current level
+     */
+    public void onTimeTrigger(int score, int id, int whichLevel)
+    {
+    }
+
+    /**
+     * If you want to have enemytriggers, then you must override this to define
+     * what happens when the enemy is defeated
+     * 
+     * @param score
+     *            The current number of goodies collected, in case it is useful
+     * @param id
+     *            The id that was assigned to the enemy who was defeated
+     * @param whichLevel
+     *            The current level
+     */
+    public void onEnemyTrigger(int score, int id, int whichLevel)
+    {
+    }
+
+    /**
+     * If you want to use help scenes, then you will need to override this
+     * method
+     */
+    public void configureHelpScene(int whichScene)
+    {
+    }
+
+    /**
+     * Sprites and text need a vertex buffer manager, which comes from the
+     * installed Platform
+     * 
+     * @return The vertex buffer object manager
+     */
+    protected VertexBufferObjectManager getVertexBufferObjectManager()
+    {
+        return Platform.current().getVertexBufferObjectManager();
+    }
+}
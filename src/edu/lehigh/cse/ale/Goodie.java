@@ -3,7 +3,6 @@ package edu.lehigh.cse.ale;
 import org.andengine.opengl.texture.region.TiledTextureRegion;
 
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
-import com.theteam1.wingdra.Wingdra;
 
 /**
  * Goodies serve two purposes. They are something to collect in order to
@@ -221,12 +220,44 @@ public class Goodie extends PhysicsSprite
     {
         goodiescollected = 0;
     }
-    
-    protected void onSpriteManagedUpdate() {
-    	if (getSprite().getY() >= Wingdra.VIEW_HEIGHT-getSprite().getHeight()) {
-    		setDisappearDelay(1);
-    	}
-    	super.onSpriteManagedUpdate();
+
+    /**
+     * Make goodies vanish once their centers are farther than some distance
+     * past the edges of the level. Negative margins make goodies vanish
+     * before they reach the edges.
+     *
+     * @param left
+     *            How far past the left edge, in pixels
+     * @param top
+     *            How far past the top edge, in pixels
+     * @param right
+     *            How far past the right edge, in pixels
+     * @param bottom
+     *            How far past the bottom edge, in pixels
+     */
+    public static void setDespawnMargins(float left, float top, float right, float bottom)
+    {
+        PlayfieldBounds.setMargins(PhysicsSprite.TYPE_GOODIE, left, top, right, bottom, 0);
+    }
+
+    /**
+     * Make goodies vanish a while after their centers get farther than some
+     * distance past the edges of the level, so that a goodie that lands at an
+     * edge can still be collected for a moment
+     *
+     * @param left
+     *            How far past the left edge, in pixels
+     * @param top
+     *            How far past the top edge, in pixels
+     * @param right
+     *            How far past the right edge, in pixels
+     * @param bottom
+     *            How far past the bottom edge, in pixels
+     * @param delay
+     *            How long to wait, in seconds, before vanishing
+     */
+    public static void setDespawnMargins(float left, float top, float right, float bottom, float delay)
+    {
+        PlayfieldBounds.setMargins(PhysicsSprite.TYPE_GOODIE, left, top, right, bottom, delay);
     }
-    
 }
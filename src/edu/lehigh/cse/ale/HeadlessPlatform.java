@@ -0,0 +1,668 @@
+package edu.lehigh.cse.ale;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.andengine.audio.music.Music;
+import org.andengine.audio.sound.Sound;
+import org.andengine.engine.camera.SmoothCamera;
+import org.andengine.opengl.font.FontManager;
+import org.andengine.opengl.texture.ITexture;
+import org.andengine.opengl.texture.TextureManager;
+import org.andengine.opengl.texture.TextureOptions;
+import org.andengine.opengl.texture.atlas.bitmap.BitmapTextureAtlas;
+import org.andengine.opengl.texture.atlas.bitmap.BitmapTextureAtlasTextureRegionFactory;
+import org.andengine.opengl.texture.atlas.bitmap.source.EmptyBitmapTextureAtlasSource;
+import org.andengine.opengl.texture.region.TextureRegion;
+import org.andengine.opengl.texture.region.TiledTextureRegion;
+import org.andengine.opengl.vbo.VertexBufferObjectManager;
+import org.andengine.util.debug.Debug;
+import org.andengine.util.debug.Debug.DebugLevel;
+
+import com.badlogic.gdx.math.Vector2;
+import com.theteam1.wingdra.R;
+
+/**
+ * The HeadlessPlatform runs levels without a device, a GL context, or an
+ * AndEngine Engine, so that they can be measured and checked on a regular
+ * JVM.
+ *
+ * The clock only moves when step() is called, so runs are repeatable and go as
+ * fast as the machine allows. Images are never decoded: their sizes are read
+ * from the PNG headers in an asset folder on disk, and they get texture
+ * regions that are never sent to GL. Configuration strings are read straight
+ * from gameconfig.xml. There is no sound, music, or vibration, and nothing is
+ * logged. Tilt comes from a script instead of a sensor. Winning or losing a
+ * level is recorded instead of showing a menu, and the level keeps running.
+ *
+ * Only the Game is made; there is no Activity. The JVM still needs AndEngine
+ * and the Android framework classes on its classpath (for example, a
+ * Robolectric android-all jar), and Box2D natives built for the host, loaded
+ * under the name andenginephysicsbox2dextension.
+ *
+ * @author spear
+ */
+public class HeadlessPlatform extends Platform
+{
+    /**
+     * The level is still being played
+     */
+    public static final int PLAYING = 0;
+
+    /**
+     * The level was won
+     */
+    public static final int WON = 1;
+
+    /**
+     * The level was lost
+     */
+    public static final int LOST = 2;
+
+    /**
+     * A source of scripted tilt, in place of the accelerometer
+     */
+    public interface TiltScript
+    {
+        /**
+         * Report the tilt at a point in time
+         *
+         * @param time
+         *            The current time on the headless clock, in seconds
+         * @param tilt
+         *            Where to put the tilt, if it changed
+         * @return true if the tilt changed since the last call
+         */
+        boolean getTilt(float time, Vector2 tilt);
+    }
+
+    /**
+     * The folder that holds the game's assets
+     */
+    private final File _assetRoot;
+
+    /**
+     * The game's configuration strings, by resource ID
+     */
+    private final HashMap<Integer, String> _strings = new HashMap<Integer, String>();
+
+    /**
+     * The game being run
+     */
+    private final Game _game;
+
+    /**
+     * The camera, which no one looks through
+     */
+    private final SmoothCamera _camera;
+
+    /**
+     * Sprites need a vertex buffer manager, even though nothing is drawn
+     */
+    private final VertexBufferObjectManager _vbom = new VertexBufferObjectManager();
+
+    /**
+     * Textures need a manager, even though nothing is loaded into GL
+     */
+    private final TextureManager _textures = new TextureManager();
+
+    /**
+     * Fonts need a manager, even though nothing is loaded into GL
+     */
+    private final FontManager _fonts = new FontManager();
+
+    /**
+     * The headless clock
+     */
+    private float _clock;
+
+    /**
+     * Number of steps taken so far
+     */
+    private long _steps;
+
+    /**
+     * How the current level ended, or PLAYING
+     */
+    private int _outcome;
+
+    /**
+     * Code to run at the start of the next step
+     */
+    private final ArrayList<Runnable> _nextFrame = new ArrayList<Runnable>();
+
+    /**
+     * The code that is running during the current step
+     */
+    private final ArrayList<Runnable> _thisFrame = new ArrayList<Runnable>();
+
+    /**
+     * Is tilt turned on in the current level?
+     */
+    private boolean _tiltEnabled;
+
+    /**
+     * Where tilt comes from, if anywhere
+     */
+    private TiltScript _tiltScript;
+
+    /**
+     * Rather than use a Vector2 pool, we'll keep a vector around for reading
+     * scripted tilt
+     */
+    private final Vector2 _tilt = new Vector2();
+
+    /**
+     * Make a headless platform for a game, install it, and register the
+     * game's resources
+     *
+     * @param game
+     *            The game to run
+     * @param projectRoot
+     *            The path to the game's project folder, which holds the
+     *            assets folder and res/values/gameconfig.xml
+     */
+    public HeadlessPlatform(Game game, String projectRoot)
+    {
+        _game = game;
+        _assetRoot = new File(projectRoot, "assets");
+        // there is no logcat to write to
+        Debug.setDebugLevel(DebugLevel.NONE);
+        readStrings(new File(projectRoot, "res/values/gameconfig.xml"));
+        Platform.install(this);
+        Game.install(game);
+        _camera = new SmoothCamera(0, 0, Configuration.getCameraWidth(), Configuration.getCameraHeight(),
+                Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, 1f);
+        game.nameResources();
+        Media.loadImagesNow();
+    }
+
+    /**
+     * Internal method to read the game's configuration strings, since there
+     * are no Android resources to get them from
+     *
+     * @param config
+     *            The gameconfig.xml file
+     */
+    private void readStrings(File config)
+    {
+        // match names in the file to the IDs that the build gave them
+        HashMap<String, Integer> ids = new HashMap<String, Integer>();
+        for (Field f : R.string.class.getFields()) {
+            try {
+                ids.put(f.getName(), f.getInt(null));
+            }
+            catch (IllegalAccessException e) {
+            }
+        }
+        Pattern p = Pattern.compile("<string name=\"([^\"]+)\">([^<]*)</string>");
+        BufferedReader in = null;
+        try {
+            in = new BufferedReader(new FileReader(config));
+            String line;
+            while ((line = in.readLine()) != null) {
+                Matcher m = p.matcher(line);
+                while (m.find()) {
+                    Integer id = ids.get(m.group(1));
+                    if (id != null)
+                        _strings.put(id, m.group(2));
+                }
+            }
+        }
+        catch (IOException e) {
+        }
+        finally {
+            try {
+                if (in != null)
+                    in.close();
+            }
+            catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * Use a script to provide tilt
+     *
+     * @param script
+     *            The script, or null for no tilt
+     */
+    public void setTiltScript(TiltScript script)
+    {
+        _tiltScript = script;
+    }
+
+    /**
+     * Create a level, just like choosing it from the level chooser would
+     *
+     * @param whichLevel
+     *            The level to create
+     */
+    public void loadLevel(int whichLevel)
+    {
+        unloadLevel();
+        MenuManager._currLevel = whichLevel;
+        _outcome = PLAYING;
+        _game.configureLevel(whichLevel);
+    }
+
+    /**
+     * Throw away the current level's physics world, so that its bodies don't
+     * stay in native memory. Nothing else may use the level afterward.
+     */
+    public void unloadLevel()
+    {
+        if (Level.physics == null)
+            return;
+        Level.physics.dispose();
+        Level.physics = null;
+    }
+
+    /**
+     * Advance the current level by one frame: move the clock, run the code that
+     * was waiting for this frame, deliver scripted tilt, and update the scene,
+     * which applies tilt, steps physics and runs timers
+     *
+     * @param secondsElapsed
+     *            The length of the frame
+     */
+    public void step(float secondsElapsed)
+    {
+        _clock += secondsElapsed;
+        // code that asks to run again waits for the next step
+        _thisFrame.addAll(_nextFrame);
+        _nextFrame.clear();
+        for (Runnable r : _thisFrame)
+            r.run();
+        _thisFrame.clear();
+        if (_tiltEnabled && _tiltScript != null && _tiltScript.getTilt(_clock, _tilt))
+            TiltInput.offer(_tilt.x, _tilt.y);
+        Level.current.onUpdate(secondsElapsed);
+        _steps++;
+    }
+
+    /**
+     * Run the current level for a while, one fixed-length frame at a time
+     *
+     * @param seconds
+     *            How long to run
+     * @param frameLength
+     *            The length of each frame
+     */
+    public void run(float seconds, float frameLength)
+    {
+        float end = _clock + seconds;
+        while (_clock < end)
+            step(frameLength);
+    }
+
+    /**
+     * Report the number of frames that have been run
+     *
+     * @return The number of calls to step
+     */
+    public long getStepCount()
+    {
+        return _steps;
+    }
+
+    /**
+     * Report how the current level ended
+     *
+     * @return PLAYING, WON, or LOST
+     */
+    public int getOutcome()
+    {
+        return _outcome;
+    }
+
+    /**
+     * The clock only moves when the level is stepped
+     */
+    @Override
+    float getSecondsElapsedTotal()
+    {
+        return _clock;
+    }
+
+    /**
+     * Strings come from gameconfig.xml
+     *
+     * @param resId
+     *            The resource ID of the string, from R.string
+     */
+    @Override
+    String getString(int resId)
+    {
+        String s = _strings.get(resId);
+        return s == null ? "" : s;
+    }
+
+    /**
+     * There is nothing to vibrate
+     *
+     * @param milliseconds
+     *            How long to vibrate
+     */
+    @Override
+    void vibrate(long milliseconds)
+    {
+    }
+
+    /**
+     * Sprites share one vertex buffer manager that never reaches GL
+     */
+    @Override
+    VertexBufferObjectManager getVertexBufferObjectManager()
+    {
+        return _vbom;
+    }
+
+    /**
+     * Textures are created, but never loaded into GL
+     */
+    @Override
+    TextureManager getTextureManager()
+    {
+        return _textures;
+    }
+
+    /**
+     * Fonts are created, but never loaded into GL
+     */
+    @Override
+    FontManager getFontManager()
+    {
+        return _fonts;
+    }
+
+    /**
+     * There is one camera, made with the platform
+     */
+    @Override
+    SmoothCamera getCamera()
+    {
+        return _camera;
+    }
+
+    /**
+     * Record the win, so that whoever is running the level can check it
+     */
+    @Override
+    void winLevel()
+    {
+        if (Level.gameOver)
+            return;
+        Level.gameOver = true;
+        _outcome = WON;
+    }
+
+    /**
+     * Record the loss, so that whoever is running the level can check it
+     *
+     * @param loseText
+     *            The text that would be shown to the player
+     */
+    @Override
+    void loseLevel(String loseText)
+    {
+        if (Level.gameOver)
+            return;
+        Level.gameOver = true;
+        _outcome = LOST;
+    }
+
+    /**
+     * Remember whether the level wants tilt, so that the script is only used
+     * when it does
+     *
+     * @param enabled
+     *            True if tilt events should be delivered to the level
+     */
+    @Override
+    void setTiltEnabled(boolean enabled)
+    {
+        _tiltEnabled = enabled;
+    }
+
+    /**
+     * Assets come from the assets folder on disk
+     *
+     * @param assetName
+     *            The name of the file, relative to the assets folder
+     */
+    @Override
+    InputStream openAsset(String assetName) throws IOException
+    {
+        return new FileInputStream(new File(_assetRoot, assetName));
+    }
+
+    /**
+     * Read the size from the PNG header
+     *
+     * @param imgName
+     *            The name of the image file
+     * @param size
+     *            Where to put the width and height
+     */
+    @Override
+    boolean readImageSize(String imgName, int[] size)
+    {
+        DataInputStream in = null;
+        try {
+            // a PNG starts with an 8-byte signature, then the IHDR chunk's
+            // length and type, then the width and height
+            in = new DataInputStream(openAsset(imgName));
+            in.skipBytes(16);
+            size[0] = in.readInt();
+            size[1] = in.readInt();
+            return true;
+        }
+        catch (IOException e) {
+            return false;
+        }
+        finally {
+            try {
+                if (in != null)
+                    in.close();
+            }
+            catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * Make a texture region of the right size for the image, without decoding
+     * it
+     *
+     * @param atlas
+     *            The atlas to put the image in
+     * @param imgName
+     *            The name of the image file
+     * @param x
+     *            The X coordinate of the image's top left corner in the atlas
+     * @param y
+     *            The Y coordinate of the image's top left corner in the atlas
+     * @param width
+     *            The width of the image
+     * @param height
+     *            The height of the image
+     * @param cellColumns
+     *            The number of animation cells in the image
+     */
+    @Override
+    TiledTextureRegion addImageToAtlas(BitmapTextureAtlas atlas, String imgName, int x, int y, int width,
+            int height, int cellColumns)
+    {
+        return BitmapTextureAtlasTextureRegionFactory.createTiledFromSource(atlas, new EmptyBitmapTextureAtlasSource(
+                width, height), x, y, cellColumns, 1);
+    }
+
+    /**
+     * Make a texture region covering the atlas, without decoding the image
+     *
+     * @param atlas
+     *            The atlas to fill
+     * @param imgName
+     *            The name of the image file
+     */
+    @Override
+    TextureRegion fillAtlasWithImage(BitmapTextureAtlas atlas, String imgName)
+    {
+        return BitmapTextureAtlasTextureRegionFactory.createFromSource(atlas, new EmptyBitmapTextureAtlasSource(
+                atlas.getWidth(), atlas.getHeight()), 0, 0);
+    }
+
+    /**
+     * Make a placeholder texture of the right size, since ETC1 can only be
+     * read on a device
+     *
+     * @param colorName
+     *            The name of the compressed file with the image's colors
+     * @param alphaName
+     *            The name of the compressed file with the image's
+     *            transparency, or null if the image is opaque
+     * @param width
+     *            The width of the image
+     * @param height
+     *            The height of the image
+     * @param options
+     *            How the texture is sampled
+     */
+    @Override
+    ITexture makeCompressedTexture(String colorName, String alphaName, int width, int height,
+            TextureOptions options)
+    {
+        return new BitmapTextureAtlas(_textures, width, height, options);
+    }
+
+    /**
+     * There is nothing to decode
+     *
+     * @param atlas
+     *            An atlas whose images have all been added
+     */
+    @Override
+    void startDecoding(ITexture atlas)
+    {
+    }
+
+    /**
+     * There is nothing to decode
+     *
+     * @param atlas
+     *            An atlas that startDecoding was called on
+     */
+    @Override
+    boolean isDecoded(ITexture atlas)
+    {
+        return true;
+    }
+
+    /**
+     * Atlases are never sent to GL
+     *
+     * @param atlas
+     *            The atlas to load
+     */
+    @Override
+    void loadAtlas(ITexture atlas)
+    {
+    }
+
+    /**
+     * The code runs at the start of the next call to step
+     *
+     * @param r
+     *            The code to run
+     */
+    @Override
+    void runNextFrame(Runnable r)
+    {
+        _nextFrame.add(r);
+    }
+
+    /**
+     * No images are ever decoded, so there is nothing waiting to be freed
+     *
+     * @param atlas
+     *            An atlas that loadAtlas was called on
+     */
+    @Override
+    boolean isUploaded(ITexture atlas)
+    {
+        return true;
+    }
+
+    /**
+     * Atlases are never sent to GL
+     *
+     * @param atlas
+     *            The atlas to unload
+     */
+    @Override
+    void unloadAtlas(ITexture atlas)
+    {
+    }
+
+    /**
+     * There is no sound
+     *
+     * @param soundName
+     *            The name of the sound file
+     */
+    @Override
+    Sound loadSound(String soundName)
+    {
+        return null;
+    }
+
+    /**
+     * There is no sound
+     *
+     * @param sound
+     *            The sound to play
+     */
+    @Override
+    int playSound(Sound sound)
+    {
+        return 0;
+    }
+
+    /**
+     * There is no sound
+     *
+     * @param sound
+     *            The sound
+     * @param streamId
+     *            The stream, from playSound
+     */
+    @Override
+    void stopSound(Sound sound, int streamId)
+    {
+    }
+
+    /**
+     * There is no music
+     *
+     * @param musicName
+     *            The name of the music file
+     * @param loop
+     *            True if the music should repeat when it reaches the end
+     */
+    @Override
+    Music loadMusic(String musicName, boolean loop)
+    {
+        return null;
+    }
+}
@@ -2,15 +2,9 @@ package edu.lehigh.cse.ale;
 
 import java.util.ArrayList;
 
-import org.andengine.audio.sound.Sound;
 import org.andengine.engine.handler.IUpdateHandler;
-import org.andengine.engine.handler.timer.ITimerCallback;
-import org.andengine.engine.handler.timer.TimerHandler;
 import org.andengine.input.touch.TouchEvent;
 import org.andengine.opengl.texture.region.TiledTextureRegion;
-import org.andengine.util.debug.Debug;
-
-import android.util.Log;
 
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
@@ -172,7 +166,7 @@ public class Hero extends PhysicsSprite
     /**
      * Sound to play when a jump occurs
      */
-    private Sound jumpSound;
+    private SoundEffect jumpSound;
     
     public int currentWeaponType = 0;
 
@@ -236,6 +230,8 @@ public class Hero extends PhysicsSprite
     {
         super(x, y, width, height, ttr, PhysicsSprite.TYPE_HERO);
         ROF = 1;
+        // heroes are still referenced after they vanish, so keep their bodies
+        reclaimOnVanish = false;
         // log that we made a hero
         heroesCreated++;
     }
@@ -356,10 +352,10 @@ public class Hero extends PhysicsSprite
      * @param e
      *            The enemy with which this hero collided
      */
-    private void onCollideWithEnemy(Enemy e)
+    void onCollideWithEnemy(Enemy e)
     {
         // can we defeat it via invincibility?
-        if (!e.alwaysDoesDamage && (invincibleUntil > ALE.self().getEngine().getSecondsElapsedTotal())) {
+        if (!e.alwaysDoesDamage && (invincibleUntil > Platform.current().getSecondsElapsedTotal())) {
             // if the enemy is immune to invincibility, do nothing
             if (e.immuneToInvincibility)
                 return;
@@ -367,12 +363,13 @@ public class Hero extends PhysicsSprite
             e.vanish(false);
             e.physBody.setActive(false);
             Enemy.enemiesDefeated++;
+            HudCounter.publish(HudCounter.DEFEATED, Enemy.enemiesDefeated);
             if (Enemy.checkWinByDefeatEnemies()) {
-                ALE.self().menuManager.winLevel();
+                Platform.current().winLevel();
             }
             // handle enemy triggers?
             if (e.isTrigger)
-                ALE.self().onEnemyTrigger(Goodie.goodiescollected, e.triggerID, MenuManager._currLevel);
+                Game.current().onEnemyTrigger(Goodie.goodiescollected, e.triggerID, MenuManager._currLevel);
         }
         // defeat by crawling?
         else if (crawling && e.removeByCrawl) {
@@ -380,12 +377,13 @@ public class Hero extends PhysicsSprite
             e.vanish(false);
             e.physBody.setActive(false);
             Enemy.enemiesDefeated++;
+            HudCounter.publish(HudCounter.DEFEATED, Enemy.enemiesDefeated);
             if (Enemy.checkWinByDefeatEnemies()) {
-                ALE.self().menuManager.winLevel();
+                Platform.current().winLevel();
             }
             // handle enemy triggers?
             if (e.isTrigger)
-                ALE.self().onEnemyTrigger(Goodie.goodiescollected, e.triggerID, MenuManager._currLevel);
+                Game.current().onEnemyTrigger(Goodie.goodiescollected, e.triggerID, MenuManager._currLevel);
         }
         // when we can't defeat it by losing strength
         else if (e.damage >= strength) {
@@ -395,21 +393,57 @@ public class Hero extends PhysicsSprite
             // increase the number of dead heroes
             heroesDestroyed++;
             if (heroesDestroyed == heroesCreated)
-                ALE.self().menuManager.loseLevel(e.onDefeatHeroText != "" ? e.onDefeatHeroText : Level.textYouLost);
+                Platform.current().loseLevel(e.onDefeatHeroText != "" ? e.onDefeatHeroText : Level.textYouLost);
         }
         // when we can defeat it by losing strength
         else {
             strength -= e.damage;
+            publishStrength();
             // remove the enemy
             e.vanish(false);
             e.physBody.setActive(false);
             Enemy.enemiesDefeated++;
+            HudCounter.publish(HudCounter.DEFEATED, Enemy.enemiesDefeated);
             if (Enemy.checkWinByDefeatEnemies()) {
-                ALE.self().menuManager.winLevel();
+                Platform.current().winLevel();
             }
             // handle enemy triggers?
             if (e.isTrigger)
-                ALE.self().onEnemyTrigger(Goodie.goodiescollected, e.triggerID, MenuManager._currLevel);
+                Game.current().onEnemyTrigger(Goodie.goodiescollected, e.triggerID, MenuManager._currLevel);
+        }
+    }
+
+    /**
+     * Dispatch method for handling Hero collisions with EnemyProjectiles
+     *
+     * @param p
+     *            The enemy projectile with which this hero collided
+     */
+    void onCollideWithEnemyProjectile(EnemyProjectile p)
+    {
+        // ignore projectiles that have already hit something
+        if (!p.getSprite().isVisible())
+            return;
+        // invincible heroes just absorb the shot
+        if (invincibleUntil > Platform.current().getSecondsElapsedTotal()) {
+            p.vanish(true);
+        }
+        // when we can't survive it by losing strength
+        else if (EnemyProjectile._damage >= strength) {
+            p.vanish(true);
+            // turn off physics updates for the hero, and hide him
+            vanish(false);
+            physBody.setActive(false);
+            // increase the number of dead heroes
+            heroesDestroyed++;
+            if (heroesDestroyed == heroesCreated)
+                Platform.current().loseLevel(Level.textYouLost);
+        }
+        // when we can survive it by losing strength
+        else {
+            strength -= EnemyProjectile._damage;
+            publishStrength();
+            p.vanish(false);
         }
     }
 
@@ -419,7 +453,7 @@ public class Hero extends PhysicsSprite
      * @param d
      *            The destination with which this hero collided
      */
-    private void onCollideWithDestination(Destination d)
+    void onCollideWithDestination(Destination d)
     {
         // only do something if the hero has enough goodies and there's
         // room in the destination
@@ -434,7 +468,7 @@ public class Hero extends PhysicsSprite
             // vanish quietly, since we want the destination sound to play
             vanish(true);
             if ((Level.victoryType == Level.VICTORY.DESTINATION) && (Destination.arrivals >= Level.victoryVal)) {
-                ALE.self().menuManager.winLevel();
+                Platform.current().winLevel();
             }
         }
     }
@@ -445,18 +479,20 @@ public class Hero extends PhysicsSprite
      * @param g
      *            The goodie with which this hero collided
      */
-    private void onCollideWithGoodie(Goodie g)
+    void onCollideWithGoodie(Goodie g)
     {
         // hide the goodie
         g.vanish(false);
         g.physBody.setActive(false);
         // count this goodie
         Goodie.goodiescollected += g.goodieValue;
+        HudCounter.publish(HudCounter.GOODIES, Goodie.goodiescollected);
         // update strength
         strength += g.strengthBoost;
+        publishStrength();
         // deal with invincibility
         if (g.invincibilityDuration > 0) {
-            float newExpire = ALE.self().getEngine().getSecondsElapsedTotal() + g.invincibilityDuration;
+            float newExpire = Platform.current().getSecondsElapsedTotal() + g.invincibilityDuration;
             if (newExpire > invincibleUntil) {
                 invincibleUntil = newExpire;
             }
@@ -467,7 +503,7 @@ public class Hero extends PhysicsSprite
         }
         // possibly win the level
         if ((Level.victoryType == Level.VICTORY.GOODIECOUNT) && (Level.victoryVal <= Goodie.goodiescollected)) {
-            ALE.self().menuManager.winLevel();
+            Platform.current().winLevel();
         }
         // deal with animation changes due to goodie count
         if (isAnimateByGoodieCount) {
@@ -481,23 +517,41 @@ public class Hero extends PhysicsSprite
         }
     }
 
+    /**
+     * All speed boosts share this callback for shutting the boost off. The
+     * timer's target is the hero, and its other object is the obstacle that
+     * gave the boost.
+     */
+    private static final TimerWheel.Callback unboostCallback = new TimerWheel.Callback()
+    {
+        @Override
+        public void onTimer(TimerWheel.Entry e)
+        {
+            Obstacle o = (Obstacle) e.other;
+            Vector2 v = e.target.physBody.getLinearVelocity();
+            v.x -= o.speedBoostX;
+            v.y -= o.speedBoostY;
+            e.target.physBody.setLinearVelocity(v);
+        }
+    };
+
     /**
      * Dispatch method for handling Hero collisions with Obstacles
      *
      * @param o
      *            The obstacle with which this hero collided
      */
-    private void onCollideWithObstacle(Obstacle o)
+    void onCollideWithObstacle(Obstacle o)
     {
     	
     	if (o.triggerID == 2 || o.triggerID == 3 || o.triggerID == 4) {
-    		Log.v("wingdra-game","collision");
-    		ALE.self().onCollideGuideTrigger(o.triggerID, o.assocEnemy, MenuManager._currLevel);
+    		Trace.record(Trace.GUIDE_COLLISION, o.triggerID);
+    		Game.current().onCollideGuideTrigger(o.triggerID, o.assocEnemy, MenuManager._currLevel);
     		this.setAppearSound("ricochet.ogg");
     		this.playSound();
     	}
     	if (o.triggerID == 10 || o.triggerID == 11 || o.triggerID == 12 || o.triggerID == 13) {
-    		ALE.self().onCollidePowerTrigger(o.triggerID,o.assocHero,MenuManager._currLevel);
+    		Game.current().onCollidePowerTrigger(o.triggerID,o.assocHero,MenuManager._currLevel);
     		this.setAppearSound("collect.ogg");
     		this.playSound();
     	}
@@ -514,7 +568,7 @@ public class Hero extends PhysicsSprite
             if (o.triggerActivation <= Goodie.goodiescollected) {
                 o.vanish(false);
                 o.physBody.setActive(false);
-                ALE.self().onCollideTrigger(Goodie.goodiescollected, o.triggerID, MenuManager._currLevel);
+                Game.current().onCollideTrigger(Goodie.goodiescollected, o.triggerID, MenuManager._currLevel);
             }
         }
         // regular obstacles
@@ -531,27 +585,14 @@ public class Hero extends PhysicsSprite
             if (o.isSpeedBoost) {
                 // boost the speed
                 Vector2 v = physBody.getLinearVelocity();
-                Debug.d("old speed = (" + v.x + ", " + v.y + ")");
                 v.x += o.speedBoostX;
                 v.y += o.speedBoostY;
-                Debug.d("new speed = (" + v.x + ", " + v.y + ")");
+                Trace.record(Trace.SPEED_BOOST, 0, v.x, v.y);
                 physBody.setLinearVelocity(v);
                 // now set a timer to un-boost the speed
                 if (o.speedBoostDuration > 0) {
-                    final Obstacle oo = o;
                     // set up a timer to shut off the boost
-                    TimerHandler t = new TimerHandler(o.speedBoostDuration, false, new ITimerCallback()
-                    {
-                        @Override
-                        public void onTimePassed(TimerHandler th)
-                        {
-                            Vector2 v = physBody.getLinearVelocity();
-                            v.x -= oo.speedBoostX;
-                            v.y -= oo.speedBoostY;
-                            physBody.setLinearVelocity(v);
-                        }
-                    });
-                    Level.current.registerUpdateHandler(t);
+                    TimerWheel.schedule(o.speedBoostDuration, unboostCallback, this, o, 0);
                 }
             }
             // otherwise, it's probably a wall, so mark us not in the air so
@@ -574,7 +615,7 @@ public class Hero extends PhysicsSprite
      * @param o
      *            The obstacle with which this hero collided
      */
-    private void onCollideWithSVG(PhysicsSprite o)
+    void onCollideWithSVG(PhysicsSprite o)
     {
         // all we do is record that the hero is not in the air anymore, and is
         // not in a jump animation anymore
@@ -612,8 +653,8 @@ public class Hero extends PhysicsSprite
         }
         // ignore projectiles
         if (other.myType == PhysicsSprite.TYPE_PROJECTILE) {
-            // demonstrate how to print debug messages to logcat
-            Debug.d("hero collided with projectile");
+            // demonstrate how to record a trace event
+            Trace.record(Trace.HERO_PROJECTILE);
         }
         // SVG are like regular obstacles: reenable jumps
         if (other.myType == PhysicsSprite.TYPE_SVG) {
@@ -624,7 +665,21 @@ public class Hero extends PhysicsSprite
             Goodie g = (Goodie) other;
             onCollideWithGoodie(g);
         }
-        // one last thing: if the hero was "norotate", then patch up any rotation that happened to its physics body by mistake:
+        // get shot by enemies
+        if (other.myType == PhysicsSprite.TYPE_ENEMY_PROJECTILE) {
+            EnemyProjectile p = (EnemyProjectile) other;
+            onCollideWithEnemyProjectile(p);
+        }
+        afterCollision();
+    }
+
+    /**
+     * Internal method to run after every collision involving this hero: if the
+     * hero was "norotate", then patch up any rotation that happened to its
+     * physics body by mistake
+     */
+    void afterCollision()
+    {
         if (!_canRotate)
             physBody.setTransform(physBody.getPosition(), 0);
     }
@@ -648,6 +703,17 @@ public class Hero extends PhysicsSprite
     public void setStrength(int amount)
     {
         strength = amount;
+        publishStrength();
+    }
+
+    /**
+     * Internal method to update the strength meter, if this is the hero it
+     * shows
+     */
+    private void publishStrength()
+    {
+        if (this == lastHero)
+            HudCounter.publish(HudCounter.STRENGTH, strength);
     }
 
     /**
@@ -709,10 +775,11 @@ public class Hero extends PhysicsSprite
         heroes.add(hero);
 
         // let the camera follow this hero
-        ALE.self()._camera.setChaseEntity(hero.getSprite());
+        Platform.current().getCamera().setChaseEntity(hero.getSprite());
 
         // save this as the most recent hero
         lastHero = hero;
+        hero.publishStrength();
 
         // return the hero, so it can be modified
         return hero;
@@ -759,10 +826,11 @@ public class Hero extends PhysicsSprite
         heroes.add(hero);
 
         // Let the camera follow this hero
-        ALE.self()._camera.setChaseEntity(hero.getSprite());
+        Platform.current().getCamera().setChaseEntity(hero.getSprite());
 
         // save this as the last hero created
         lastHero = hero;
+        hero.publishStrength();
 
         // return the hero, so it can be modified
         return hero;
@@ -810,10 +878,11 @@ public class Hero extends PhysicsSprite
         heroes.add(hero);
 
         // let the camera follow this hero
-        ALE.self()._camera.setChaseEntity(hero.getSprite());
+        Platform.current().getCamera().setChaseEntity(hero.getSprite());
 
         // save this as the most recent hero
         lastHero = hero;
+        hero.publishStrength();
 
         // return the hero, so it can be modified
         return hero;
@@ -860,10 +929,11 @@ public class Hero extends PhysicsSprite
         heroes.add(hero);
 
         // Let the camera follow this hero
-        ALE.self()._camera.setChaseEntity(hero.getSprite());
+        Platform.current().getCamera().setChaseEntity(hero.getSprite());
 
         // save this as the last hero created
         lastHero = hero;
+        hero.publishStrength();
 
         // return the hero, so it can be modified
         return hero;
@@ -926,12 +996,12 @@ public class Hero extends PhysicsSprite
      */
     protected void onSpriteManagedUpdate()
     {
-        ALE.self()._camera.onUpdate(0.1f);
-        float now = ALE.self().getEngine().getSecondsElapsedTotal();
+        Platform.current().getCamera().onUpdate(0.1f);
+        float now = Platform.current().getSecondsElapsedTotal();
         // handle invincibility animation
         if (invincibleUntil > now) {
         	getSprite().setAlpha(0.5f);
-        	ALE.self().getEngine().vibrate(100);
+        	Platform.current().vibrate(100);
         	invincible = true;
         }
         if (glowing && (invincibleUntil < now)) {
@@ -978,7 +1048,7 @@ public class Hero extends PhysicsSprite
      */
     public void setCameraOffset(float x, float y)
     {
-        ALE.self()._camera.setChaseEntity(null);
+        Platform.current().getCamera().setChaseEntity(null);
         cameraOffset.x = x;
         cameraOffset.y = y;
         getSprite().registerUpdateHandler(new IUpdateHandler()
@@ -987,7 +1057,8 @@ public class Hero extends PhysicsSprite
             @Override
             public void onUpdate(float arg0)
             {
-                ALE.self()._camera.setCenter(getSprite().getX() + cameraOffset.x, getSprite().getY() + cameraOffset.y);
+                Platform.current().getCamera().setCenter(getSprite().getX() + cameraOffset.x,
+                        getSprite().getY() + cameraOffset.y);
             }
 
             @Override
@@ -1144,7 +1215,7 @@ public class Hero extends PhysicsSprite
     {
         if (throwAnimateDurations != null) {
             getSprite().animate(throwAnimateDurations, throwAnimateCells, false);
-            throwingUntil = ALE.self().getEngine().getSecondsElapsedTotal() + throwAnimateTotalLength;
+            throwingUntil = Platform.current().getSecondsElapsedTotal() + throwAnimateTotalLength;
         }
     }
 }
@@ -0,0 +1,215 @@
+package edu.lehigh.cse.ale;
+
+import org.andengine.entity.text.Text;
+
+/**
+ * A HudCounter shows a number, followed by some fixed text, in a Text on the
+ * heads-up display.
+ *
+ * The HUD used to poll every counter 20 times a second, building a new String
+ * each time and handing it to the Text even when the number hadn't changed.
+ * Instead, the code that changes a counted value publishes the new value, and
+ * the counter only rebuilds its text when the value differs from what is on
+ * the screen. The digits are written straight into a char buffer that already
+ * holds the fixed text, and the counter itself is the CharSequence that the
+ * Text reads, so nothing is allocated to format a number.
+ *
+ * Clocks don't have anyone to publish their values, so Controls shows them
+ * each frame, and the text is still only rebuilt when the second changes.
+ *
+ * @author spear
+ */
+class HudCounter implements CharSequence
+{
+    /**
+     * Slot for the number of goodies collected
+     */
+    static final int GOODIES = 0;
+
+    /**
+     * Slot for the number of enemies defeated
+     */
+    static final int DEFEATED = 1;
+
+    /**
+     * Slot for the strength of the most recent hero
+     */
+    static final int STRENGTH = 2;
+
+    /**
+     * Slot for the number of projectiles remaining
+     */
+    static final int PROJECTILES = 3;
+
+    /**
+     * The most characters an int can take, including its sign
+     */
+    static final int MAX_DIGITS = 11;
+
+    /**
+     * The counter showing each published value, if any
+     */
+    private static final HudCounter[] _counters = new HudCounter[4];
+
+    /**
+     * The Text that displays this counter
+     */
+    private final Text _text;
+
+    /**
+     * The text to display after the number
+     */
+    private final String _suffix;
+
+    /**
+     * The characters currently being displayed
+     */
+    private final char[] _chars;
+
+    /**
+     * The number of characters currently being displayed
+     */
+    private int _length;
+
+    /**
+     * The value currently being displayed
+     */
+    private int _shown;
+
+    /**
+     * Has any value been displayed yet?
+     */
+    private boolean _valid;
+
+    /**
+     * Make a counter
+     *
+     * @param text
+     *            The Text that displays the counter. It needs room for
+     *            MAX_DIGITS characters plus the suffix.
+     * @param suffix
+     *            The text to display after the number
+     */
+    HudCounter(Text text, String suffix)
+    {
+        _text = text;
+        _suffix = suffix;
+        _chars = new char[MAX_DIGITS + suffix.length()];
+    }
+
+    /**
+     * Internal method to make a counter show whatever is published to a slot
+     *
+     * @param slot
+     *            The slot, such as GOODIES
+     * @param counter
+     *            The counter
+     */
+    static void attach(int slot, HudCounter counter)
+    {
+        _counters[slot] = counter;
+    }
+
+    /**
+     * Internal method to report that a counted value has changed. This is
+     * cheap when nothing is showing the value, or when it hasn't really
+     * changed.
+     *
+     * @param slot
+     *            The slot, such as GOODIES
+     * @param value
+     *            The new value
+     */
+    static void publish(int slot, int value)
+    {
+        HudCounter c = _counters[slot];
+        if (c != null)
+            c.show(value);
+    }
+
+    /**
+     * Call this when the HUD is reset, since the old counters' Texts are no
+     * longer on the screen
+     */
+    static void reset()
+    {
+        for (int i = 0; i < _counters.length; ++i)
+            _counters[i] = null;
+    }
+
+    /**
+     * Display a value, if it isn't already being displayed
+     *
+     * @param value
+     *            The value to display
+     */
+    void show(int value)
+    {
+        // the HUD freezes when the level ends
+        if (!Controls.timeractive || (_valid && value == _shown))
+            return;
+        _shown = value;
+        _valid = true;
+
+        // write the digits backwards into the end of the number's space, then
+        // slide them to the front. Negative values are handled as negatives,
+        // so that MIN_VALUE doesn't overflow
+        int pos = MAX_DIGITS;
+        int v = value;
+        do {
+            int d = v % 10;
+            _chars[--pos] = (char) ('0' + (d < 0 ? -d : d));
+            v /= 10;
+        } while (v != 0);
+        if (value < 0)
+            _chars[--pos] = '-';
+        _length = MAX_DIGITS - pos;
+        System.arraycopy(_chars, pos, _chars, 0, _length);
+        _suffix.getChars(0, _suffix.length(), _chars, _length);
+        _length += _suffix.length();
+
+        _text.setText(this);
+    }
+
+    /**
+     * @return The number of characters being displayed
+     */
+    @Override
+    public int length()
+    {
+        return _length;
+    }
+
+    /**
+     * @param index
+     *            The position of a character being displayed
+     * @return The character
+     */
+    @Override
+    public char charAt(int index)
+    {
+        return _chars[index];
+    }
+
+    /**
+     * @param start
+     *            The position of the first character
+     * @param end
+     *            The position after the last character
+     * @return A copy of some of the characters being displayed
+     */
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+        return new String(_chars, start, end - start);
+    }
+
+    /**
+     * @return A copy of the characters being displayed
+     */
+    @Override
+    public String toString()
+    {
+        return new String(_chars, 0, _length);
+    }
+}
@@ -0,0 +1,104 @@
+package edu.lehigh.cse.ale;
+
+import org.andengine.entity.shape.IAreaShape;
+import org.andengine.extension.physics.box2d.PhysicsConnector;
+import org.andengine.util.math.MathUtils;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+
+/**
+ * An InterpolatingConnector ties a sprite to a physics body, like any
+ * PhysicsConnector, but can also draw the sprite part of the way between the
+ * body's last two physics steps.
+ *
+ * The physics world steps at a fixed rate, which doesn't match the rate at
+ * which frames are drawn. When a sprite is simply put where its body is, it
+ * moves one step on some frames and zero or two steps on others, and fast
+ * things like bullets visibly jitter. When interpolation is on, the
+ * SteppedPhysicsWorld has each connector remember its body's position before
+ * the last step of each update, and then places each sprite between that
+ * position and the current one, by how far the world is into the next step.
+ * This draws the world slightly in the past, but moving smoothly.
+ *
+ * @author spear
+ */
+class InterpolatingConnector extends PhysicsConnector
+{
+    /**
+     * If a body moved more than this many meters farther than its velocity
+     * explains, it was moved by code, and the sprite jumps straight there
+     */
+    private static final float TELEPORT_SLACK = 0.25f;
+
+    /**
+     * The body's position and angle before the last step
+     */
+    private float _prevX, _prevY, _prevAngle;
+
+    /**
+     * Has the body's position before the last step been saved?
+     */
+    private boolean _hasPrevious;
+
+    /**
+     * Connect a sprite to a body
+     *
+     * @param shape
+     *            The sprite
+     * @param body
+     *            The body
+     * @param updatePosition
+     *            Should the sprite follow the body's position?
+     * @param updateRotation
+     *            Should the sprite follow the body's rotation?
+     */
+    InterpolatingConnector(IAreaShape shape, Body body, boolean updatePosition, boolean updateRotation)
+    {
+        super(shape, body, updatePosition, updateRotation);
+    }
+
+    /**
+     * Internal method to remember where the body is, before a step
+     */
+    void savePrevious()
+    {
+        Vector2 position = mBody.getPosition();
+        _prevX = position.x;
+        _prevY = position.y;
+        _prevAngle = mBody.getAngle();
+        _hasPrevious = true;
+    }
+
+    /**
+     * Internal method to place the sprite between the body's last two steps
+     *
+     * @param alpha
+     *            How far the world is into the next step, from 0 to 1
+     * @param stepLength
+     *            The length of a step, in seconds
+     */
+    void interpolate(float alpha, float stepLength)
+    {
+        Vector2 position = mBody.getPosition();
+        float x = position.x;
+        float y = position.y;
+        float angle = mBody.getAngle();
+        if (_hasPrevious && mBody.isActive()) {
+            float dx = x - _prevX;
+            float dy = y - _prevY;
+            Vector2 v = mBody.getLinearVelocity();
+            float reach = (Math.abs(v.x) + Math.abs(v.y)) * stepLength * 2 + TELEPORT_SLACK;
+            if (Math.abs(dx) + Math.abs(dy) <= reach) {
+                x = _prevX + dx * alpha;
+                y = _prevY + dy * alpha;
+                angle = _prevAngle + (angle - _prevAngle) * alpha;
+            }
+        }
+        if (mUpdatePosition)
+            mShape.setPosition(x * mPixelToMeterRatio - mShapeHalfBaseWidth, y * mPixelToMeterRatio
+                    - mShapeHalfBaseHeight);
+        if (mUpdateRotation)
+            mShape.setRotation(MathUtils.radToDeg(angle));
+    }
+}
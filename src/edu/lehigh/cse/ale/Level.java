@@ -3,16 +3,9 @@ package edu.lehigh.cse.ale;
 import java.util.ArrayList;
 
 import org.andengine.audio.music.Music;
-import org.andengine.audio.sound.Sound;
-import org.andengine.engine.handler.timer.ITimerCallback;
-import org.andengine.engine.handler.timer.TimerHandler;
 import org.andengine.entity.scene.Scene;
-import org.andengine.entity.scene.background.ParallaxBackground;
-import org.andengine.entity.scene.background.ParallaxBackground.ParallaxEntity;
 import org.andengine.entity.sprite.AnimatedSprite;
 import org.andengine.opengl.texture.region.TiledTextureRegion;
-import org.andengine.input.sensor.acceleration.AccelerationData;
-import org.andengine.extension.physics.box2d.FixedStepPhysicsWorld;
 
 import com.badlogic.gdx.math.Vector2;
 
@@ -50,12 +43,12 @@ public class Level
     /**
      * Sound to play when the level is won
      */
-    static Sound winSound;
+    static SoundEffect winSound;
 
     /**
      * Sound to play when the level is lost
      */
-    static Sound loseSound;
+    static SoundEffect loseSound;
 
     /**
      * Background music for this level
@@ -108,9 +101,10 @@ public class Level
 
     /**
      * Background image for this level. It is "parallax", which means it can
-     * scroll slower than the motion of the game.
+     * scroll slower than the motion of the game. Horizontal and vertical
+     * layers share it.
      */
-    static private ParallaxBackground background;
+    static private ScrollingBackground background;
 
     /**
      * Scrolling rate of the background
@@ -120,7 +114,7 @@ public class Level
     /**
      * The physics world for this game
      */
-    static FixedStepPhysicsWorld physics;
+    static SteppedPhysicsWorld physics;
 
     /**
      * List of entities that change behavior based on tilt
@@ -194,17 +188,20 @@ public class Level
     }
 
     /**
-     * When there is a phone tilt, this is run to adjust the forces on objects
-     * in the current level
+     * Internal method to adjust the forces on objects in the current level
+     * according to the phone's tilt. TiltInput calls this once before each
+     * physics step, on the update thread, with the newest filtered sample.
      * 
-     * @param info
-     *            The acceleration data
+     * @param tiltX
+     *            The acceleration in the X dimension
+     * @param tiltY
+     *            The acceleration in the Y dimension
      */
-    static void onAccelerationChanged(AccelerationData info)
+    static void applyTilt(float tiltX, float tiltY)
     {
         // get gravity from accelerometer
-        float xGravity = info.getX() * _gravityMultiplier;
-        float yGravity = info.getY() * _gravityMultiplier;
+        float xGravity = tiltX * _gravityMultiplier;
+        float yGravity = tiltY * _gravityMultiplier;
 
         // ensure -10 <= x <= 10
         xGravity = (xGravity > _xGravityMax) ? _xGravityMax : xGravity;
@@ -270,7 +267,7 @@ public class Level
      */
     public static void setWinSound(String soundName)
     {
-        Sound s = Media.getSound(soundName);
+        SoundEffect s = Media.getSound(soundName);
         winSound = s;
     }
 
@@ -282,7 +279,7 @@ public class Level
      */
     public static void setLoseSound(String soundName)
     {
-        Sound s = Media.getSound(soundName);
+        SoundEffect s = Media.getSound(soundName);
         loseSound = s;
     }
 
@@ -314,14 +311,12 @@ public class Level
      */
     public static void makeBackgroundLayer(String imgName, float factor, int x, int y)
     {
-        TiledTextureRegion ttr = Media.getImage(imgName);
         if (background == null) {
             // we'll configure the background as black
-            background = new ParallaxBackground(0, 0, 0);
+            background = new ScrollingBackground(0, 0, 0);
             current.setBackground(background);
         }
-        background.attachParallaxEntity(new ParallaxEntity(factor, new AnimatedSprite(x, y, ttr, ALE.self()
-                .getVertexBufferObjectManager())));
+        background.addLayer(imgName, factor, x, y, false);
     }
 
     /**
@@ -349,9 +344,8 @@ public class Level
     {
         if (background == null) {
             // configure the background based on the colors provided
-            background = new ParallaxBackground(red / 255, green / 255, blue / 255);
+            background = new ScrollingBackground(red / 255, green / 255, blue / 255);
             current.setBackground(background);
-            background.setParallaxValue(0);
         }
     }
 
@@ -381,11 +375,30 @@ public class Level
      */
     public static void enableTilt(float xGravityMax, float yGravityMax)
     {
-        ALE.self().configAccelerometer(true);
+        Platform.current().setTiltEnabled(true);
+        TiltInput.enable();
         _xGravityMax = xGravityMax;
         _yGravityMax = yGravityMax;
     }
 
+    /**
+     * Smooth the accelerometer's samples and ignore small tilts, so that
+     * tilting entities don't shake when the phone is held still. This should
+     * be called after enableTilt().
+     *
+     * @param timeConstant
+     *            How long, in seconds, it takes for entities to respond about
+     *            two thirds of the way to a change in tilt. Use 0 for no
+     *            smoothing.
+     * @param deadZone
+     *            Tilts smaller than this, in each dimension, are treated as no
+     *            tilt, before the gravity multiplier is applied
+     */
+    public static void setTiltFilter(float timeConstant, float deadZone)
+    {
+        TiltInput.setFilter(timeConstant, deadZone);
+    }
+
     /**
      * Reset the current level to a blank slate
      * 
@@ -415,43 +428,68 @@ public class Level
         _height = height;
         _gravityMultiplier = 1;
 
-        ALE.self()._camera.setBoundsEnabled(true);
-        ALE.self()._camera.setBounds(0, 0, width, height);
+        Platform.current().getCamera().setBoundsEnabled(true);
+        Platform.current().getCamera().setBounds(0, 0, width, height);
 
-        physics = new FixedStepPhysicsWorld(60, new Vector2(_initXGravity, _initYGravity), false)
+        physics = new SteppedPhysicsWorld(60, new Vector2(_initXGravity, _initYGravity), false)
         {
-            // the trick here is that if there is *either* a horizontal or
-            // vertical background, we need to update it
+            // the trick here is that if there is a background, we need to
+            // tell it where the camera is
             @Override
             public void onUpdate(float pSecondsElapsed)
             {
                 super.onUpdate(pSecondsElapsed);
+                // now that the step is done, handle its collisions
+                ContactQueue.drain();
                 if (background != null)
-                    background.setParallaxValue(ALE.self()._camera.getCenterX() / backgroundScrollFactor);
-                if (vertBackground != null)
-                    vertBackground.setParallaxValue(ALE.self()._camera.getCenterY() / backgroundScrollFactor);
+                    background.setScroll(Platform.current().getCamera().getCenterX() / backgroundScrollFactor,
+                            Platform.current().getCamera().getCenterY() / backgroundScrollFactor);
             }
         };
 
         // clear the stuff we explicitly manage in the physics world
         accelEntities.clear();
+        TiltInput.onNewLevel();
 
         // set handlers and listeners
         current.registerUpdateHandler(physics);
-        physics.setContactListener(ALE.self());
+        physics.setContactListener(ContactQueue.listener);
+
+        // collisions are handled after each physics step, then timers run,
+        // and then vanished entities are reclaimed
+        ContactQueue.onNewLevel();
+        CollisionDispatch.onNewLevel();
+        // enemies are filed by position right after each physics step, so
+        // that timers and bullets can find them
+        SpatialGrid.onNewLevel();
+        current.registerUpdateHandler(SpatialGrid.handler);
+        // things that have left the level vanish before the Reclaimer runs
+        PlayfieldBounds.onNewLevel();
+        current.registerUpdateHandler(PlayfieldBounds.handler);
+        TimerWheel.onNewLevel();
+        current.registerUpdateHandler(TimerWheel.handler);
+        Reclaimer.onNewLevel();
+        current.registerUpdateHandler(Reclaimer.handler);
+        SpriteBatcher.onNewLevel();
+        BulletField.onNewLevel();
+        Media.onNewLevel();
+        Util.onNewLevel();
+        TextureStats.onNewLevel();
 
         // reset the factories
+        PhysicsSprite.resetCollisionMasks();
         Hero.onNewLevel();
         Enemy.onNewLevel();
         Destination.onNewLevel();
         Goodie.onNewLevel();
         Controls.resetHUD();
         Obstacle.onNewLevel();
+        EnemyProjectile.onNewLevel();
 
         // set up defaults
-        ALE.self().configAccelerometer(false);
+        Platform.current().setTiltEnabled(false);
         setVictoryDestination(1);
-        ALE.self()._camera.setZoomFactorDirect(1);
+        Platform.current().getCamera().setZoomFactorDirect(1);
 
         // reset text
         textYouWon = "Next Level";
@@ -462,7 +500,6 @@ public class Level
         loseSound = null;
         music = null;
         background = null;
-        vertBackground = null;
         backgroundYouWon = null;
         backgroundYouLost = null;
     }
@@ -536,7 +573,8 @@ public class Level
     public static void drawPicture(int x, int y, int width, int height, String imgName)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager());
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager());
         current.attachChild(s);
         
         // [mfs] TODO: can we use one of these to control where a new decoration goes?
@@ -566,7 +604,8 @@ public class Level
     public static void drawPictureBehindScene(int x, int y, int width, int height, String imgName)
     {
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager());
+        AnimatedSprite s = new AnimatedSprite(x, y, width, height, ttr,
+                Platform.current().getVertexBufferObjectManager());
         // attach to back, instead of front... note that this requires us to
         // sort children in order to change the order in which they are
         // rendered, and that it assumes we're setting the ZIndex of all
@@ -600,12 +639,6 @@ public class Level
         backgroundYouLost = imgName;
     }
 
-    /**
-     * If we are doing a vertical scrolling background, we will use this instead
-     * of the other background field
-     */
-    static private VerticalParallaxBackground vertBackground;
-
     /**
      * Attach a vertical background layer to this scene
      * 
@@ -622,14 +655,12 @@ public class Level
      */
     public static void makeVerticalBackgroundLayer(String imgName, float factor, int x, int y)
     {
-        TiledTextureRegion ttr = Media.getImage(imgName);
-        if (vertBackground == null) {
+        if (background == null) {
             // we'll configure the background as black
-            vertBackground = new VerticalParallaxBackground(0, 0, 0);
-            current.setBackground(vertBackground);
+            background = new ScrollingBackground(0, 0, 0);
+            current.setBackground(background);
         }
-        vertBackground.attachVerticalParallaxEntity(new VerticalParallaxBackground.VerticalParallaxEntity(Math.abs(factor),
-                new AnimatedSprite(x, y, ttr, ALE.self().getVertexBufferObjectManager())));
+        background.addLayer(imgName, Math.abs(factor), x, y, true);
     }
 
     /**
@@ -647,11 +678,10 @@ public class Level
      */
     static public void setVerticalBackgroundColor(int red, int green, int blue)
     {
-        if (vertBackground == null) {
+        if (background == null) {
             // configure the background based on the colors provided
-            vertBackground = new VerticalParallaxBackground(red / 255, green / 255, blue / 255);
-            current.setBackground(vertBackground);
-            vertBackground.setParallaxValue(0);
+            background = new ScrollingBackground(red / 255, green / 255, blue / 255);
+            current.setBackground(background);
         }
     }
 
@@ -666,18 +696,50 @@ public class Level
      */
     public static void setTimerTrigger(int timerId, float howLong)
     {
-        final int id = timerId;
-        TimerHandler t = new TimerHandler(howLong, false, new ITimerCallback()
-        {
-            @Override
-            public void onTimePassed(TimerHandler th)
-            {
-                ALE.self().onTimeTrigger(Goodie.goodiescollected, id, MenuManager._currLevel);
-            }
-        });
-        Level.current.registerUpdateHandler(t);
+        TimerWheel.schedule(howLong, timeTriggerCallback, null, null, timerId);
+    }
+
+    /**
+     * Specify that you want some code to run over and over, with a fixed
+     * amount of time between runs. This is cheaper than calling
+     * setTimerTrigger again from inside onTimeTrigger.
+     * 
+     * @param timerId
+     *            A unique identifier for this timer
+     * @param initialDelay
+     *            How long to wait before the timer code runs the first time
+     * @param period
+     *            How long to wait between runs after that
+     * @return a handle that can be passed to cancelTimerTrigger
+     */
+    public static long setPeriodicTimerTrigger(int timerId, float initialDelay, float period)
+    {
+        return TimerWheel.schedulePeriodic(initialDelay, period, timeTriggerCallback, null, null, timerId);
+    }
+
+    /**
+     * Stop a periodic timer trigger from running again
+     * 
+     * @param handle
+     *            The value returned by setPeriodicTimerTrigger
+     */
+    public static void cancelTimerTrigger(long handle)
+    {
+        TimerWheel.cancel(handle);
     }
 
+    /**
+     * All timer triggers share this callback; the timer's tag is its ID
+     */
+    private static final TimerWheel.Callback timeTriggerCallback = new TimerWheel.Callback()
+    {
+        @Override
+        public void onTimer(TimerWheel.Entry e)
+        {
+            Game.current().onTimeTrigger(Goodie.goodiescollected, e.tag, MenuManager._currLevel);
+        }
+    };
+
     /**
      * Use this to make the accelerometer more or less responsive, by
      * multiplying accelerometer values by a constant.
@@ -690,4 +752,41 @@ public class Level
     {
         _gravityMultiplier = multiplier;
     }
+
+    /**
+     * Trade the accuracy of the physics simulation for CPU time. Fewer
+     * iterations make each step cheaper, but make stacks and joints less
+     * stable. This should be called after configure().
+     * 
+     * @param velocityIterations
+     *            Iterations for solving velocities in each step. The default
+     *            is 8.
+     * @param positionIterations
+     *            Iterations for solving positions in each step. The default is
+     *            8.
+     * @param maxStepsPerFrame
+     *            The most steps to run in one frame when the game falls
+     *            behind. Any more time than that is dropped, so the game slows
+     *            down instead of stalling.
+     */
+    public static void setPhysicsQuality(int velocityIterations, int positionIterations, int maxStepsPerFrame)
+    {
+        physics.setVelocityIterations(velocityIterations);
+        physics.setPositionIterations(positionIterations);
+        physics.setMaxSteps(maxStepsPerFrame);
+    }
+
+    /**
+     * Draw sprites between their last two physics steps, so that they move
+     * smoothly even when the screen refreshes at a different rate than the
+     * physics runs. This should be called after configure().
+     * 
+     * @param interpolate
+     *            True to draw sprites between steps, false to draw them where
+     *            the last step left them
+     */
+    public static void setPhysicsInterpolation(boolean interpolate)
+    {
+        physics.setInterpolation(interpolate);
+    }
 }
\ No newline at end of file
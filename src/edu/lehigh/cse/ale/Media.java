@@ -1,34 +1,226 @@
 package edu.lehigh.cse.ale;
 
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Hashtable;
 
 import org.andengine.audio.music.Music;
-import org.andengine.audio.music.MusicFactory;
 import org.andengine.audio.sound.Sound;
-import org.andengine.audio.sound.SoundFactory;
+import org.andengine.opengl.texture.ITexture;
 import org.andengine.opengl.texture.TextureOptions;
 import org.andengine.opengl.texture.atlas.bitmap.BitmapTextureAtlas;
-import org.andengine.opengl.texture.atlas.bitmap.BitmapTextureAtlasTextureRegionFactory;
+import org.andengine.opengl.texture.region.TextureRegion;
 import org.andengine.opengl.texture.region.TiledTextureRegion;
 import org.andengine.util.debug.Debug;
 
-import android.content.res.AssetManager;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-
 /**
  * The MediaFactory provides a mechanism for registering all of our images and
  * sounds
  * 
+ * By default, every image gets a texture of its own. When atlas packing is
+ * turned on, images are instead packed onto a few large textures, so that
+ * drawing sprites with different images doesn't require switching textures.
+ * 
+ * Registering an image only remembers its name. Once nameResources is done,
+ * only the images' sizes are read, to lay out the textures. The images are
+ * then decoded on worker threads, a few textures at a time, and each texture
+ * is uploaded on the GL thread as soon as its images are ready, while a
+ * loading screen shows progress.
+ * 
+ * When a texture memory budget is set, textures are instead loaded the first
+ * time one of their images is requested, or when a level preloads them. When
+ * the budget is exceeded, the textures that were used least recently, and not
+ * at all in the current level, are unloaded.
+ * 
+ * Big images, like backgrounds and boss art, can be compressed ahead of time
+ * with the ETC1 converter in the tools folder. When a compressed copy of a
+ * registered image exists, it is used instead of the PNG.
+ * 
  * @author spear
  */
 public class Media
 {
+    /**
+     * The width and height of a packed atlas
+     */
+    private static final int ATLAS_SIZE = 2048;
+
+    /**
+     * Images wider or taller than this still get a texture of their own, since
+     * they would leave little room for anything else
+     */
+    private static final int MAX_PACKED_SIZE = 512;
+
+    /**
+     * Space between packed images, so that filtering doesn't pick up pixels
+     * from a neighbor
+     */
+    private static final int PADDING = 1;
+
+    /**
+     * An image that is waiting to be packed
+     */
+    private static final class PendingImage
+    {
+        /**
+         * The name of the image file
+         */
+        String name;
+
+        /**
+         * The number of animation cells in the image
+         */
+        int cellColumns;
+
+        /**
+         * The size of the image
+         */
+        int width, height;
+
+        /**
+         * Where the packer put the image
+         */
+        int atlas, x, y;
+    }
+
+    /**
+     * Should images be packed onto shared atlases?
+     */
+    private static boolean _packImages;
+
+    /**
+     * Images that have been registered, but not yet placed in an atlas
+     */
+    private static final ArrayList<PendingImage> _pending = new ArrayList<PendingImage>();
+
+    /**
+     * How many bytes of decoded images may be waiting to be uploaded at once.
+     * An atlas that is bigger than this is still decoded, just on its own.
+     */
+    private static final int DECODE_BUDGET = 16 * 1024 * 1024;
+
+    /**
+     * Atlases that need to be decoded and loaded, in order
+     */
+    private static final ArrayList<ITexture> _atlasQueue = new ArrayList<ITexture>();
+
+    /**
+     * The next atlas in the queue to start decoding
+     */
+    private static int _nextAtlas;
+
+    /**
+     * Atlases whose images are being decoded
+     */
+    private static final ArrayList<ITexture> _decoding = new ArrayList<ITexture>();
+
+    /**
+     * Atlases that have been handed to the texture manager, but whose decoded
+     * images haven't reached texture memory yet
+     */
+    private static final ArrayList<ITexture> _uploading = new ArrayList<ITexture>();
+
+    /**
+     * Bytes of images that are being decoded, or are decoded and waiting to
+     * be uploaded
+     */
+    private static long _decodingBytes;
+
+    /**
+     * Bytes of images in all the atlases in the queue
+     */
+    private static long _queuedBytes;
+
+    /**
+     * Bytes of images in atlases that have been loaded
+     */
+    private static long _loadedBytes;
+
+    /**
+     * Whether an atlas is on the GPU, and when it was last used
+     */
+    private static final class Residency
+    {
+        /**
+         * The atlas, or compressed texture
+         */
+        ITexture atlas;
+
+        /**
+         * Bytes that the atlas takes on the GPU
+         */
+        long bytes;
+
+        /**
+         * Is the atlas loaded?
+         */
+        boolean resident;
+
+        /**
+         * When one of the atlas's images was last requested, as a count of
+         * requests
+         */
+        long lastUsed;
+
+        /**
+         * The last level in which one of the atlas's images was requested
+         */
+        int lastLevel;
+    }
+
+    /**
+     * Atlases that an image was requested from before they were loaded. They
+     * are being decoded, and each frame, the ones that are done are loaded.
+     */
+    private static final ArrayList<Residency> _arriving = new ArrayList<Residency>();
+
+    /**
+     * Loads the arriving atlases that have been decoded, once per frame for as
+     * long as any are left
+     */
+    private static final Runnable _finishArrivals = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            finishArrivals();
+        }
+    };
+
+    /**
+     * The residency of each atlas that Media made
+     */
+    private static final HashMap<ITexture, Residency> _residency = new HashMap<ITexture, Residency>();
+
+    /**
+     * Bytes of texture memory that textures may use before they are unloaded,
+     * or 0 to keep every texture loaded
+     */
+    private static long _textureBudget;
+
+    /**
+     * Bytes of texture memory used by loaded atlases
+     */
+    private static long _residentBytes;
+
+    /**
+     * Number of image requests so far, for ordering atlases by last use
+     */
+    private static long _requests;
+
+    /**
+     * Number of levels started so far
+     */
+    private static int _level;
+
     /**
      * Store the sounds used by this game
      */
-    static private final Hashtable<String, Sound> sounds = new Hashtable<String, Sound>();
+    static private final Hashtable<String, SoundEffect> sounds = new Hashtable<String, SoundEffect>();
 
     /**
      * Store the music used by this game
@@ -40,17 +232,22 @@ public class Media
      */
     static private final Hashtable<String, TiledTextureRegion> images = new Hashtable<String, TiledTextureRegion>();
 
+    /**
+     * Store the images that repeat, each on a texture of its own
+     */
+    static private final Hashtable<String, TextureRegion> repeatingImages = new Hashtable<String, TextureRegion>();
+
     /**
      * Internal method to retrieve a sound by name
      * 
      * @param soundName
      *            Name of the sound file to retrieve
      * 
-     * @return a Sound object that can be used for sound effects
+     * @return a SoundEffect object that can be used for sound effects
      */
-    static Sound getSound(String soundName)
+    static SoundEffect getSound(String soundName)
     {
-        Sound ret = sounds.get(soundName);
+        SoundEffect ret = sounds.get(soundName);
         if (ret == null)
             Debug.d("Error retreiving sound " + soundName + " ... your program is probably about to crash");
         return ret;
@@ -84,8 +281,83 @@ public class Media
     public static TiledTextureRegion getImage(String imgName)
     {
         TiledTextureRegion ret = images.get(imgName);
+        // the image might have been registered since the last time we loaded
+        if (ret == null && !_pending.isEmpty()) {
+            loadImagesNow();
+            ret = images.get(imgName);
+        }
         if (ret == null)
             Debug.d("Error retreiving image " + imgName + " ... your program is probably about to crash");
+        else if (_textureBudget > 0)
+            makeResident(ret);
+        return ret;
+    }
+
+    /**
+     * Internal method to get an image on a texture that repeats, for
+     * scrolling backgrounds. Only textures whose sides are powers of two can
+     * repeat, so the image is stretched to fill the smallest one that holds
+     * it. The texture is made and loaded the first time the image is
+     * requested, and kept for as long as the game runs. An ETC1 copy is used
+     * instead if the converter in the tools folder made one that can repeat.
+     * 
+     * @param imgName
+     *            Name of the image file
+     * @param size
+     *            Where to put the width and height of the image, before it
+     *            was stretched
+     * @return the region covering the whole texture, or null if the image
+     *         couldn't be read
+     */
+    static TextureRegion getRepeatingImage(String imgName, int[] size)
+    {
+        Platform platform = Platform.current();
+        if (!platform.readImageSize(imgName, size)) {
+            Debug.d("Error retreiving image " + imgName + " ... your program is probably about to crash");
+            return null;
+        }
+        TextureRegion ret = repeatingImages.get(imgName);
+        if (ret == null)
+            ret = loadRepeatingCompressed(imgName);
+        if (ret == null) {
+            int width = 1;
+            while (width < size[0] && width < ATLAS_SIZE)
+                width <<= 1;
+            int height = 1;
+            while (height < size[1] && height < ATLAS_SIZE)
+                height <<= 1;
+            BitmapTextureAtlas bta = new BitmapTextureAtlas(platform.getTextureManager(), width, height,
+                    TextureOptions.REPEATING_BILINEAR);
+            ret = platform.fillAtlasWithImage(bta, imgName);
+            platform.loadAtlas(bta);
+            TextureStats.track(bta, imgName);
+            TextureStats.loaded(bta);
+            repeatingImages.put(imgName, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Internal method to use an ETC1 copy of a repeating image. The converter
+     * stretches the images in the folders it is told repeat, just as
+     * getRepeatingImage stretches the originals, and a copy that wasn't
+     * stretched can't be used, since its texture couldn't repeat.
+     * 
+     * @param imgName
+     *            Name of the image file
+     * @return the region covering the whole texture, or null if there is no
+     *         copy that can repeat
+     */
+    private static TextureRegion loadRepeatingCompressed(String imgName)
+    {
+        int[] size = new int[2];
+        ITexture t = makeCompressed(imgName, TextureOptions.REPEATING_BILINEAR, true, size, new long[1]);
+        if (t == null)
+            return null;
+        Platform.current().loadAtlas(t);
+        TextureStats.loaded(t);
+        TextureRegion ret = new TextureRegion(t, 0, 0, size[0], size[1]);
+        repeatingImages.put(imgName, ret);
         return ret;
     }
 
@@ -102,29 +374,7 @@ public class Media
      */
     static public void registerImage(String imgName)
     {
-        AssetManager am = ALE.self().getAssets();
-        Bitmap b = null;
-        try {
-            b = BitmapFactory.decodeStream(am.open(imgName));
-        }
-        catch (Exception e) {
-            Debug.d("Error loading image file " + imgName + " ... your program will probably crash when you try to use it.  Is the file in your assets?");
-            return;
-        }
-        int width = b.getWidth();
-        int height = b.getHeight();
-
-        if (width >2048)
-            Debug.d("Image file " + imgName + " has a width of " + width + "... that's probably too big!");
-        if (height > 2048)
-            Debug.d("Image file " + imgName + " has a height of " + height + "... that's probably too big!");
-        
-        BitmapTextureAtlas bta = new BitmapTextureAtlas(ALE.self().getTextureManager(), width, height,
-                TextureOptions.DEFAULT);
-        TiledTextureRegion ttr = BitmapTextureAtlasTextureRegionFactory.createTiledFromAsset(bta, ALE.self(),
-                imgName, 0, 0, 1, 1);
-        images.put(imgName, ttr);
-        ALE.self().getEngine().getTextureManager().loadTexture(bta);
+        registerAnimatableImage(imgName, 1);
     }
 
     /**
@@ -146,29 +396,533 @@ public class Media
      */
     static public void registerAnimatableImage(String imgName, int cellColumns)
     {
-        AssetManager am = ALE.self().getAssets();
-        Bitmap b = null;
+        PendingImage p = new PendingImage();
+        p.name = imgName;
+        p.cellColumns = cellColumns;
+        _pending.add(p);
+    }
+
+    /**
+     * Turn atlas packing on or off. This should be called at the beginning of
+     * nameResources, before any images are registered.
+     * 
+     * When packing is on, registered images are packed onto shared 2048x2048
+     * atlases after nameResources finishes, instead of each getting a texture
+     * of its own. Images that are more than 512 pixels wide or tall still get
+     * their own texture.
+     * 
+     * @param pack
+     *            true to pack images onto shared atlases
+     */
+    static public void setAtlasPacking(boolean pack)
+    {
+        _packImages = pack;
+    }
+
+    /**
+     * Internal method to lay out all of the images that are waiting, and queue
+     * their atlases for decoding. Only the images' sizes are read. When
+     * packing, images are placed on shelves, tallest first, so that each shelf
+     * wastes as little height as possible.
+     */
+    static void loadImages()
+    {
+        if (_pending.isEmpty())
+            return;
+        Platform platform = Platform.current();
+
+        // find out how big everything is
+        int[] size = new int[2];
+        ArrayList<PendingImage> packed = new ArrayList<PendingImage>();
+        ArrayList<PendingImage> alone = new ArrayList<PendingImage>();
+        for (PendingImage p : _pending) {
+            // prefer a copy that was compressed ahead of time
+            if (loadCompressed(p))
+                continue;
+            if (!platform.readImageSize(p.name, size)) {
+                Debug.d("Error loading image file " + p.name + " ... your program will probably crash when you try to use it.  Is the file in your assets?");
+                continue;
+            }
+            p.width = size[0];
+            p.height = size[1];
+            if (p.width > 2048)
+                Debug.d("Image file " + p.name + " has a width of " + p.width + "... that's probably too big!");
+            if (p.height > 2048)
+                Debug.d("Image file " + p.name + " has a height of " + p.height + "... that's probably too big!");
+            // big images aren't worth packing
+            if (_packImages && p.width <= MAX_PACKED_SIZE && p.height <= MAX_PACKED_SIZE)
+                packed.add(p);
+            else
+                alone.add(p);
+        }
+        _pending.clear();
+
+        // images that aren't packed get an atlas of their own
+        for (PendingImage p : alone) {
+            BitmapTextureAtlas bta = new BitmapTextureAtlas(platform.getTextureManager(), p.width, p.height,
+                    TextureOptions.DEFAULT);
+            TiledTextureRegion ttr = platform.addImageToAtlas(bta, p.name, 0, 0, p.width, p.height, p.cellColumns);
+            if (ttr != null)
+                images.put(p.name, ttr);
+            TextureStats.track(bta, p.name);
+            queueAtlas(bta, atlasBytes(bta));
+        }
+        if (packed.isEmpty())
+            return;
+
+        Collections.sort(packed, new Comparator<PendingImage>()
+        {
+            @Override
+            public int compare(PendingImage a, PendingImage b)
+            {
+                return a.height != b.height ? b.height - a.height : b.width - a.width;
+            }
+        });
+
+        // place the images on shelves, starting a new atlas whenever one
+        // fills up, and remember how much of each atlas is used
+        ArrayList<Integer> usedHeights = new ArrayList<Integer>();
+        int atlas = 0, x = 0, y = 0, shelfHeight = 0;
+        for (PendingImage p : packed) {
+            if (x + p.width > ATLAS_SIZE) {
+                y += shelfHeight + PADDING;
+                x = 0;
+                shelfHeight = 0;
+            }
+            if (y + p.height > ATLAS_SIZE) {
+                usedHeights.add(y);
+                atlas++;
+                x = 0;
+                y = 0;
+                shelfHeight = 0;
+            }
+            p.atlas = atlas;
+            p.x = x;
+            p.y = y;
+            x += p.width + PADDING;
+            shelfHeight = Math.max(shelfHeight, p.height);
+        }
+        usedHeights.add(y + shelfHeight);
+
+        // now make the atlases, trimming unused height so the last one isn't
+        // mostly empty, and fill them
+        BitmapTextureAtlas[] atlases = new BitmapTextureAtlas[usedHeights.size()];
+        for (int i = 0; i < atlases.length; ++i) {
+            int height = 1;
+            while (height < usedHeights.get(i))
+                height <<= 1;
+            atlases[i] = new BitmapTextureAtlas(platform.getTextureManager(), ATLAS_SIZE, height,
+                    TextureOptions.DEFAULT);
+        }
+        for (PendingImage p : packed) {
+            TiledTextureRegion ttr = platform.addImageToAtlas(atlases[p.atlas], p.name, p.x, p.y, p.width, p.height,
+                    p.cellColumns);
+            if (ttr != null)
+                images.put(p.name, ttr);
+        }
+        for (int i = 0; i < atlases.length; ++i) {
+            TextureStats.track(atlases[i], "packed atlas " + i);
+            queueAtlas(atlases[i], atlasBytes(atlases[i]));
+        }
+    }
+
+    /**
+     * Internal method to use an ETC1 copy of an image, if the converter in
+     * the tools folder made one. The copy of "bg/sky.png" is "bg/sky.pkm",
+     * and if the image has transparency, "bg/sky_alpha.pkm" holds it. The
+     * copy gets a texture of its own, which needs an eighth of the memory
+     * of the original, or a quarter with transparency, and doesn't need to
+     * be decoded.
+     * 
+     * @param p
+     *            The image
+     * @return true if the compressed copy will be used
+     */
+    private static boolean loadCompressed(PendingImage p)
+    {
+        int[] size = new int[2];
+        long[] bytes = new long[1];
+        ITexture t = makeCompressed(p.name, TextureOptions.BILINEAR, false, size, bytes);
+        if (t == null)
+            return false;
+        images.put(p.name, TiledTextureRegion.create(t, 0, 0, size[0], size[1], p.cellColumns, 1));
+        queueAtlas(t, bytes[0]);
+        return true;
+    }
+
+    /**
+     * Internal method to make a texture from an image's ETC1 copy, if there
+     * is one, and start tracking it
+     * 
+     * @param imgName
+     *            Name of the image file
+     * @param options
+     *            How the texture is sampled
+     * @param powerOfTwo
+     *            true if the copy can only be used if its width and height
+     *            are powers of two
+     * @param size
+     *            Where to put the width and height of the copy
+     * @param bytes
+     *            Where to put the texture memory it needs
+     * @return the texture, or null if there is no copy that can be used
+     */
+    private static ITexture makeCompressed(String imgName, TextureOptions options, boolean powerOfTwo, int[] size,
+            long[] bytes)
+    {
+        int dot = imgName.lastIndexOf('.');
+        String base = dot < 0 ? imgName : imgName.substring(0, dot);
+        if (!readCompressedSize(base + ".pkm", size))
+            return null;
+        if (powerOfTwo && (Integer.bitCount(size[0]) != 1 || Integer.bitCount(size[1]) != 1))
+            return null;
+        String alphaName = base + "_alpha.pkm";
+        if (!readCompressedSize(alphaName, new int[2]))
+            alphaName = null;
+        ITexture t = Platform.current().makeCompressedTexture(base + ".pkm", alphaName, size[0], size[1], options);
+        if (t == null)
+            return null;
+        // ETC1 stores each 4x4 block of pixels in 8 bytes
+        bytes[0] = ((size[0] + 3) / 4) * ((size[1] + 3) / 4) * 8L;
+        if (alphaName != null)
+            bytes[0] *= 2;
+        TextureStats.track(t, imgName, alphaName == null ? "ETC1" : "ETC1+alpha", bytes[0]);
+        return t;
+    }
+
+    /**
+     * Internal method to read the size of an ETC1 image from its header,
+     * which is "PKM 10", the format, the size rounded up to whole blocks, and
+     * then the real size
+     * 
+     * @param name
+     *            The name of the compressed file
+     * @param size
+     *            Where to put the width and height
+     * @return true if the file exists and is an ETC1 image
+     */
+    private static boolean readCompressedSize(String name, int[] size)
+    {
+        DataInputStream in = null;
         try {
-            b = BitmapFactory.decodeStream(am.open(imgName));
+            in = new DataInputStream(Platform.current().openAsset(name));
+            if (in.readInt() != 0x504B4D20)
+                return false;
+            in.skipBytes(8);
+            size[0] = in.readUnsignedShort();
+            size[1] = in.readUnsignedShort();
+            return true;
         }
-        catch (Exception e) {
-            Debug.d("Error loading image file " + imgName + " ... your program will probably crash when you try to use it.  Is the file in your assets?");
+        catch (IOException e) {
+            return false;
+        }
+        finally {
+            try {
+                if (in != null)
+                    in.close();
+            }
+            catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * Internal method to add an atlas to the queue for decoding
+     * 
+     * @param bta
+     *            An atlas whose images have all been added, or a compressed
+     *            texture
+     * @param bytes
+     *            The texture memory it needs
+     */
+    private static void queueAtlas(ITexture bta, long bytes)
+    {
+        Residency r = new Residency();
+        r.atlas = bta;
+        r.bytes = bytes;
+        r.lastLevel = -1;
+        _residency.put(bta, r);
+        // with a budget, atlases wait until they're needed
+        if (_textureBudget > 0)
             return;
+        _atlasQueue.add(bta);
+        _queuedBytes += r.bytes;
+    }
+
+    /**
+     * Internal method to figure out how much memory an atlas's decoded images
+     * need
+     * 
+     * @param bta
+     *            The atlas
+     * @return The number of bytes
+     */
+    private static long atlasBytes(BitmapTextureAtlas bta)
+    {
+        return 4L * bta.getWidth() * bta.getHeight();
+    }
+
+    /**
+     * Internal method to move image loading along. Atlases whose images have
+     * been decoded are handed to the texture manager, which uploads them on
+     * the GL thread, and more atlases are started, as long as the decoded
+     * images that haven't been uploaded yet stay within the budget. This
+     * should be called once per frame until it returns true.
+     * 
+     * @return true if every queued atlas has been handed to the texture
+     *         manager
+     */
+    static boolean updateLoading()
+    {
+        Platform platform = Platform.current();
+        // the decoded images only go away once the upload has copied them
+        for (int i = _uploading.size() - 1; i >= 0; --i) {
+            ITexture bta = _uploading.get(i);
+            if (platform.isUploaded(bta)) {
+                _decodingBytes -= _residency.get(bta).bytes;
+                _uploading.remove(i);
+            }
+        }
+        for (int i = _decoding.size() - 1; i >= 0; --i) {
+            ITexture bta = _decoding.get(i);
+            if (platform.isDecoded(bta)) {
+                Residency r = _residency.get(bta);
+                load(r);
+                _loadedBytes += r.bytes;
+                _decoding.remove(i);
+                _uploading.add(bta);
+            }
         }
-        int width = b.getWidth();
-        int height = b.getHeight();
+        while (_nextAtlas < _atlasQueue.size()) {
+            ITexture bta = _atlasQueue.get(_nextAtlas);
+            long bytes = _residency.get(bta).bytes;
+            // always allow one atlas to decode, even if it is bigger than the
+            // budget or uploads are behind, so that loading never stalls
+            if (!_decoding.isEmpty() && _decodingBytes + bytes > DECODE_BUDGET)
+                break;
+            platform.startDecoding(bta);
+            _decoding.add(bta);
+            _decodingBytes += bytes;
+            _nextAtlas++;
+        }
+        if (!_decoding.isEmpty())
+            return false;
+        _atlasQueue.clear();
+        _nextAtlas = 0;
+        _queuedBytes = 0;
+        _loadedBytes = 0;
+        return true;
+    }
 
-        if (width >2048)
-            Debug.d("Image file " + imgName + " has a width of " + width + "... that's probably too big!");
-        if (height > 2048)
-            Debug.d("Image file " + imgName + " has a height of " + height + "... that's probably too big!");
+    /**
+     * Internal method to report how much of the image loading is done
+     * 
+     * @return A number between 0 and 1
+     */
+    static float getLoadingProgress()
+    {
+        if (_queuedBytes == 0)
+            return 1;
+        return (float) _loadedBytes / _queuedBytes;
+    }
 
-        BitmapTextureAtlas bta = new BitmapTextureAtlas(ALE.self().getTextureManager(), width, height,
-                TextureOptions.DEFAULT);
-        TiledTextureRegion ttr = BitmapTextureAtlasTextureRegionFactory.createTiledFromAsset(bta, ALE.self(),
-                imgName, 0, 0, cellColumns, 1);
-        images.put(imgName, ttr);
-        ALE.self().getEngine().getTextureManager().loadTexture(bta);
+    /**
+     * Set a limit on how much texture memory images may use. Once a budget is
+     * set, images are only loaded when they are first needed, and images that
+     * haven't been used in the current level are unloaded when the limit is
+     * reached. Images that the current level uses are never unloaded, so a
+     * level can go over the limit. This should be called at the beginning of
+     * nameResources.
+     * 
+     * @param megabytes
+     *            The budget, in megabytes, or 0 to keep every image loaded
+     */
+    static public void setTextureMemoryBudget(int megabytes)
+    {
+        _textureBudget = megabytes * 1024L * 1024L;
+    }
+
+    /**
+     * Report how much texture memory the images that are loaded use
+     * 
+     * @return The number of bytes
+     */
+    static public long getResidentTextureBytes()
+    {
+        return _residentBytes;
+    }
+
+    /**
+     * Load some images now, so that the level doesn't pause to load them the
+     * first time they are used. This only matters when there is a texture
+     * memory budget, and should be called while configuring a level.
+     * 
+     * @param imgNames
+     *            The names of the images that the level will use
+     */
+    static public void preloadImages(String... imgNames)
+    {
+        if (_textureBudget == 0)
+            return;
+        Platform platform = Platform.current();
+        // start every image decoding at once, and then wait for all of them
+        ArrayList<Residency> needed = new ArrayList<Residency>();
+        for (String name : imgNames) {
+            TiledTextureRegion ttr = images.get(name);
+            Residency r = ttr == null ? null : _residency.get(ttr.getTexture());
+            if (r == null)
+                continue;
+            touch(r);
+            if (!r.resident && !needed.contains(r)) {
+                // an atlas that is already arriving is already decoding
+                if (!_arriving.contains(r))
+                    platform.startDecoding(r.atlas);
+                needed.add(r);
+            }
+        }
+        for (Residency r : needed) {
+            waitForDecode(r.atlas);
+            load(r);
+        }
+        evict();
+    }
+
+    /**
+     * Internal method to note that a new level is starting, so that the
+     * previous level's images may be unloaded
+     */
+    static void onNewLevel()
+    {
+        _level++;
+    }
+
+    /**
+     * Internal method to make sure that an image's atlas is loaded, and note
+     * that it was used. If the atlas isn't loaded, this only starts decoding
+     * it, and the atlas is loaded on a later frame, once its images are ready.
+     * Until then, sprites that use the image don't appear.
+     * 
+     * @param ttr
+     *            The image
+     */
+    private static void makeResident(TiledTextureRegion ttr)
+    {
+        Residency r = _residency.get(ttr.getTexture());
+        if (r == null)
+            return;
+        touch(r);
+        if (r.resident || _arriving.contains(r))
+            return;
+        Platform platform = Platform.current();
+        platform.startDecoding(r.atlas);
+        if (_arriving.isEmpty())
+            platform.runNextFrame(_finishArrivals);
+        _arriving.add(r);
+    }
+
+    /**
+     * Internal method to load the arriving atlases that have been decoded, and
+     * check again next frame if any are still decoding
+     */
+    private static void finishArrivals()
+    {
+        Platform platform = Platform.current();
+        for (int i = _arriving.size() - 1; i >= 0; --i) {
+            Residency r = _arriving.get(i);
+            // preloadImages may have loaded it already
+            if (!r.resident && !platform.isDecoded(r.atlas))
+                continue;
+            if (!r.resident)
+                load(r);
+            // swap-remove, since the order doesn't matter
+            int last = _arriving.size() - 1;
+            _arriving.set(i, _arriving.get(last));
+            _arriving.remove(last);
+        }
+        evict();
+        if (!_arriving.isEmpty())
+            platform.runNextFrame(_finishArrivals);
+    }
+
+    /**
+     * Internal method to note that an atlas was used
+     * 
+     * @param r
+     *            The atlas's residency
+     */
+    private static void touch(Residency r)
+    {
+        r.lastUsed = ++_requests;
+        r.lastLevel = _level;
+    }
+
+    /**
+     * Internal method to wait for an atlas's images to be decoded. Only
+     * preloadImages waits, while a level is being configured; during play,
+     * makeResident checks again on the next frame instead.
+     * 
+     * @param bta
+     *            An atlas that startDecoding was called on
+     */
+    private static void waitForDecode(ITexture bta)
+    {
+        while (!Platform.current().isDecoded(bta)) {
+            try {
+                Thread.sleep(1);
+            }
+            catch (InterruptedException e) {
+            }
+        }
+    }
+
+    /**
+     * Internal method to load an atlas whose images have been decoded
+     * 
+     * @param r
+     *            The atlas's residency
+     */
+    private static void load(Residency r)
+    {
+        Platform.current().loadAtlas(r.atlas);
+        TextureStats.loaded(r.atlas);
+        r.resident = true;
+        _residentBytes += r.bytes;
+    }
+
+    /**
+     * Internal method to unload the least recently used atlases until the
+     * budget is met, without touching any that the current level has used
+     */
+    private static void evict()
+    {
+        while (_textureBudget > 0 && _residentBytes > _textureBudget) {
+            Residency victim = null;
+            for (Residency r : _residency.values())
+                if (r.resident && r.lastLevel != _level && (victim == null || r.lastUsed < victim.lastUsed))
+                    victim = r;
+            if (victim == null)
+                return;
+            Platform.current().unloadAtlas(victim.atlas);
+            TextureStats.unloaded(victim.atlas);
+            victim.resident = false;
+            _residentBytes -= victim.bytes;
+        }
+    }
+
+    /**
+     * Internal method to load every registered image right away, for when
+     * there is no loading screen to show progress on
+     */
+    static void loadImagesNow()
+    {
+        loadImages();
+        while (!updateLoading()) {
+            try {
+                Thread.sleep(1);
+            }
+            catch (InterruptedException e) {
+            }
+        }
     }
 
     /**
@@ -187,17 +941,9 @@ public class Media
      */
     static public void registerMusic(String musicName, boolean loop)
     {
-        try {
-            Music m = MusicFactory.createMusicFromAsset(ALE.self().getEngine().getMusicManager(),
-                    ALE.self(), musicName);
-            m.setLooping(loop);
+        Music m = Platform.current().loadMusic(musicName, loop);
+        if (m != null)
             tunes.put(musicName, m);
-        }
-        catch (final IOException e) {
-            Debug.d("Error encountered while trying to load audio file " + musicName
-                    + ".  Common causes include a misspelled file name, an incorrect path, "
-                    + "or an invalid file type.");
-        }
     }
 
     /**
@@ -213,16 +959,47 @@ public class Media
      */
     static public void registerSound(String soundName)
     {
-        try {
-            Sound s = SoundFactory.createSoundFromAsset(ALE.self().getEngine().getSoundManager(),
-                    ALE.self(), soundName);
-            sounds.put(soundName, s);
-        }
-        catch (IOException e) {
-            Debug.d("Error encountered while trying to load audio file " + soundName
-                    + ".  Common causes include a misspelled file name, an incorrect path, "
-                    + "or an invalid file type.");
-        }
+        registerSound(soundName, Mixer.MAX_STREAMS, 0, 0);
+    }
+
+    /**
+     * Register a sound file, along with limits on how often it can play.
+     * Sounds that play often, like gunfire, should have low limits, so they
+     * don't crowd out more important sounds.
+     * 
+     * @param soundName
+     *            the name of the sound file (assumed to be in the "assets"
+     *            folder). This should be of the form "sound.ogg", and should be
+     *            of type "ogg".
+     * @param maxVoices
+     *            The most copies of this sound that can play at once. When
+     *            another copy starts, the oldest one stops.
+     * @param priority
+     *            When too many sounds are playing, this sound can stop one
+     *            whose priority is the same or lower, and is dropped
+     *            otherwise
+     * @param minInterval
+     *            The least time, in seconds, between starting two copies of
+     *            this sound. Copies requested sooner are dropped.
+     */
+    static public void registerSound(String soundName, int maxVoices, int priority, float minInterval)
+    {
+        Sound s = Platform.current().loadSound(soundName);
+        if (s != null)
+            sounds.put(soundName, new SoundEffect(s, Math.max(1, maxVoices), priority, minInterval, Mixer
+                    .readLength(soundName)));
+    }
+
+    /**
+     * Limit how many sound effects can play at once, across all sounds. The
+     * default, which is also the most allowed, is 8.
+     * 
+     * @param voices
+     *            The number of sounds that can play at once
+     */
+    static public void setMaxSoundVoices(int voices)
+    {
+        Mixer.setMaxVoices(voices);
     }
 
 }
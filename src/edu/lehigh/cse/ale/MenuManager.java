@@ -8,6 +8,7 @@ import java.io.IOException;
 
 import org.andengine.engine.Engine;
 import org.andengine.engine.camera.hud.HUD;
+import org.andengine.engine.handler.IUpdateHandler;
 import org.andengine.engine.options.ScreenOrientation;
 import org.andengine.entity.primitive.Rectangle;
 import org.andengine.entity.scene.IOnSceneTouchListener;
@@ -119,12 +120,16 @@ public class MenuManager
         ttrInvis = BitmapTextureAtlasTextureRegionFactory.createTiledFromAsset(bta, ALE.self(), "invis.png", 0,
                 0, 1, 1);
         ALE.self().getEngine().getTextureManager().loadTexture(bta);
+        TextureStats.track(bta, "invis.png");
+        TextureStats.loaded(bta);
 
         bta = new BitmapTextureAtlas(ALE.self().getTextureManager(), 256, 256, TextureOptions.DEFAULT);
         menuFont = new Font(ALE.self().getFontManager(), bta, Typeface.create(Typeface.DEFAULT, Typeface.BOLD),
                 32, true, Color.WHITE);
         ALE.self().getTextureManager().loadTexture(bta);
         ALE.self().getFontManager().loadFont(menuFont);
+        TextureStats.track(bta, "menu font");
+        TextureStats.loaded(bta);
     }
 
     /**
@@ -135,7 +140,7 @@ public class MenuManager
         if (_currHelp < Configuration.getHelpScenes()) {
             _mode = Modes.HELP;
             _currHelp++;
-            ALE.self().configureHelpScene(_currHelp);
+            Game.current().configureHelpScene(_currHelp);
             ALE.self().getEngine().setScene(ALE.self().helpScene._current);
         }
         else {
@@ -157,7 +162,7 @@ public class MenuManager
     {
         if (_mode == Modes.SPLASH)
             return drawSplash();
-        ALE.self().configureLevel(1);
+        Game.current().configureLevel(1);
         return Level.current;
     }
 
@@ -283,7 +288,7 @@ public class MenuManager
                         // now draw the chooser screen
                         ALE.self().getEngine().clearUpdateHandlers();
                         _currLevel = level;
-                        ALE.self().configureLevel(level);
+                        Game.current().configureLevel(level);
                         ALE.self().getEngine().setScene(Level.current);
                         if (Level.music != null)
                             Level.music.play();
@@ -362,6 +367,44 @@ public class MenuManager
         return s;
     }
 
+    /**
+     * Draw a loading screen, with a bar that fills as images are loaded. When
+     * they are all loaded, switch to the regular display.
+     * 
+     * @return A scene that can be drawn by andEngine
+     */
+    Scene drawLoading()
+    {
+        Scene s = new Scene();
+        reinitCamera();
+        float width = Configuration.getCameraWidth() * 0.6f;
+        float x = (Configuration.getCameraWidth() - width) / 2;
+        float y = Configuration.getCameraHeight() / 2;
+        Rectangle outline = new Rectangle(x - 2, y - 2, width + 4, 14, ALE.self().getVertexBufferObjectManager());
+        outline.setColor(0.5f, 0.5f, 0.5f);
+        s.attachChild(outline);
+        final Rectangle bar = new Rectangle(x, y, 0, 10, ALE.self().getVertexBufferObjectManager());
+        s.attachChild(bar);
+        final float fullWidth = width;
+        s.registerUpdateHandler(new IUpdateHandler()
+        {
+            @Override
+            public void onUpdate(float secondsElapsed)
+            {
+                if (Media.updateLoading())
+                    ALE.self().getEngine().setScene(display());
+                else
+                    bar.setWidth(fullWidth * Media.getLoadingProgress());
+            }
+
+            @Override
+            public void reset()
+            {
+            }
+        });
+        return s;
+    }
+
     /**
      * Draw a splash screen
      * 
@@ -434,7 +477,7 @@ public class MenuManager
                 // now draw the chooser screen
                 ALE.self().getEngine().clearUpdateHandlers();
                 _currLevel = 1;
-                ALE.self().configureLevel(1);
+                Game.current().configureLevel(1);
                 ALE.self().getEngine().setScene(Level.current);
                 if (Level.music != null)
                     Level.music.play();
@@ -536,7 +579,7 @@ public class MenuManager
                 // now draw the chooser screen
                 ALE.self().getEngine().clearUpdateHandlers();
                 ALE.self()._camera.setHUD(new HUD());
-                ALE.self().configureLevel(_currLevel);
+                Game.current().configureLevel(_currLevel);
                 ALE.self().getEngine().setScene(Level.current);
                 if (Level.music != null)
                     Level.music.play();
@@ -613,7 +656,7 @@ public class MenuManager
                         Level.music.pause();
                     ALE.self().getEngine().clearUpdateHandlers();
                     ALE.self()._camera.setHUD(new HUD());
-                    ALE.self().configureLevel(_currLevel);
+                    Game.current().configureLevel(_currLevel);
                     ALE.self().getEngine().setScene(Level.current);
                     if (Level.music != null)
                         Level.music.play();
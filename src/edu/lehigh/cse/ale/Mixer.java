@@ -0,0 +1,217 @@
+package edu.lehigh.cse.ale;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The Mixer decides which sound effects actually get to play.
+ *
+ * Every shot, explosion, and pickup used to start a new stream in the sound
+ * pool, so a heavy wave could ask for dozens of streams in a second. The
+ * Mixer keeps track of a fixed number of voices instead, and remembers when
+ * each one will finish. A sound won't start if it started too recently, or if
+ * too many copies of it are already playing, unless it can take the voice of
+ * its own oldest copy. When every voice is busy, a new sound takes the voice
+ * of the least important sound that is playing, as long as that sound isn't
+ * more important than the new one; otherwise the new sound is dropped.
+ *
+ * Since the sound pool can't say when a sound ends, the length of each sound
+ * is read from its Ogg file when it is registered.
+ *
+ * @author spear
+ */
+class Mixer
+{
+    /**
+     * The number of streams the sound pool is created with. The Mixer never
+     * uses more, so the pool never has to steal streams on its own.
+     */
+    static final int MAX_STREAMS = 8;
+
+    /**
+     * How long to assume a sound lasts when its length can't be read
+     */
+    private static final float DEFAULT_LENGTH = 1;
+
+    /**
+     * The sound playing in each voice, or null
+     */
+    private static final SoundEffect[] _effects = new SoundEffect[MAX_STREAMS];
+
+    /**
+     * The sound pool's stream for each voice
+     */
+    private static final int[] _streams = new int[MAX_STREAMS];
+
+    /**
+     * When each voice started
+     */
+    private static final float[] _starts = new float[MAX_STREAMS];
+
+    /**
+     * When each voice will finish
+     */
+    private static final float[] _ends = new float[MAX_STREAMS];
+
+    /**
+     * The number of voices that may be used
+     */
+    private static int _maxVoices = MAX_STREAMS;
+
+    /**
+     * Prevent this from being created
+     */
+    private Mixer()
+    {
+    }
+
+    /**
+     * Internal method to limit how many sounds can play at once
+     *
+     * @param voices
+     *            The number of voices, which is capped at MAX_STREAMS
+     */
+    static void setMaxVoices(int voices)
+    {
+        _maxVoices = Math.max(1, Math.min(voices, MAX_STREAMS));
+    }
+
+    /**
+     * Internal method to play a sound effect, if the rules allow it
+     *
+     * @param effect
+     *            The sound to play
+     */
+    static void play(SoundEffect effect)
+    {
+        float now = Platform.current().getSecondsElapsedTotal();
+        if (now - effect.lastStarted < effect.minInterval)
+            return;
+
+        // free the voices of sounds that have finished, and find a voice for
+        // this one
+        int free = -1;
+        int oldestCopy = -1;
+        int weakest = -1;
+        for (int v = 0; v < MAX_STREAMS; ++v) {
+            SoundEffect e = _effects[v];
+            if (e != null && _ends[v] <= now) {
+                e.playing--;
+                _effects[v] = null;
+                e = null;
+            }
+            // voices past the limit only finish, in case the limit shrank, and
+            // are never reused
+            if (v >= _maxVoices)
+                continue;
+            if (e == null) {
+                if (free < 0)
+                    free = v;
+            }
+            else {
+                if (e == effect && (oldestCopy < 0 || _starts[v] < _starts[oldestCopy]))
+                    oldestCopy = v;
+                if (weakest < 0 || e.priority < _effects[weakest].priority
+                        || (e.priority == _effects[weakest].priority && _starts[v] < _starts[weakest]))
+                    weakest = v;
+            }
+        }
+
+        int voice;
+        if (effect.playing >= effect.maxVoices)
+            voice = oldestCopy;
+        else if (free >= 0)
+            voice = free;
+        else if (_effects[weakest].priority <= effect.priority)
+            voice = weakest;
+        else
+            return;
+        if (voice < 0)
+            return;
+
+        // if the voice is busy, stop what it's playing
+        SoundEffect old = _effects[voice];
+        if (old != null) {
+            Platform.current().stopSound(old.sound, _streams[voice]);
+            old.playing--;
+        }
+        _effects[voice] = effect;
+        _streams[voice] = Platform.current().playSound(effect.sound);
+        _starts[voice] = now;
+        _ends[voice] = now + effect.length;
+        effect.playing++;
+        effect.lastStarted = now;
+    }
+
+    /**
+     * Internal method to read how long an Ogg Vorbis sound lasts. The sample
+     * rate is in the first packet, and the last page's position is the number
+     * of samples.
+     *
+     * @param soundName
+     *            The name of the sound file
+     * @return The length in seconds, or a default if the file couldn't be read
+     */
+    static float readLength(String soundName)
+    {
+        InputStream in = null;
+        try {
+            in = Platform.current().openAsset(soundName);
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            int n;
+            while ((n = in.read(chunk)) > 0)
+                buf.write(chunk, 0, n);
+            byte[] b = buf.toByteArray();
+
+            // the first page's header is 27 bytes and a segment table, and the
+            // identification packet has the rate 12 bytes in
+            if (b.length < 28 || b[0] != 'O' || b[1] != 'g' || b[2] != 'g' || b[3] != 'S')
+                return DEFAULT_LENGTH;
+            int rateAt = 27 + (b[26] & 0xFF) + 12;
+            if (rateAt + 4 > b.length)
+                return DEFAULT_LENGTH;
+            long rate = readLittleEndian(b, rateAt, 4);
+            for (int p = b.length - 14; p >= 0; --p) {
+                if (b[p] == 'O' && b[p + 1] == 'g' && b[p + 2] == 'g' && b[p + 3] == 'S') {
+                    long samples = readLittleEndian(b, p + 6, 8);
+                    if (rate <= 0 || samples <= 0)
+                        return DEFAULT_LENGTH;
+                    return (float) samples / rate;
+                }
+            }
+            return DEFAULT_LENGTH;
+        }
+        catch (IOException e) {
+            return DEFAULT_LENGTH;
+        }
+        finally {
+            try {
+                if (in != null)
+                    in.close();
+            }
+            catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * Internal method to read a little-endian number
+     *
+     * @param b
+     *            The bytes to read from
+     * @param at
+     *            The position of the first byte
+     * @param count
+     *            The number of bytes
+     * @return The number
+     */
+    private static long readLittleEndian(byte[] b, int at, int count)
+    {
+        long v = 0;
+        for (int i = count - 1; i >= 0; --i)
+            v = (v << 8) | (b[at + i] & 0xFF);
+        return v;
+    }
+}
@@ -7,9 +7,7 @@ import java.util.ArrayList;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
-import org.andengine.audio.sound.Sound;
-import org.andengine.engine.handler.timer.ITimerCallback;
-import org.andengine.engine.handler.timer.TimerHandler;
+import org.andengine.entity.scene.IOnSceneTouchListener;
 import org.andengine.entity.scene.Scene;
 import org.andengine.extension.physics.box2d.PhysicsFactory;
 import org.andengine.extension.physics.box2d.util.constants.PhysicsConstants;
@@ -18,12 +16,10 @@ import org.andengine.opengl.texture.region.TiledTextureRegion;
 import org.xml.sax.InputSource;
 import org.xml.sax.XMLReader;
 
-import android.content.res.AssetManager;
 import android.view.MotionEvent;
 
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
-import com.theteam1.wingdra.Wingdra;
 
 /**
  * Obstacles are entities that change the hero's velocity upon a collision
@@ -184,12 +180,12 @@ public class Obstacle extends PhysicsSprite
     /**
      * a sound to play when the obstacle is touched
      */
-    private Sound touchSound;
+    private SoundEffect touchSound;
 
     /**
      * a sound to play when the obstacle is hit by a hero
      */
-    private Sound collideSound;
+    private SoundEffect collideSound;
 
     /**
      * how long to delay between attempts to play the collide sound
@@ -226,6 +222,22 @@ public class Obstacle extends PhysicsSprite
     public void setSubClass(int subClass)
     {
         mySubClass = subClass;
+        // subclassed obstacles are weapons, which changes what they collide with
+        applyCollisionFilter();
+    }
+
+    /**
+     * Obstacles with a subclass can defeat enemies, so they get their own
+     * collision category
+     *
+     * @return One of the CATEGORY_ constants
+     */
+    @Override
+    short getDefaultCollisionCategory()
+    {
+        if (mySubClass != 0)
+            return CATEGORY_WEAPON;
+        return CATEGORY_OBSTACLE;
     }
 
     /**
@@ -253,7 +265,7 @@ public class Obstacle extends PhysicsSprite
             return;
 
         // Make sure we have waited long enough
-        float now = ALE.self().getEngine().getSecondsElapsedTotal();
+        float now = Platform.current().getSecondsElapsedTotal();
         if (now < lastCollideSoundTime + collideSoundDelay)
             return;
         lastCollideSoundTime = now;
@@ -341,6 +353,25 @@ public class Obstacle extends PhysicsSprite
         scribbleMode = false;
     }
 
+    /**
+     * Make moving obstacles vanish once their centers are farther than some
+     * distance past the edges of the level. Obstacles that can't move are
+     * never removed, so walls at the edges are safe.
+     *
+     * @param left
+     *            How far past the left edge, in pixels
+     * @param top
+     *            How far past the top edge, in pixels
+     * @param right
+     *            How far past the right edge, in pixels
+     * @param bottom
+     *            How far past the bottom edge, in pixels
+     */
+    public static void setDespawnMargins(float left, float top, float right, float bottom)
+    {
+        PlayfieldBounds.setMargins(PhysicsSprite.TYPE_OBSTACLE, left, top, right, bottom, 0);
+    }
+
     /**
      * Call this on an Obstacle to rotate it
      *
@@ -367,7 +398,7 @@ public class Obstacle extends PhysicsSprite
         Level.current.registerTouchArea(getSprite());
         Level.current.setTouchAreaBindingOnActionDownEnabled(true);
         Level.current.setTouchAreaBindingOnActionMoveEnabled(true);
-        Level.current.setOnSceneTouchListener(ALE.self());
+        Level.current.setOnSceneTouchListener(sceneTouchListener);
     }
 
     /**
@@ -646,6 +677,19 @@ public class Obstacle extends PhysicsSprite
         Level.current.attachChild(r.getSprite());
     }
 
+    /**
+     * Every level's scene sends its touches here, so that they reach
+     * handleSceneTouch
+     */
+    static final IOnSceneTouchListener sceneTouchListener = new IOnSceneTouchListener()
+    {
+        @Override
+        public boolean onSceneTouchEvent(Scene scene, TouchEvent event)
+        {
+            return handleSceneTouch(scene, event);
+        }
+    };
+
     /**
      * When the scene is touched, we use this to figure out if we need to move a
      * PokeObject
@@ -665,7 +709,7 @@ public class Obstacle extends PhysicsSprite
                 case TouchEvent.ACTION_DOWN:
                     if (currentPokeSprite != null) {
                         if (Configuration.isVibrationOn())
-                            ALE.self().getEngine().vibrate(100);
+                            Platform.current().vibrate(100);
                         // move the object
                         pokeVector.set(event.getX() / PhysicsConstants.PIXEL_TO_METER_RATIO_DEFAULT, event.getY()
                                 / PhysicsConstants.PIXEL_TO_METER_RATIO_DEFAULT);
@@ -741,23 +785,24 @@ public class Obstacle extends PhysicsSprite
         // if we drew something, then we will set a timer so that it disappears
         // in a few seconds
         if (o != null) {
-            // standard hack: make a final of the object, so we can reference it
-            // in the callback
-            final Obstacle o2 = o;
             // set up a timer to run in a few seconds
-            TimerHandler th = new TimerHandler(scribbleTime, false, new ITimerCallback()
-            {
-                @Override
-                public void onTimePassed(TimerHandler pTimerHandler)
-                {
-                    o2.getSprite().setVisible(false);
-                    o2.physBody.setActive(false);
-                }
-            });
-            Level.current.registerUpdateHandler(th);
+            TimerWheel.schedule(scribbleTime, scribbleExpireCallback, o, null, 0);
         }
     }
 
+    /**
+     * All scribbles share this callback for hiding them when their time is up
+     */
+    private static final TimerWheel.Callback scribbleExpireCallback = new TimerWheel.Callback()
+    {
+        @Override
+        public void onTimer(TimerWheel.Entry e)
+        {
+            e.target.getSprite().setVisible(false);
+            e.target.physBody.setActive(false);
+        }
+    };
+
     /**
      * Load an SVG line drawing generated from Inkscape.
      *
@@ -796,6 +841,9 @@ public class Obstacle extends PhysicsSprite
         try {
             // create a SAX parser for SVG files
             final SAXParserFactory spf = SAXParserFactory.newInstance();
+            // SVGParser matches tags by their local names, which parsers only
+            // report when they handle namespaces
+            spf.setNamespaceAware(true);
             final SAXParser sp = spf.newSAXParser();
 
             final XMLReader xmlReader = sp.getXMLReader();
@@ -811,6 +859,8 @@ public class Obstacle extends PhysicsSprite
             // addLine
             // routine of the parser
             Parser.fixture = PhysicsFactory.createFixtureDef(density, elasticity, friction);
+            Parser.fixture.filter.categoryBits = PhysicsSprite.CATEGORY_SVG;
+            Parser.fixture.filter.maskBits = PhysicsSprite.defaultMaskFor(PhysicsSprite.CATEGORY_SVG);
 
             // specify transpose and stretch information
             Parser.userStretchX = stretchX;
@@ -820,8 +870,7 @@ public class Obstacle extends PhysicsSprite
 
             // start parsing!
             xmlReader.setContentHandler(Parser);
-            AssetManager am = ALE.self().getAssets();
-            InputStream inputStream = am.open(svgFileName);
+            InputStream inputStream = Platform.current().openAsset(svgFileName);
             xmlReader.parse(new InputSource(new BufferedInputStream(inputStream)));
         }
         // if the read fails, just print a stack trace
@@ -882,7 +931,7 @@ public class Obstacle extends PhysicsSprite
         // turn on touch handling for this scene
         Level.current.setTouchAreaBindingOnActionDownEnabled(true);
         Level.current.setTouchAreaBindingOnActionMoveEnabled(true);
-        Level.current.setOnSceneTouchListener(ALE.self());
+        Level.current.setOnSceneTouchListener(sceneTouchListener);
     }
 
     /**
@@ -914,8 +963,8 @@ public class Obstacle extends PhysicsSprite
             // only act on depress, not on release or drag
             if (e.getAction() == MotionEvent.ACTION_DOWN) {
                 if (Configuration.isVibrationOn())
-                    ALE.self().getEngine().vibrate(100);
-                float time = ALE.self().getEngine().getSecondsElapsedTotal();
+                    Platform.current().vibrate(100);
+                float time = Platform.current().getSecondsElapsedTotal();
                 if (this == currentPokeSprite) {
                     // double touch
                     if ((time - lastPokeTime) < pokeDeleteThresh) {
@@ -944,7 +993,7 @@ public class Obstacle extends PhysicsSprite
             if (triggerActivation <= Goodie.goodiescollected) {
                 vanish(false);
                 physBody.setActive(false);
-                ALE.self().onTouchTrigger(Goodie.goodiescollected, triggerID, MenuManager._currLevel);
+                Game.current().onTouchTrigger(Goodie.goodiescollected, triggerID, MenuManager._currLevel);
                 return true;
             }
         }
@@ -966,9 +1015,6 @@ public class Obstacle extends PhysicsSprite
 		}
 		else if (isSkyThing) {
 			this.getSprite().setPosition(getSprite().getX(),getSprite().getY()+10);
-			if (getSprite().getY() >= Wingdra.VIEW_HEIGHT) {
-				this.setDisappearDelay(1);
-			}
 		}
 		/*
     	if (getSprite().getY() >= Wingdra.VIEW_HEIGHT-getSprite().getHeight()) {
@@ -1,6 +1,8 @@
 package edu.lehigh.cse.ale;
 
-import org.andengine.audio.sound.Sound;
+import java.util.ArrayList;
+
+import org.andengine.engine.camera.Camera;
 import org.andengine.engine.handler.timer.ITimerCallback;
 import org.andengine.engine.handler.timer.TimerHandler;
 import org.andengine.entity.modifier.LoopEntityModifier;
@@ -8,17 +10,19 @@ import org.andengine.entity.modifier.PathModifier;
 import org.andengine.entity.modifier.RotationModifier;
 import org.andengine.entity.scene.Scene;
 import org.andengine.entity.sprite.AnimatedSprite;
+import org.andengine.entity.sprite.AnimatedSprite.IAnimationListener;
 import org.andengine.extension.physics.box2d.PhysicsConnector;
 import org.andengine.extension.physics.box2d.PhysicsFactory;
 import org.andengine.extension.physics.box2d.util.constants.PhysicsConstants;
 import org.andengine.input.touch.TouchEvent;
 import org.andengine.opengl.texture.region.TiledTextureRegion;
-
-import android.util.Log;
+import org.andengine.opengl.util.GLState;
 
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
 
 /**
@@ -80,8 +84,11 @@ abstract public class PhysicsSprite
          */
         SpriteType(float x, float y, float width, float height, TiledTextureRegion ttr, PhysicsSprite parent)
         {
-            super(x, y, width, height, ttr, ALE.self().getVertexBufferObjectManager());
+            super(x, y, width, height, ttr, Platform.current().getVertexBufferObjectManager());
             owner = parent;
+            // compressed images with transparency need their halves combined
+            if (ttr.getTexture() instanceof SplitAlphaTexture)
+                setShaderProgram(SplitAlphaShaderProgram.getInstance());
             setCullingEnabled(true);
             setZIndex(1);
         }
@@ -109,6 +116,21 @@ abstract public class PhysicsSprite
             owner.onSpriteManagedUpdate();
         }
 
+        /**
+         * Batched sprites are drawn by their batch, not by themselves
+         *
+         * @param glState
+         *            The GL state
+         * @param camera
+         *            The camera being drawn
+         */
+        @Override
+        protected void onManagedDraw(GLState glState, Camera camera)
+        {
+            if (!owner.batched)
+                super.onManagedDraw(glState, camera);
+        }
+
         /**
          * Forward to PhysicsSprite onSpriteAreaTouched function
          *
@@ -176,6 +198,260 @@ abstract public class PhysicsSprite
      */
     final static int TYPE_DESTINATION = 7;
 
+    /**
+     * Constants indicating an enemy projectile type for this PhysicsSprite
+     * instance
+     */
+    final static int TYPE_ENEMY_PROJECTILE = 8;
+
+    /**
+     * Collision category for heroes
+     */
+    public static final short CATEGORY_HERO = 0x0001;
+
+    /**
+     * Collision category for enemies
+     */
+    public static final short CATEGORY_ENEMY = 0x0002;
+
+    /**
+     * Collision category for goodies
+     */
+    public static final short CATEGORY_GOODIE = 0x0004;
+
+    /**
+     * Collision category for projectiles thrown by heroes
+     */
+    public static final short CATEGORY_PROJECTILE = 0x0008;
+
+    /**
+     * Collision category for regular obstacles
+     */
+    public static final short CATEGORY_OBSTACLE = 0x0010;
+
+    /**
+     * Collision category for lines loaded from SVG files
+     */
+    public static final short CATEGORY_SVG = 0x0020;
+
+    /**
+     * Collision category for destinations
+     */
+    public static final short CATEGORY_DESTINATION = 0x0040;
+
+    /**
+     * Collision category for projectiles fired by enemies
+     */
+    public static final short CATEGORY_ENEMY_PROJECTILE = 0x0080;
+
+    /**
+     * Collision category for obstacles that have a subclass, and thus can
+     * defeat enemies (for example, a hero's bullets)
+     */
+    public static final short CATEGORY_WEAPON = 0x0100;
+
+    /**
+     * Collision category for anything else
+     */
+    public static final short CATEGORY_OTHER = 0x0200;
+
+    /**
+     * A mask that collides with every category
+     */
+    public static final short CATEGORY_ALL = (short) 0xFFFF;
+
+    /**
+     * For each category (by bit position), the categories that it collides
+     * with, unless an entity says otherwise
+     */
+    private static final short[] defaultMasks = new short[16];
+
+    /**
+     * Entities can override their category; 0 means "use the default"
+     */
+    private short customCategory = 0;
+
+    /**
+     * Entities can override their mask; this tells us if they did
+     */
+    private boolean hasCustomMask = false;
+
+    /**
+     * The mask to use, if this entity overrides its mask
+     */
+    private short customMask;
+
+    /**
+     * Rather than make a new Filter each time, we keep one around for
+     * updating fixtures
+     */
+    private static final Filter filterScratch = new Filter();
+
+    static {
+        resetCollisionMasks();
+    }
+
+    /**
+     * Put the default masks back to their original values. Everything
+     * collides with everything, except that enemy projectiles only collide
+     * with heroes.
+     *
+     * This is called whenever a new level is created.
+     */
+    static void resetCollisionMasks()
+    {
+        for (int i = 0; i < defaultMasks.length; ++i)
+            defaultMasks[i] = CATEGORY_ALL;
+        defaultMasks[Integer.numberOfTrailingZeros(CATEGORY_ENEMY_PROJECTILE)] = CATEGORY_HERO;
+    }
+
+    /**
+     * Specify the categories that every entity in a category collides with.
+     * Two entities only collide if each one's mask includes the other's
+     * category, and pairs that don't collide are discarded by the physics
+     * engine before any collision code runs.
+     *
+     * This lasts until the next level is created, and only affects entities
+     * made after it is called.
+     *
+     * @param category
+     *            One of the CATEGORY_ constants
+     * @param mask
+     *            A bitwise-or of the CATEGORY_ constants that the category
+     *            should collide with
+     */
+    public static void setDefaultCollisionMask(short category, short mask)
+    {
+        defaultMasks[Integer.numberOfTrailingZeros(category & 0xFFFF)] = mask;
+    }
+
+    /**
+     * Give this entity a different collision category than the one its type
+     * would give it
+     *
+     * @param category
+     *            One of the CATEGORY_ constants
+     */
+    public void setCollisionCategory(short category)
+    {
+        customCategory = category;
+        applyCollisionFilter();
+    }
+
+    /**
+     * Specify the categories that this entity collides with, instead of the
+     * default for its category
+     *
+     * @param mask
+     *            A bitwise-or of the CATEGORY_ constants that this entity
+     *            should collide with
+     */
+    public void setCollisionMask(short mask)
+    {
+        customMask = mask;
+        hasCustomMask = true;
+        applyCollisionFilter();
+    }
+
+    /**
+     * Figure out the collision category of this entity
+     *
+     * @return One of the CATEGORY_ constants
+     */
+    public short getCollisionCategory()
+    {
+        if (customCategory != 0)
+            return customCategory;
+        return getDefaultCollisionCategory();
+    }
+
+    /**
+     * Figure out the categories that this entity collides with
+     *
+     * @return A bitwise-or of CATEGORY_ constants
+     */
+    public short getCollisionMask()
+    {
+        if (hasCustomMask)
+            return customMask;
+        return defaultMasks[Integer.numberOfTrailingZeros(getCollisionCategory() & 0xFFFF)];
+    }
+
+    /**
+     * Internal method to map this entity's type to its collision category.
+     * Descendants can override this when the category depends on more than
+     * the type.
+     *
+     * @return One of the CATEGORY_ constants
+     */
+    short getDefaultCollisionCategory()
+    {
+        return categoryForType(myType);
+    }
+
+    /**
+     * Internal method to map an entity type to a collision category
+     *
+     * @param type
+     *            One of the TYPE_ constants
+     * @return One of the CATEGORY_ constants
+     */
+    static short categoryForType(int type)
+    {
+        switch (type) {
+            case TYPE_HERO:
+                return CATEGORY_HERO;
+            case TYPE_ENEMY:
+                return CATEGORY_ENEMY;
+            case TYPE_GOODIE:
+                return CATEGORY_GOODIE;
+            case TYPE_PROJECTILE:
+                return CATEGORY_PROJECTILE;
+            case TYPE_OBSTACLE:
+                return CATEGORY_OBSTACLE;
+            case TYPE_SVG:
+                return CATEGORY_SVG;
+            case TYPE_DESTINATION:
+                return CATEGORY_DESTINATION;
+            case TYPE_ENEMY_PROJECTILE:
+                return CATEGORY_ENEMY_PROJECTILE;
+            default:
+                return CATEGORY_OTHER;
+        }
+    }
+
+    /**
+     * Internal method to get the mask for a category, for bodies that are not
+     * made through setBoxPhysics or setCirclePhysics
+     *
+     * @param category
+     *            One of the CATEGORY_ constants
+     * @return the default mask for that category
+     */
+    static short defaultMaskFor(short category)
+    {
+        return defaultMasks[Integer.numberOfTrailingZeros(category & 0xFFFF)];
+    }
+
+    /**
+     * Internal method to push this entity's category and mask into its physics
+     * body. Call this whenever something changes the category or mask.
+     */
+    void applyCollisionFilter()
+    {
+        if (physBody == null)
+            return;
+        ArrayList<Fixture> fixtures = physBody.getFixtureList();
+        for (int i = 0; i < fixtures.size(); ++i) {
+            Fixture f = fixtures.get(i);
+            Filter current = f.getFilterData();
+            filterScratch.groupIndex = current.groupIndex;
+            filterScratch.categoryBits = getCollisionCategory();
+            filterScratch.maskBits = getCollisionMask();
+            f.setFilterData(filterScratch);
+        }
+    }
+
     /**
      * Type of this sprite; useful for disambiguation in collision detection
      */
@@ -199,9 +475,52 @@ abstract public class PhysicsSprite
     /**
      * Sound to play when this disappears
      */
-    protected Sound disappearSound = null;
+    protected SoundEffect disappearSound = null;
     
-    protected Sound appearSound = null;
+    protected SoundEffect appearSound = null;
+
+    /**
+     * Pooled entities are handed out more than once. We count how many times
+     * this entity has been reused, so that delayed actions (such as a
+     * disappear timer) that were scheduled for an earlier use can tell that
+     * they are stale
+     */
+    int incarnation = 0;
+
+    /**
+     * This entity's own despawn margins and delay, which replace those of its
+     * type, or null to use its type's
+     */
+    float[] despawnMargins = null;
+
+    /**
+     * The incarnation for which a despawn delay has been started, so that it
+     * is only started once
+     */
+    int despawnIncarnation = -1;
+
+    /**
+     * Should this entity's body and sprite be destroyed once it vanishes?
+     * Entities that get reused after vanishing (such as heroes and pooled
+     * entities) turn this off.
+     */
+    boolean reclaimOnVanish = true;
+
+    /**
+     * Track if this entity is waiting to be reclaimed
+     */
+    boolean reclaimPending = false;
+
+    /**
+     * Track if this entity has been reclaimed, in which case it no longer has
+     * a body and is no longer part of the scene
+     */
+    boolean reclaimed = false;
+
+    /**
+     * Track if this entity is drawn as part of a sprite batch
+     */
+    boolean batched = false;
 
     /**
      * Rather than pooling Vector2 objects, we keep one around for use when
@@ -298,6 +617,8 @@ abstract public class PhysicsSprite
     {
         setSprite(new SpriteType(x, y, width, height, ttr, this));
         myType = type;
+        Reclaimer.onCreate();
+        PlayfieldBounds.onCreate(this);
     }
 
     /**
@@ -327,7 +648,8 @@ abstract public class PhysicsSprite
     }
     
     public void playSound() {
-    	appearSound.play();
+    	if (appearSound != null)
+    		appearSound.play();
     }
 
     /**
@@ -353,10 +675,12 @@ abstract public class PhysicsSprite
             boolean isSensor, boolean canRotate)
     {
         FixtureDef fd = PhysicsFactory.createFixtureDef(density, elasticity, friction, isSensor);
+        fd.filter.categoryBits = getCollisionCategory();
+        fd.filter.maskBits = getCollisionMask();
         physBody = PhysicsFactory.createBoxBody(Level.physics, getSprite(), type, fd);
         if (isBullet)
             physBody.setBullet(true);
-        PhysicsConnector pc = new PhysicsConnector(getSprite(), physBody, true, canRotate);
+        PhysicsConnector pc = new InterpolatingConnector(getSprite(), physBody, true, canRotate);
         Level.physics.registerPhysicsConnector(pc);
         physBody.setUserData(this);
         rememberPhysicsConfig(density, elasticity, friction, type, isBullet, canRotate, false, pc);
@@ -386,10 +710,12 @@ abstract public class PhysicsSprite
     {
         // define fixture
         FixtureDef fd = PhysicsFactory.createFixtureDef(density, elasticity, friction, isSensor);
+        fd.filter.categoryBits = getCollisionCategory();
+        fd.filter.maskBits = getCollisionMask();
         physBody = PhysicsFactory.createCircleBody(Level.physics, getSprite(), type, fd);
         if (isBullet)
             physBody.setBullet(true);
-        PhysicsConnector pc = new PhysicsConnector(getSprite(), physBody, true, canRotate);
+        PhysicsConnector pc = new InterpolatingConnector(getSprite(), physBody, true, canRotate);
         Level.physics.registerPhysicsConnector(pc);
         physBody.setUserData(this);
         rememberPhysicsConfig(density, elasticity, friction, type, isBullet, canRotate, true, pc);
@@ -478,21 +804,56 @@ abstract public class PhysicsSprite
      */
     void vanish(boolean quiet)
     {
+        if (reclaimed)
+            return;
         getSprite().setVisible(false);
         if (disappearAnimateCells != null) {
             float x = getSprite().getX() + disappearAnimateOffset.x;
             float y = getSprite().getY() + disappearAnimateOffset.y;
             TiledTextureRegion ttr = Media.getImage(disappearAnimateImageName);
-            AnimatedSprite as = new AnimatedSprite(x, y, disappearAnimateWidth, disappearAnimateHeight, ttr, ALE
-                    .self().getVertexBufferObjectManager());
+            AnimatedSprite as = new AnimatedSprite(x, y, disappearAnimateWidth, disappearAnimateHeight, ttr, Platform
+                    .current().getVertexBufferObjectManager());
             Level.current.attachChild(as);
-            as.animate(disappearAnimateDurations, disappearAnimateCells, false);
+            as.animate(disappearAnimateDurations, disappearAnimateCells, false, disappearAnimationListener);
         }
         // play a sound when we hit this thing?
         if (disappearSound != null && !quiet)
             disappearSound.play();
+        // get rid of the body and sprite once it is safe to do so
+        if (reclaimOnVanish)
+            Reclaimer.enqueue(this);
     }
 
+    /**
+     * When a disappear animation finishes, we remove it from the scene. One
+     * listener is shared by all disappear animations.
+     */
+    private static final IAnimationListener disappearAnimationListener = new IAnimationListener()
+    {
+        @Override
+        public void onAnimationStarted(AnimatedSprite as, int initialLoopCount)
+        {
+        }
+
+        @Override
+        public void onAnimationFrameChanged(AnimatedSprite as, int oldFrameIndex, int newFrameIndex)
+        {
+        }
+
+        @Override
+        public void onAnimationLoopFinished(AnimatedSprite as, int remainingLoopCount, int initialLoopCount)
+        {
+        }
+
+        @Override
+        public void onAnimationFinished(AnimatedSprite as)
+        {
+            // we're in the middle of a scene update, so let the Reclaimer
+            // detach it
+            Reclaimer.enqueueDecoration(as);
+        }
+    };
+
     /**
      * A vector for computing hover placement
      */
@@ -506,8 +867,8 @@ abstract public class PhysicsSprite
     {
         if (!hover)
             return;
-        float x = hoverX + ALE.self()._camera.getCenterX() - Configuration.getCameraWidth() / 2;
-        float y = hoverY + ALE.self()._camera.getCenterY() - Configuration.getCameraHeight() / 2;
+        float x = hoverX + Platform.current().getCamera().getCenterX() - Configuration.getCameraWidth() / 2;
+        float y = hoverY + Platform.current().getCamera().getCenterY() - Configuration.getCameraHeight() / 2;
 
         hoverVector.x = x;
         hoverVector.y = y;
@@ -558,22 +919,32 @@ abstract public class PhysicsSprite
      */
     public void setAppearDelay(float delay)
     {
+        if (reclaimed)
+            return;
         // hide the picture and disable the physics on this object
         getSprite().setVisible(false);
         physBody.setActive(false);
         // set a timer for turning said entities on
-        TimerHandler th = new TimerHandler(delay, false, new ITimerCallback()
-        {
-            @Override
-            public void onTimePassed(TimerHandler pTimerHandler)
-            {
-                getSprite().setVisible(true);
-                physBody.setActive(true);
-            }
-        });
-        Level.current.registerUpdateHandler(th);
+        TimerWheel.schedule(delay, appearCallback, this, null, incarnation);
     }
 
+    /**
+     * All appear delays share this callback
+     */
+    private static final TimerWheel.Callback appearCallback = new TimerWheel.Callback()
+    {
+        @Override
+        public void onTimer(TimerWheel.Entry e)
+        {
+            PhysicsSprite ps = e.target;
+            // a pooled entity may have been recycled in the meantime
+            if (e.tag != ps.incarnation || ps.reclaimed || ps.reclaimPending)
+                return;
+            ps.getSprite().setVisible(true);
+            ps.physBody.setActive(true);
+        }
+    };
+
     /**
      * Set the velocity of this Entity
      *
@@ -584,6 +955,9 @@ abstract public class PhysicsSprite
      */
     public PhysicsSprite setVelocity(float x, float y)
     {
+        // a reclaimed entity has no body to move
+        if (reclaimed)
+            return this;
         // We are adding, rather than setting. This might be useful in
         // TimerTrigger codes
         Vector2 v = physBody.getLinearVelocity();
@@ -591,7 +965,7 @@ abstract public class PhysicsSprite
         //v.x += x;
         v.x = x;
         v.y = y;
-        Log.v("wingdra","setting velocity to (" + x + "," + y + ")");
+        Trace.record(Trace.VELOCITY, myType, x, y);
         physBody.setLinearVelocity(v);
         // If this was a sensor, we need to disable sensor, or else this entity
         // will go right through walls
@@ -609,6 +983,8 @@ abstract public class PhysicsSprite
      */
     public void toggleCollisionEffect(boolean state)
     {
+        if (reclaimed)
+            return;
         // If this was a sensor, we need to disable sensor, or else this entity
         // will go right through walls
         physBody.getFixtureList().get(0).setSensor(!state);
@@ -622,17 +998,50 @@ abstract public class PhysicsSprite
      */
     public void setDisappearDelay(float delay)
     {
-        // set a timer for disabling the thing
-        TimerHandler th = new TimerHandler(delay, false, new ITimerCallback()
+        if (reclaimed)
+            return;
+        // set a timer for disabling the thing, and remember which use of this
+        // entity the timer belongs to
+        TimerWheel.schedule(delay, disappearCallback, this, null, incarnation);
+    }
+
+    /**
+     * All disappear delays share this callback
+     */
+    private static final TimerWheel.Callback disappearCallback = new TimerWheel.Callback()
+    {
+        @Override
+        public void onTimer(TimerWheel.Entry e)
         {
-            @Override
-            public void onTimePassed(TimerHandler pTimerHandler)
-            {
-                vanish(true);
-                physBody.setActive(false);
-            }
-        });
-        Level.current.registerUpdateHandler(th);
+            PhysicsSprite ps = e.target;
+            // a pooled entity may have been recycled in the meantime
+            if (e.tag != ps.incarnation || ps.reclaimed)
+                return;
+            ps.vanish(true);
+            ps.physBody.setActive(false);
+        }
+    };
+
+    /**
+     * Give this entity its own despawn margins, in place of those of its type.
+     * Once the entity's center is farther than a margin past an edge of the
+     * level, it vanishes after the delay.
+     *
+     * @param left
+     *            How far past the left edge, in pixels
+     * @param top
+     *            How far past the top edge, in pixels
+     * @param right
+     *            How far past the right edge, in pixels
+     * @param bottom
+     *            How far past the bottom edge, in pixels
+     * @param delay
+     *            How long to wait, in seconds, before vanishing, or 0 to vanish
+     *            right away
+     */
+    public void setOwnDespawnMargins(float left, float top, float right, float bottom, float delay)
+    {
+        despawnMargins = new float[] { left, top, right, bottom, delay };
     }
 
     /**
@@ -640,7 +1049,7 @@ abstract public class PhysicsSprite
      */
     public void setMoveByTilting()
     {
-        if (!isTilt) {
+        if (!isTilt && !reclaimed) {
             Level.accelEntities.add(this);
             isTilt = true;
             // turn off sensor behavior, so this collides with stuff...
@@ -648,6 +1057,19 @@ abstract public class PhysicsSprite
         }
     }
 
+    /**
+     * Draw this entity together with other batched entities that use the same
+     * texture, instead of on its own. This is worthwhile for things that
+     * appear in large numbers, like bullets, enemies and power-ups.
+     */
+    public void setBatched()
+    {
+        if (!batched && !reclaimed) {
+            batched = true;
+            SpriteBatcher.add(this);
+        }
+    }
+
     /**
      * Call this on an entity to make it draggable.
      *
@@ -759,6 +1181,11 @@ abstract public class PhysicsSprite
             @Override
             public void onTimePassed(TimerHandler pTimerHandler)
             {
+                // stop shrinking once the entity has been reclaimed
+                if (reclaimed || reclaimPending) {
+                    Level.current.unregisterUpdateHandler(pTimerHandler);
+                    return;
+                }
                 float x = getSprite().getX();
                 float y = getSprite().getY();
                 float w = getSprite().getWidth();
@@ -845,7 +1272,7 @@ abstract public class PhysicsSprite
         Level.current.setTouchAreaBindingOnActionMoveEnabled(true);
         // NB: this will cause Framework to call to Obstacle which will call to
         // PhysicsSprite
-        Level.current.setOnSceneTouchListener(ALE.self());
+        Level.current.setOnSceneTouchListener(Obstacle.sceneTouchListener);
     }
 
     /**
@@ -861,7 +1288,7 @@ abstract public class PhysicsSprite
     private void registerInitialFlick(TouchEvent e, float x, float y)
     {
         if (e.getAction() == TouchEvent.ACTION_DOWN) {
-            ALE.self().getEngine().vibrate(100);
+            Platform.current().vibrate(100);
             // don't forget to translate the touch into a screen coordinate
             flickStartX = x + getSprite().getX();
             flickStartY = y + getSprite().getY();
@@ -0,0 +1,302 @@
+package edu.lehigh.cse.ale;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.andengine.audio.music.Music;
+import org.andengine.audio.sound.Sound;
+import org.andengine.engine.camera.SmoothCamera;
+import org.andengine.opengl.font.FontManager;
+import org.andengine.opengl.texture.ITexture;
+import org.andengine.opengl.texture.TextureManager;
+import org.andengine.opengl.texture.TextureOptions;
+import org.andengine.opengl.texture.atlas.bitmap.BitmapTextureAtlas;
+import org.andengine.opengl.texture.region.TextureRegion;
+import org.andengine.opengl.texture.region.TiledTextureRegion;
+import org.andengine.opengl.vbo.VertexBufferObjectManager;
+
+/**
+ * The Platform is everything that ALE needs from the device it runs on: a
+ * clock, the game's configuration strings, a way to vibrate, somewhere to load
+ * images and sounds from, the managers that own vertex buffers, textures and
+ * fonts, the camera, the tilt sensor, and what happens when a level ends.
+ *
+ * Game code runs the same way no matter which platform is installed. On a
+ * phone, ALE installs an AndroidPlatform when the engine is created. For
+ * running levels without a device (for example, to measure performance on a
+ * build machine), a HeadlessPlatform can be installed instead.
+ *
+ * @author spear
+ */
+public abstract class Platform
+{
+    /**
+     * The platform that is currently installed
+     */
+    private static Platform _current;
+
+    /**
+     * Make this the platform that ALE uses from now on
+     *
+     * @param platform
+     *            The platform to use
+     */
+    public static void install(Platform platform)
+    {
+        _current = platform;
+    }
+
+    /**
+     * Internal method to get the installed platform
+     *
+     * @return The platform that ALE is running on
+     */
+    static Platform current()
+    {
+        return _current;
+    }
+
+    /**
+     * Report how much game time has passed since the game started
+     *
+     * @return The time, in seconds
+     */
+    abstract float getSecondsElapsedTotal();
+
+    /**
+     * Look up one of the game's configuration strings
+     *
+     * @param resId
+     *            The resource ID of the string, from R.string
+     * @return The value of the string
+     */
+    abstract String getString(int resId);
+
+    /**
+     * Vibrate the device, if it can
+     *
+     * @param milliseconds
+     *            How long to vibrate
+     */
+    abstract void vibrate(long milliseconds);
+
+    /**
+     * Get the manager for the vertex buffers of sprites and text
+     *
+     * @return The vertex buffer object manager
+     */
+    abstract VertexBufferObjectManager getVertexBufferObjectManager();
+
+    /**
+     * Get the manager for textures
+     *
+     * @return The texture manager
+     */
+    abstract TextureManager getTextureManager();
+
+    /**
+     * Get the manager for fonts
+     *
+     * @return The font manager
+     */
+    abstract FontManager getFontManager();
+
+    /**
+     * Get the camera that shows the level
+     *
+     * @return The camera
+     */
+    abstract SmoothCamera getCamera();
+
+    /**
+     * End the current level with a win
+     */
+    abstract void winLevel();
+
+    /**
+     * End the current level with a loss
+     *
+     * @param loseText
+     *            The text to show the player
+     */
+    abstract void loseLevel(String loseText);
+
+    /**
+     * Turn the tilt sensor on or off
+     *
+     * @param enabled
+     *            True if tilt events should be delivered to the level
+     */
+    abstract void setTiltEnabled(boolean enabled);
+
+    /**
+     * Open one of the game's asset files
+     *
+     * @param assetName
+     *            The name of the file, relative to the assets folder
+     * @return A stream for reading the file
+     * @throws IOException
+     *             if the file can't be opened
+     */
+    abstract InputStream openAsset(String assetName) throws IOException;
+
+    /**
+     * Find out how big an image is, without decoding it
+     *
+     * @param imgName
+     *            The name of the image file
+     * @param size
+     *            Where to put the width and height
+     * @return true if the size could be read
+     */
+    abstract boolean readImageSize(String imgName, int[] size);
+
+    /**
+     * Put an image into part of a texture atlas
+     *
+     * @param atlas
+     *            The atlas to put the image in
+     * @param imgName
+     *            The name of the image file
+     * @param x
+     *            The X coordinate of the image's top left corner in the atlas
+     * @param y
+     *            The Y coordinate of the image's top left corner in the atlas
+     * @param width
+     *            The width of the image, from readImageSize
+     * @param height
+     *            The height of the image, from readImageSize
+     * @param cellColumns
+     *            The number of animation cells in the image
+     * @return The region of the atlas that holds the image
+     */
+    abstract TiledTextureRegion addImageToAtlas(BitmapTextureAtlas atlas, String imgName, int x, int y, int width,
+            int height, int cellColumns);
+
+    /**
+     * Stretch an image so that it fills a whole texture atlas, for textures
+     * that repeat. The image is decoded when the atlas is loaded.
+     *
+     * @param atlas
+     *            The atlas to fill
+     * @param imgName
+     *            The name of the image file
+     * @return The region covering the whole atlas
+     */
+    abstract TextureRegion fillAtlasWithImage(BitmapTextureAtlas atlas, String imgName);
+
+    /**
+     * Make a texture from an image that was compressed ahead of time with
+     * ETC1. Nothing needs to be decoded; the texture is read straight from
+     * the file when it is loaded.
+     *
+     * @param colorName
+     *            The name of the compressed file with the image's colors
+     * @param alphaName
+     *            The name of the compressed file with the image's
+     *            transparency, or null if the image is opaque
+     * @param width
+     *            The width of the image
+     * @param height
+     *            The height of the image
+     * @param options
+     *            How the texture is sampled
+     * @return The texture, or null if it couldn't be made
+     */
+    abstract ITexture makeCompressedTexture(String colorName, String alphaName, int width, int height,
+            TextureOptions options);
+
+    /**
+     * Start decoding the images in an atlas, in the background if the
+     * platform can
+     *
+     * @param atlas
+     *            An atlas whose images have all been added
+     */
+    abstract void startDecoding(ITexture atlas);
+
+    /**
+     * Check whether all of an atlas's images have been decoded
+     *
+     * @param atlas
+     *            An atlas that startDecoding was called on
+     * @return true if the atlas is ready to be loaded
+     */
+    abstract boolean isDecoded(ITexture atlas);
+
+    /**
+     * Load a texture atlas, once all of its images have been added and
+     * decoded, or a compressed texture
+     *
+     * @param atlas
+     *            The atlas to load
+     */
+    abstract void loadAtlas(ITexture atlas);
+
+    /**
+     * Run some code on the update thread, at the start of the next frame
+     *
+     * @param r
+     *            The code to run
+     */
+    abstract void runNextFrame(Runnable r);
+
+    /**
+     * Check whether a loaded atlas has reached texture memory, which means
+     * that the decoded images it was made from have been freed
+     *
+     * @param atlas
+     *            An atlas that loadAtlas was called on
+     * @return true once the atlas has been uploaded
+     */
+    abstract boolean isUploaded(ITexture atlas);
+
+    /**
+     * Unload a texture atlas or compressed texture, to free texture memory. It
+     * can be loaded again later, after its images are decoded again.
+     *
+     * @param atlas
+     *            The atlas to unload
+     */
+    abstract void unloadAtlas(ITexture atlas);
+
+    /**
+     * Load a sound effect from the game's assets
+     *
+     * @param soundName
+     *            The name of the sound file
+     * @return The sound, or null if there is no sound on this platform
+     */
+    abstract Sound loadSound(String soundName);
+
+    /**
+     * Start playing a sound
+     *
+     * @param sound
+     *            The sound to play
+     * @return The stream that is playing it, for stopSound
+     */
+    abstract int playSound(Sound sound);
+
+    /**
+     * Stop one stream of a sound, even if the sound has been started again
+     * since
+     *
+     * @param sound
+     *            The sound
+     * @param streamId
+     *            The stream, from playSound
+     */
+    abstract void stopSound(Sound sound, int streamId);
+
+    /**
+     * Load background music from the game's assets
+     *
+     * @param musicName
+     *            The name of the music file
+     * @param loop
+     *            True if the music should repeat when it reaches the end
+     * @return The music, or null if there is no music on this platform
+     */
+    abstract Music loadMusic(String musicName, boolean loop);
+}
@@ -0,0 +1,184 @@
+package edu.lehigh.cse.ale;
+
+import java.util.ArrayList;
+
+import org.andengine.engine.handler.IUpdateHandler;
+
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+
+/**
+ * PlayfieldBounds gets rid of entities as soon as they leave the level.
+ *
+ * Things that fly or fall off the screen used to be cleaned up with guesses:
+ * a lifetime long enough to cross the screen, or a disappear delay scheduled
+ * again on every frame once the thing reached an edge. Instead, each type of
+ * entity can be given margins, and once per update, right after the physics
+ * step, every entity of a type that has them is checked in a single pass. An
+ * entity whose center is outside the level, grown on each side by its type's
+ * margin for that side, vanishes, either right away or after its type's delay.
+ * Pooled entities go back to their pools, and everything else is reclaimed.
+ * An entity can also be given margins and a delay of its own, which replace
+ * its type's.
+ *
+ * A positive margin lets things travel a little way off the screen, such as
+ * enemies that start above the top edge. A negative margin removes things
+ * before they reach the edge, such as power-ups that would otherwise come to
+ * rest against a bounding box; with a delay, they stay long enough to be
+ * picked up. Types without margins, and entities that can't move, are never
+ * checked, so walls at the edges of the level are safe.
+ *
+ * @author spear
+ */
+public class PlayfieldBounds implements IUpdateHandler
+{
+    /**
+     * The one update handler that we register with each level
+     */
+    static final PlayfieldBounds handler = new PlayfieldBounds();
+
+    /**
+     * The number of entity types, which is one more than the largest TYPE_
+     * constant in PhysicsSprite
+     */
+    private static final int NUM_TYPES = PhysicsSprite.TYPE_ENEMY_PROJECTILE + 1;
+
+    /**
+     * The margins for each type of entity
+     */
+    private static final float[] _left = new float[NUM_TYPES], _top = new float[NUM_TYPES],
+            _right = new float[NUM_TYPES], _bottom = new float[NUM_TYPES];
+
+    /**
+     * How long each type of entity waits, in seconds, before vanishing once it
+     * is outside its margins
+     */
+    private static final float[] _delay = new float[NUM_TYPES];
+
+    /**
+     * Whether each type of entity has margins
+     */
+    private static final boolean[] _checked = new boolean[NUM_TYPES];
+
+    /**
+     * Every entity in this level that hasn't been reclaimed
+     */
+    private static final ArrayList<PhysicsSprite> _entities = new ArrayList<PhysicsSprite>();
+
+    /**
+     * Prevent this from being created anywhere else
+     */
+    private PlayfieldBounds()
+    {
+    }
+
+    /**
+     * Call this whenever we create a new level, to forget the old level's
+     * entities and margins
+     */
+    static void onNewLevel()
+    {
+        _entities.clear();
+        for (int i = 0; i < NUM_TYPES; ++i)
+            _checked[i] = false;
+    }
+
+    /**
+     * Internal method to note that an entity has been created
+     *
+     * @param ps
+     *            The new entity
+     */
+    static void onCreate(PhysicsSprite ps)
+    {
+        _entities.add(ps);
+    }
+
+    /**
+     * Internal method to give a type of entity margins. Each one is how far
+     * past an edge of the level, in pixels, the center of an entity of this
+     * type may go.
+     *
+     * @param type
+     *            One of the TYPE_ constants in PhysicsSprite
+     * @param left
+     *            The margin past the left edge
+     * @param top
+     *            The margin past the top edge
+     * @param right
+     *            The margin past the right edge
+     * @param bottom
+     *            The margin past the bottom edge
+     * @param delay
+     *            How long to wait, in seconds, before vanishing, or 0 to vanish
+     *            right away
+     */
+    static void setMargins(int type, float left, float top, float right, float bottom, float delay)
+    {
+        _left[type] = left;
+        _top[type] = top;
+        _right[type] = right;
+        _bottom[type] = bottom;
+        _delay[type] = delay;
+        _checked[type] = true;
+    }
+
+    /**
+     * Each update, make every entity that has left its type's part of the
+     * level vanish
+     *
+     * @param elapsed
+     *            Time since the last update
+     */
+    @Override
+    public void onUpdate(float elapsed)
+    {
+        ArrayList<PhysicsSprite> entities = _entities;
+        for (int i = entities.size() - 1; i >= 0; --i) {
+            PhysicsSprite ps = entities.get(i);
+            if (ps.reclaimed) {
+                // swap-remove, so that the list never shifts
+                int last = entities.size() - 1;
+                entities.set(i, entities.get(last));
+                entities.remove(last);
+                continue;
+            }
+            int type = ps.myType;
+            float[] own = ps.despawnMargins;
+            if ((own == null && !_checked[type]) || ps.reclaimPending || ps.physBody == null
+                    || !ps.getSprite().isVisible() || !ps.physBody.isActive()
+                    || ps.physBody.getType() == BodyType.StaticBody)
+                continue;
+            float x = ps.getSprite().getX() + ps.getSprite().getWidth() / 2;
+            float y = ps.getSprite().getY() + ps.getSprite().getHeight() / 2;
+            float delay;
+            if (own != null) {
+                if (x >= -own[0] && y >= -own[1] && x <= Level._width + own[2] && y <= Level._height + own[3])
+                    continue;
+                delay = own[4];
+            }
+            else {
+                if (x >= -_left[type] && y >= -_top[type] && x <= Level._width + _right[type]
+                        && y <= Level._height + _bottom[type])
+                    continue;
+                delay = _delay[type];
+            }
+            if (delay <= 0) {
+                ps.vanish(true);
+                ps.physBody.setActive(false);
+            }
+            else if (ps.despawnIncarnation != ps.incarnation) {
+                // the disappear timer only needs to be started once
+                ps.despawnIncarnation = ps.incarnation;
+                ps.setDisappearDelay(delay);
+            }
+        }
+    }
+
+    /**
+     * The bounds don't need to be reset
+     */
+    @Override
+    public void reset()
+    {
+    }
+}
@@ -33,12 +33,12 @@ public class PopUpScene
     {
         // we create a 'CameraScene' to which we can attach stuff
         final CameraScene child = new CameraScene();
-        child.setCamera(ALE.self()._camera);
+        child.setCamera(Platform.current().getCamera());
 
         // Draw a rectangle as the background. If touchErase is true, touching
         // the rectangle will remove the popup
-        Rectangle r = new Rectangle(0, 0, Configuration.getCameraWidth(), Configuration.getCameraHeight(), ALE
-                .self().getVertexBufferObjectManager())
+        Rectangle r = new Rectangle(0, 0, Configuration.getCameraWidth(), Configuration.getCameraHeight(), Platform
+                .current().getVertexBufferObjectManager())
         {
             @Override
             public boolean onAreaTouched(TouchEvent e, float x, float y)
@@ -88,7 +88,8 @@ public class PopUpScene
         CameraScene child = configurePopup(true, 0);
 
         // put the message on the scene
-        Text t = new Text(0, 0, Util.makeFont(255, 255, 255, 32), message, ALE.self().getVertexBufferObjectManager());
+        Text t = new Text(0, 0, Util.makeFont(255, 255, 255, 32), message,
+                Platform.current().getVertexBufferObjectManager());
         float w = t.getWidth();
         float h = t.getHeight();
         t.setPosition(Configuration.getCameraWidth() / 2 - w / 2, Configuration.getCameraHeight() / 2 - h / 2);
@@ -116,7 +117,7 @@ public class PopUpScene
         CameraScene child = configurePopup(true, 0);
 
         // put the message on the scene
-        Text t = new Text(0, 0, Util.makeFont(red, green, blue, fontSize), message, ALE.self()
+        Text t = new Text(0, 0, Util.makeFont(red, green, blue, fontSize), message, Platform.current()
                 .getVertexBufferObjectManager());
         float w = t.getWidth();
         float h = t.getHeight();
@@ -138,7 +139,8 @@ public class PopUpScene
         CameraScene child = configurePopup(false, duration);
 
         // put the message on the scene
-        Text t = new Text(0, 0, Util.makeFont(255, 255, 255, 32), message, ALE.self().getVertexBufferObjectManager());
+        Text t = new Text(0, 0, Util.makeFont(255, 255, 255, 32), message,
+                Platform.current().getVertexBufferObjectManager());
         float w = t.getWidth();
         float h = t.getHeight();
         t.setPosition(Configuration.getCameraWidth() / 2 - w / 2, Configuration.getCameraHeight() / 2 - h / 2);
@@ -168,7 +170,7 @@ public class PopUpScene
         CameraScene child = configurePopup(false, duration);
 
         // put the message on the scene
-        Text t = new Text(0, 0, Util.makeFont(red, green, blue, fontSize), message, ALE.self()
+        Text t = new Text(0, 0, Util.makeFont(red, green, blue, fontSize), message, Platform.current()
                 .getVertexBufferObjectManager());
         float w = t.getWidth();
         float h = t.getHeight();
@@ -193,7 +195,7 @@ public class PopUpScene
 
         // put the image on the scene
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite as = new AnimatedSprite(x, y, ttr.getWidth(), ttr.getHeight(), ttr, ALE.self()
+        AnimatedSprite as = new AnimatedSprite(x, y, ttr.getWidth(), ttr.getHeight(), ttr, Platform.current()
                 .getVertexBufferObjectManager());
         child.attachChild(as);
         Level.current.setChildSceneModal(child);
@@ -220,7 +222,7 @@ public class PopUpScene
 
         // put the image on the screen
         TiledTextureRegion ttr = Media.getImage(imgName);
-        AnimatedSprite as = new AnimatedSprite(x, y, ttr.getWidth(), ttr.getHeight(), ttr, ALE.self()
+        AnimatedSprite as = new AnimatedSprite(x, y, ttr.getWidth(), ttr.getHeight(), ttr, Platform.current()
                 .getVertexBufferObjectManager());
         child.attachChild(as);
         Level.current.setChildSceneModal(child);
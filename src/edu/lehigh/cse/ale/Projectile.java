@@ -1,6 +1,5 @@
 package edu.lehigh.cse.ale;
 
-import org.andengine.audio.sound.Sound;
 import org.andengine.extension.physics.box2d.util.constants.PhysicsConstants;
 import org.andengine.opengl.texture.region.TiledTextureRegion;
 
@@ -76,7 +75,7 @@ public class Projectile extends PhysicsSprite
     /**
      * Sound to play when projectiles are fired
      */
-    static Sound _throwSound;
+    static SoundEffect _throwSound;
 
     /**
      * How much damage does a projectile do?
@@ -96,7 +95,7 @@ public class Projectile extends PhysicsSprite
     /**
      * The sound to play when a projectile disappears
      */
-    private static Sound _disappearSound;
+    private static SoundEffect _disappearSound;
 
     /**
      * Indicate that projectile gravity is enabled (default is false)
@@ -159,6 +158,8 @@ public class Projectile extends PhysicsSprite
     {
         super(x, y, width, height, ttr, PhysicsSprite.TYPE_PROJECTILE);
         setCirclePhysics(0, 0, 0, BodyType.DynamicBody, true, true, false);
+        // projectiles live in a pool, so they must not be reclaimed
+        reclaimOnVanish = false;
     }
 
     /**
@@ -176,6 +177,25 @@ public class Projectile extends PhysicsSprite
         _range.y = y;
     }
 
+    /**
+     * Send projectiles back to the pool as soon as their centers are farther
+     * than some distance past the edges of the level. This can be used instead
+     * of, or along with, a range.
+     *
+     * @param left
+     *            How far past the left edge, in pixels
+     * @param top
+     *            How far past the top edge, in pixels
+     * @param right
+     *            How far past the right edge, in pixels
+     * @param bottom
+     *            How far past the bottom edge, in pixels
+     */
+    public static void setDespawnMargins(float left, float top, float right, float bottom)
+    {
+        PlayfieldBounds.setMargins(PhysicsSprite.TYPE_PROJECTILE, left, top, right, bottom, 0);
+    }
+
     /**
      * Internal method for negating gravity in side scrollers and for enforcing
      * the projectile range
@@ -246,6 +266,7 @@ public class Projectile extends PhysicsSprite
     public static void setNumberOfProjectiles(int number)
     {
         projectilesRemaining = number;
+        HudCounter.publish(HudCounter.PROJECTILES, projectilesRemaining);
     }
 
     /**
@@ -321,6 +342,7 @@ public class Projectile extends PhysicsSprite
             _pool[i].physBody.setBullet(true);
             _pool[i].physBody.setActive(false);
             Level.current.attachChild(_pool[i].getSprite());
+            _pool[i].setBatched();
         }
         _nextIndex = 0;
         _poolSize = size;
@@ -341,6 +363,7 @@ public class Projectile extends PhysicsSprite
         _disappearSound = null;
         _gravityEnabled = false;
         projectilesRemaining = -1;
+        HudCounter.publish(HudCounter.PROJECTILES, projectilesRemaining);
         randomizeProjectileSprites = 0;
         _projectileSubClass = -1;
     }
@@ -367,19 +390,22 @@ public class Projectile extends PhysicsSprite
      *            x coordinate of the top left corner of the thrower
      * @param yy
      *            y coordinate of the top left corner of the thrower
+     * @return The projectile that was thrown, or null if none could be
      */
-    static void throwFixed(float xx, float yy)
+    static Projectile throwFixed(float xx, float yy)
     {
         // have we reached our limit?
         if (projectilesRemaining == 0)
-            return;
+            return null;
         // do we need to decrease our limit?
-        if (projectilesRemaining != -1)
+        if (projectilesRemaining != -1) {
             projectilesRemaining--;
+            HudCounter.publish(HudCounter.PROJECTILES, projectilesRemaining);
+        }
 
         // is there an available projectile?
         if (_pool[_nextIndex].getSprite().isVisible())
-            return;
+            return null;
         // calculate offset for starting position of projectile
         float x = xx + _offset.x;
         float y = yy + _offset.y;
@@ -415,7 +441,7 @@ public class Projectile extends PhysicsSprite
         
         // now animate the hero to do the throw:
         Hero.lastHero.doThrowAnimation();
-        
+        return b;
     }
 
     /**
@@ -436,8 +462,10 @@ public class Projectile extends PhysicsSprite
         if (projectilesRemaining == 0)
             return;
         // do we need to decrease our limit?
-        if (projectilesRemaining != -1)
+        if (projectilesRemaining != -1) {
             projectilesRemaining--;
+            HudCounter.publish(HudCounter.PROJECTILES, projectilesRemaining);
+        }
 
         // is there an available projectile?
         if (_pool[_nextIndex].getSprite().isVisible())
@@ -489,7 +517,7 @@ public class Projectile extends PhysicsSprite
      */
     public static void setThrowSound(String soundName)
     {
-        Sound s = Media.getSound(soundName);
+        SoundEffect s = Media.getSound(soundName);
         _throwSound = s;
     }
 
@@ -0,0 +1,176 @@
+package edu.lehigh.cse.ale;
+
+import java.util.ArrayList;
+
+import org.andengine.engine.handler.IUpdateHandler;
+import org.andengine.entity.IEntity;
+
+/**
+ * The Reclaimer is responsible for really getting rid of entities that have
+ * vanished. When a PhysicsSprite vanishes, it is only hidden and its body is
+ * deactivated; without the Reclaimer, its sprite would stay attached to the
+ * scene, its PhysicsConnector would stay registered, and its body would stay in
+ * the physics world forever.
+ *
+ * Vanished entities are queued here, and once per update (after the physics
+ * step and its collisions have been handled) the queue is processed in one
+ * batch: bodies are destroyed, connectors are unregistered, sprites are
+ * detached, and touch areas are unregistered.
+ *
+ * @author spear
+ */
+public class Reclaimer implements IUpdateHandler
+{
+    /**
+     * The one update handler that we register with each level
+     */
+    static final Reclaimer handler = new Reclaimer();
+
+    /**
+     * Entities that vanished since the last pass
+     */
+    private static final ArrayList<PhysicsSprite> _pending = new ArrayList<PhysicsSprite>();
+
+    /**
+     * Decorations (such as disappear animations) that are finished and should
+     * be detached from the scene
+     */
+    private static final ArrayList<IEntity> _decorations = new ArrayList<IEntity>();
+
+    /**
+     * Number of entities created in this level that have not been reclaimed
+     */
+    static int liveCount;
+
+    /**
+     * Number of entities reclaimed in this level
+     */
+    static int reclaimedCount;
+
+    /**
+     * Prevent this from being created anywhere else
+     */
+    private Reclaimer()
+    {
+    }
+
+    /**
+     * Call this whenever we create a new level, to forget about the old one
+     */
+    static void onNewLevel()
+    {
+        _pending.clear();
+        _decorations.clear();
+        liveCount = 0;
+        reclaimedCount = 0;
+    }
+
+    /**
+     * Internal method to note that an entity has been created
+     */
+    static void onCreate()
+    {
+        liveCount++;
+    }
+
+    /**
+     * Internal method to queue a vanished entity for reclamation
+     *
+     * @param ps
+     *            The entity that vanished
+     */
+    static void enqueue(PhysicsSprite ps)
+    {
+        if (ps.reclaimPending || ps.reclaimed)
+            return;
+        ps.reclaimPending = true;
+        // make sure the body stops producing collisions right away
+        if (ps.physBody != null)
+            ps.physBody.setActive(false);
+        _pending.add(ps);
+    }
+
+    /**
+     * Internal method to queue a decoration for removal from the scene
+     *
+     * @param e
+     *            The decoration to remove
+     */
+    static void enqueueDecoration(IEntity e)
+    {
+        _decorations.add(e);
+    }
+
+    /**
+     * Report the number of entities in the current level that have been created
+     * and not yet reclaimed
+     *
+     * @return The number of live entities
+     */
+    public static int getLiveCount()
+    {
+        return liveCount;
+    }
+
+    /**
+     * Report the number of entities in the current level that have been
+     * reclaimed
+     *
+     * @return The number of reclaimed entities
+     */
+    public static int getReclaimedCount()
+    {
+        return reclaimedCount;
+    }
+
+    /**
+     * Each update, reclaim everything that vanished since the last update
+     *
+     * @param secondsElapsed
+     *            How much time has passed since the last update
+     */
+    @Override
+    public void onUpdate(float secondsElapsed)
+    {
+        for (int i = 0; i < _pending.size(); ++i)
+            reclaim(_pending.get(i));
+        _pending.clear();
+
+        for (int i = 0; i < _decorations.size(); ++i)
+            _decorations.get(i).detachSelf();
+        _decorations.clear();
+    }
+
+    /**
+     * Internal method to reclaim a single entity
+     *
+     * @param ps
+     *            The entity to reclaim
+     */
+    private static void reclaim(PhysicsSprite ps)
+    {
+        if (ps.physBody != null) {
+            if (ps._connector != null)
+                Level.physics.unregisterPhysicsConnector(ps._connector);
+            Level.physics.destroyBody(ps.physBody);
+            // nobody should touch a destroyed body
+            ps.physBody = null;
+        }
+        Level.current.unregisterTouchArea(ps.getSprite());
+        ps.getSprite().detachSelf();
+        if (ps.isTilt)
+            Level.accelEntities.remove(ps);
+        ps.reclaimPending = false;
+        ps.reclaimed = true;
+        liveCount--;
+        reclaimedCount++;
+    }
+
+    /**
+     * We don't need to do anything on a reset
+     */
+    @Override
+    public void reset()
+    {
+    }
+}
@@ -311,6 +311,9 @@ public class SVGParser extends DefaultHandler
      * the body so that collision detection can safely cast the line's body's
      * getUserData() to a PhysicsSprite.
      * 
+     * This isn't private, so that the benchmarks can count the lines instead
+     * of drawing them.
+     * 
      * @param x1
      *            X coordinate of first endpoint
      * @param y1
@@ -320,10 +323,10 @@ public class SVGParser extends DefaultHandler
      * @param y2
      *            Y coordinate of second endpoint
      */
-    private void addLine(float x1, float y1, float x2, float y2)
+    void addLine(float x1, float y1, float x2, float y2)
     {
         // draw a line
-        Line line = new Line(x1, y1, x2, y2, 2, ALE.self().getVertexBufferObjectManager());
+        Line line = new Line(x1, y1, x2, y2, 2, Platform.current().getVertexBufferObjectManager());
         line.setColor(lineRed, lineGreen, lineBlue);
         // make a physics entity for the line
         Body b = PhysicsFactory.createLineBody(Level.physics, line, fixture);
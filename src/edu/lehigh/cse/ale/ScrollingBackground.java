@@ -0,0 +1,225 @@
+package edu.lehigh.cse.ale;
+
+import java.util.ArrayList;
+
+import org.andengine.engine.camera.Camera;
+import org.andengine.entity.scene.background.Background;
+import org.andengine.entity.sprite.Sprite;
+import org.andengine.opengl.texture.region.TextureRegion;
+import org.andengine.opengl.util.GLState;
+
+/**
+ * A ScrollingBackground is a solid color with layers of images on top of it,
+ * each of which repeats forever in the X or Y dimension and scrolls at its
+ * own rate as the camera moves.
+ *
+ * A parallax background used to draw a layer by drawing its image over and
+ * over, one copy after another, until the screen was covered. Instead, each
+ * layer is a single strip that spans the screen, and its image is on a
+ * texture that repeats. Scrolling only changes the strip's texture
+ * coordinates, so every layer takes one draw, no matter how big its image is,
+ * and no part of the screen is drawn twice by the same layer.
+ *
+ * @author spear
+ */
+class ScrollingBackground extends Background
+{
+    /**
+     * A strip of a repeating image, spanning the screen
+     */
+    private static final class Layer extends Sprite
+    {
+        /**
+         * The part of the repeating texture that the strip shows
+         */
+        private final TextureRegion _region;
+
+        /**
+         * How fast this layer scrolls, compared to the camera
+         */
+        private final float _factor;
+
+        /**
+         * Does the image repeat in the Y dimension instead of X?
+         */
+        private final boolean _vertical;
+
+        /**
+         * Where the image starts, along the direction it repeats
+         */
+        private final float _start;
+
+        /**
+         * The length of the image along the direction it repeats, in pixels
+         * of the texture
+         */
+        private final float _period;
+
+        /**
+         * Texture pixels per image pixel, since the image was stretched to
+         * fill its texture
+         */
+        private final float _stretch;
+
+        /**
+         * The scroll value the texture coordinates were last set for
+         */
+        private float _lastScroll = Float.NaN;
+
+        /**
+         * Make a layer
+         *
+         * @param region
+         *            The region covering the image's repeating texture
+         * @param imageWidth
+         *            The width of the image, before it was stretched
+         * @param imageHeight
+         *            The height of the image, before it was stretched
+         * @param factor
+         *            How fast this layer scrolls, compared to the camera
+         * @param x
+         *            Starting x coordinate of top left corner of the image
+         * @param y
+         *            Starting y coordinate of top left corner of the image
+         * @param vertical
+         *            True if the image repeats in the Y dimension, false for
+         *            the X dimension
+         * @param camera
+         *            The camera whose screen the strip spans
+         */
+        Layer(TextureRegion region, int imageWidth, int imageHeight, float factor, int x, int y, boolean vertical,
+                Camera camera)
+        {
+            super(vertical ? x : 0, vertical ? 0 : y, vertical ? imageWidth : camera.getWidthRaw(),
+                    vertical ? camera.getHeightRaw() : imageHeight, region, Platform.current()
+                            .getVertexBufferObjectManager());
+            _region = region;
+            // compressed images with transparency need their halves combined
+            if (region.getTexture() instanceof SplitAlphaTexture)
+                setShaderProgram(SplitAlphaShaderProgram.getInstance());
+            _factor = factor;
+            _vertical = vertical;
+            _start = vertical ? y : x;
+            _period = vertical ? region.getHeight() : region.getWidth();
+            _stretch = vertical ? region.getHeight() / imageHeight : region.getWidth() / imageWidth;
+            // the strip shows as much of the texture as it has room for, and
+            // the texture repeats to fill the rest
+            if (vertical)
+                region.setTextureHeight(camera.getHeightRaw() * _stretch);
+            else
+                region.setTextureWidth(camera.getWidthRaw() * _stretch);
+        }
+
+        /**
+         * Move the texture coordinates to match the scroll value. Nothing
+         * changes if the scroll value hasn't.
+         *
+         * @param scroll
+         *            The camera's scroll value in this layer's direction
+         */
+        void scroll(float scroll)
+        {
+            if (scroll == _lastScroll)
+                return;
+            _lastScroll = scroll;
+            // horizontal layers move with the camera, vertical ones against
+            // it, just like the parallax backgrounds they replace
+            float offset = _vertical ? _factor * scroll - _start : -(_factor * scroll + _start);
+            // keep the offset small, so the texture coordinates don't lose
+            // precision as the camera goes far from the start
+            offset = (offset * _stretch) % _period;
+            if (offset < 0)
+                offset += _period;
+            if (_vertical)
+                _region.setTextureY(offset);
+            else
+                _region.setTextureX(offset);
+            onUpdateTextureCoordinates();
+        }
+    }
+
+    /**
+     * The layers, from back to front
+     */
+    private final ArrayList<Layer> _layers = new ArrayList<Layer>();
+
+    /**
+     * The scroll value in the X dimension
+     */
+    private float _scrollX;
+
+    /**
+     * The scroll value in the Y dimension
+     */
+    private float _scrollY;
+
+    /**
+     * Make a background with no layers yet
+     *
+     * @param red
+     *            The red portion of the color
+     * @param green
+     *            The green portion of the color
+     * @param blue
+     *            The blue portion of the color
+     */
+    ScrollingBackground(float red, float green, float blue)
+    {
+        super(red, green, blue);
+    }
+
+    /**
+     * Add a layer on top of the existing ones
+     *
+     * @param imgName
+     *            Name of the image file to display
+     * @param factor
+     *            How fast the layer scrolls, compared to the camera
+     * @param x
+     *            Starting x coordinate of top left corner
+     * @param y
+     *            Starting y coordinate of top left corner
+     * @param vertical
+     *            True if the image repeats in the Y dimension, false for the X
+     *            dimension
+     */
+    void addLayer(String imgName, float factor, int x, int y, boolean vertical)
+    {
+        int[] size = new int[2];
+        TextureRegion region = Media.getRepeatingImage(imgName, size);
+        if (region == null)
+            return;
+        // each layer needs its own copy of the region, since it moves the
+        // region around the texture
+        _layers.add(new Layer(region.deepCopy(), size[0], size[1], factor, x, y, vertical,
+                Platform.current().getCamera()));
+    }
+
+    /**
+     * Set how far the background has scrolled
+     *
+     * @param scrollX
+     *            The scroll value in the X dimension
+     * @param scrollY
+     *            The scroll value in the Y dimension
+     */
+    void setScroll(float scrollX, float scrollY)
+    {
+        _scrollX = scrollX;
+        _scrollY = scrollY;
+    }
+
+    /**
+     * Draw the color, and then each layer with one draw
+     */
+    @Override
+    public void onDraw(final GLState glState, final Camera camera)
+    {
+        super.onDraw(glState, camera);
+        for (int i = 0; i < _layers.size(); ++i) {
+            Layer l = _layers.get(i);
+            l.scroll(l._vertical ? _scrollY : _scrollX);
+            l.onDraw(glState, camera);
+        }
+    }
+}
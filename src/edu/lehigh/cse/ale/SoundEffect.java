@@ -0,0 +1,80 @@
+package edu.lehigh.cse.ale;
+
+import org.andengine.audio.sound.Sound;
+
+/**
+ * A SoundEffect is a registered sound, along with the rules for how often it
+ * may play. Playing it asks the Mixer for a voice, so a burst of requests
+ * can't flood the sound pool.
+ *
+ * @author spear
+ */
+class SoundEffect
+{
+    /**
+     * The sound to play
+     */
+    final Sound sound;
+
+    /**
+     * The most copies of this sound that can play at once
+     */
+    final int maxVoices;
+
+    /**
+     * When there are no voices left, a sound can take the voice of one with a
+     * lower or equal priority
+     */
+    final int priority;
+
+    /**
+     * The least time, in seconds, between starting two copies of this sound
+     */
+    final float minInterval;
+
+    /**
+     * How long the sound lasts, in seconds
+     */
+    final float length;
+
+    /**
+     * When this sound was last started
+     */
+    float lastStarted = Float.NEGATIVE_INFINITY;
+
+    /**
+     * The number of copies of this sound that are playing
+     */
+    int playing;
+
+    /**
+     * Make a sound effect
+     *
+     * @param sound
+     *            The sound to play
+     * @param maxVoices
+     *            The most copies of this sound that can play at once
+     * @param priority
+     *            How important the sound is, compared to others
+     * @param minInterval
+     *            The least time, in seconds, between starting two copies
+     * @param length
+     *            How long the sound lasts, in seconds
+     */
+    SoundEffect(Sound sound, int maxVoices, int priority, float minInterval, float length)
+    {
+        this.sound = sound;
+        this.maxVoices = maxVoices;
+        this.priority = priority;
+        this.minInterval = minInterval;
+        this.length = length;
+    }
+
+    /**
+     * Play the sound, if the mixer allows it
+     */
+    void play()
+    {
+        Mixer.play(this);
+    }
+}
@@ -0,0 +1,294 @@
+package edu.lehigh.cse.ale;
+
+import java.util.ArrayList;
+
+import org.andengine.engine.handler.IUpdateHandler;
+
+/**
+ * The SpatialGrid finds enemies by where they are, without looking at every
+ * enemy in the level.
+ *
+ * The level is divided into square cells, and each live enemy is linked into
+ * the cell that holds its center. Once per update, after the physics step,
+ * every enemy's cell is checked, and only enemies that changed cells are
+ * moved, so keeping the grid current costs little more than reading each
+ * enemy's position. Enemies that have vanished are taken out of the grid,
+ * and enemies that have been reclaimed are also dropped from
+ * Enemy.liveEnemies.
+ *
+ * A query only looks at the cells that its area covers. Since an enemy is
+ * filed by its center, rectangle queries are widened by half the size of the
+ * biggest enemy, so that enemies whose edges reach into the area are found.
+ *
+ * @author spear
+ */
+public class SpatialGrid implements IUpdateHandler
+{
+    /**
+     * The one update handler that we register with each level
+     */
+    static final SpatialGrid handler = new SpatialGrid();
+
+    /**
+     * The width and height of a cell, in pixels
+     */
+    private static final int CELL_SIZE = 64;
+
+    /**
+     * The number of columns of cells
+     */
+    private static int _columns = 1;
+
+    /**
+     * The number of rows of cells
+     */
+    private static int _rows = 1;
+
+    /**
+     * The first enemy in each cell, by row and then column
+     */
+    private static Enemy[] _cells = new Enemy[1];
+
+    /**
+     * Half of the widest enemy's width, in this level
+     */
+    private static float _maxHalfWidth;
+
+    /**
+     * Half of the tallest enemy's height, in this level
+     */
+    private static float _maxHalfHeight;
+
+    /**
+     * Prevent this from being created anywhere else
+     */
+    private SpatialGrid()
+    {
+    }
+
+    /**
+     * Call this whenever we create a new level, to size the grid to it
+     */
+    static void onNewLevel()
+    {
+        _columns = Math.max(1, (Level._width + CELL_SIZE - 1) / CELL_SIZE);
+        _rows = Math.max(1, (Level._height + CELL_SIZE - 1) / CELL_SIZE);
+        _cells = new Enemy[_columns * _rows];
+        _maxHalfWidth = 0;
+        _maxHalfHeight = 0;
+    }
+
+    /**
+     * Move each enemy to the cell that holds its center
+     *
+     * @param elapsed
+     *            Time since the last update
+     */
+    @Override
+    public void onUpdate(float elapsed)
+    {
+        ArrayList<Enemy> enemies = Enemy.liveEnemies;
+        for (int i = enemies.size() - 1; i >= 0; --i) {
+            Enemy e = enemies.get(i);
+            if (e.reclaimed) {
+                unlink(e);
+                // swap-remove, so that the list never shifts
+                int last = enemies.size() - 1;
+                enemies.set(i, enemies.get(last));
+                enemies.remove(last);
+                continue;
+            }
+            if (!e.getSprite().isVisible() || !e.physBody.isActive()) {
+                unlink(e);
+                continue;
+            }
+            float halfWidth = e.getSprite().getWidth() / 2;
+            float halfHeight = e.getSprite().getHeight() / 2;
+            int cell = row(e.getSprite().getY() + halfHeight) * _columns + column(e.getSprite().getX() + halfWidth);
+            if (cell == e.gridCell)
+                continue;
+            unlink(e);
+            e.gridCell = cell;
+            e.gridNext = _cells[cell];
+            if (e.gridNext != null)
+                e.gridNext.gridPrev = e;
+            _cells[cell] = e;
+            _maxHalfWidth = Math.max(_maxHalfWidth, halfWidth);
+            _maxHalfHeight = Math.max(_maxHalfHeight, halfHeight);
+        }
+    }
+
+    /**
+     * The grid doesn't need to be reset
+     */
+    @Override
+    public void reset()
+    {
+    }
+
+    /**
+     * Internal method to take an enemy out of its cell, if it is in one
+     *
+     * @param e
+     *            The enemy
+     */
+    private static void unlink(Enemy e)
+    {
+        if (e.gridCell < 0)
+            return;
+        if (e.gridPrev != null)
+            e.gridPrev.gridNext = e.gridNext;
+        else
+            _cells[e.gridCell] = e.gridNext;
+        if (e.gridNext != null)
+            e.gridNext.gridPrev = e.gridPrev;
+        e.gridPrev = null;
+        e.gridNext = null;
+        e.gridCell = -1;
+    }
+
+    /**
+     * Internal method to find the column that holds an x coordinate. Points
+     * off the edge of the level are put in the nearest column.
+     *
+     * @param x
+     *            The x coordinate
+     * @return The column
+     */
+    private static int column(float x)
+    {
+        return Math.max(0, Math.min(_columns - 1, (int) Math.floor(x / CELL_SIZE)));
+    }
+
+    /**
+     * Internal method to find the row that holds a y coordinate. Points off
+     * the edge of the level are put in the nearest row.
+     *
+     * @param y
+     *            The y coordinate
+     * @return The row
+     */
+    private static int row(float y)
+    {
+        return Math.max(0, Math.min(_rows - 1, (int) Math.floor(y / CELL_SIZE)));
+    }
+
+    /**
+     * Find the enemies that overlap a rectangle
+     *
+     * @param left
+     *            The x coordinate of the left edge of the rectangle
+     * @param top
+     *            The y coordinate of the top edge of the rectangle
+     * @param right
+     *            The x coordinate of the right edge of the rectangle
+     * @param bottom
+     *            The y coordinate of the bottom edge of the rectangle
+     * @param found
+     *            A list to put the enemies in. It is cleared first.
+     * @return The number of enemies found
+     */
+    public static int findEnemiesInRectangle(float left, float top, float right, float bottom,
+            ArrayList<Enemy> found)
+    {
+        found.clear();
+        int minColumn = column(left - _maxHalfWidth);
+        int maxColumn = column(right + _maxHalfWidth);
+        int minRow = row(top - _maxHalfHeight);
+        int maxRow = row(bottom + _maxHalfHeight);
+        for (int r = minRow; r <= maxRow; ++r) {
+            for (int c = minColumn; c <= maxColumn; ++c) {
+                for (Enemy e = _cells[r * _columns + c]; e != null; e = e.gridNext) {
+                    float x = e.getSprite().getX();
+                    float y = e.getSprite().getY();
+                    if (x <= right && x + e.getSprite().getWidth() >= left && y <= bottom
+                            && y + e.getSprite().getHeight() >= top)
+                        found.add(e);
+                }
+            }
+        }
+        return found.size();
+    }
+
+    /**
+     * Find the enemies whose centers are within some distance of a point
+     *
+     * @param x
+     *            The x coordinate of the point
+     * @param y
+     *            The y coordinate of the point
+     * @param radius
+     *            The distance
+     * @param found
+     *            A list to put the enemies in. It is cleared first.
+     * @return The number of enemies found
+     */
+    public static int findEnemiesInRadius(float x, float y, float radius, ArrayList<Enemy> found)
+    {
+        found.clear();
+        int minColumn = column(x - radius);
+        int maxColumn = column(x + radius);
+        int minRow = row(y - radius);
+        int maxRow = row(y + radius);
+        for (int r = minRow; r <= maxRow; ++r) {
+            for (int c = minColumn; c <= maxColumn; ++c) {
+                for (Enemy e = _cells[r * _columns + c]; e != null; e = e.gridNext) {
+                    float dx = e.getSprite().getX() + e.getSprite().getWidth() / 2 - x;
+                    float dy = e.getSprite().getY() + e.getSprite().getHeight() / 2 - y;
+                    if (dx * dx + dy * dy <= radius * radius)
+                        found.add(e);
+                }
+            }
+        }
+        return found.size();
+    }
+
+    /**
+     * Find the enemy whose center is closest to a point. Cells are searched in
+     * rings around the point's cell, and the search stops once no cell that is
+     * left could hold anything closer.
+     *
+     * @param x
+     *            The x coordinate of the point
+     * @param y
+     *            The y coordinate of the point
+     * @param maxDistance
+     *            Enemies farther away than this are ignored
+     * @return The closest enemy, or null if there isn't one within range
+     */
+    public static Enemy findNearestEnemy(float x, float y, float maxDistance)
+    {
+        int column = column(x);
+        int row = row(y);
+        Enemy best = null;
+        float bestSquared = maxDistance * maxDistance;
+        int maxRing = Math.max(_columns, _rows);
+        for (int ring = 0; ring <= maxRing; ++ring) {
+            for (int r = row - ring; r <= row + ring; ++r) {
+                if (r < 0 || r >= _rows)
+                    continue;
+                // the top and bottom rows of the ring are whole, but the
+                // rows in between only have their two ends
+                int step = (r == row - ring || r == row + ring) ? 1 : Math.max(1, 2 * ring);
+                for (int c = column - ring; c <= column + ring; c += step) {
+                    if (c < 0 || c >= _columns)
+                        continue;
+                    for (Enemy e = _cells[r * _columns + c]; e != null; e = e.gridNext) {
+                        float dx = e.getSprite().getX() + e.getSprite().getWidth() / 2 - x;
+                        float dy = e.getSprite().getY() + e.getSprite().getHeight() / 2 - y;
+                        float squared = dx * dx + dy * dy;
+                        if (squared <= bestSquared) {
+                            bestSquared = squared;
+                            best = e;
+                        }
+                    }
+                }
+            }
+            // every cell in the next ring is at least this far away
+            float reach = ring * (float) CELL_SIZE;
+            if (reach * reach > bestSquared)
+                break;
+        }
+        return best;
+    }
+}
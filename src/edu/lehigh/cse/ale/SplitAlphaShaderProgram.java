@@ -0,0 +1,112 @@
+package edu.lehigh.cse.ale;
+
+import org.andengine.opengl.shader.PositionColorTextureCoordinatesShaderProgram;
+import org.andengine.opengl.shader.ShaderProgram;
+import org.andengine.opengl.shader.constants.ShaderProgramConstants;
+import org.andengine.opengl.shader.exception.ShaderProgramLinkException;
+import org.andengine.opengl.util.GLState;
+import org.andengine.opengl.vbo.attribute.VertexBufferObjectAttributes;
+
+import android.opengl.GLES20;
+
+/**
+ * The SplitAlphaShaderProgram draws sprites whose image is a
+ * SplitAlphaTexture. It is the same as AndEngine's usual sprite shader,
+ * except that each pixel's transparency comes from the second texture unit.
+ *
+ * @author spear
+ */
+class SplitAlphaShaderProgram extends ShaderProgram
+{
+    /**
+     * Colors come from the first texture, and transparency from the second
+     * texture's green channel, which ETC1 stores most accurately
+     */
+    private static final String FRAGMENTSHADER = "precision lowp float;\n" + "uniform sampler2D "
+            + ShaderProgramConstants.UNIFORM_TEXTURE_0 + ";\n" + "uniform sampler2D "
+            + ShaderProgramConstants.UNIFORM_TEXTURE_1 + ";\n" + "varying lowp vec4 "
+            + ShaderProgramConstants.VARYING_COLOR + ";\n" + "varying mediump vec2 "
+            + ShaderProgramConstants.VARYING_TEXTURECOORDINATES + ";\n" + "void main() {\n"
+            + "\tvec3 rgb = texture2D(" + ShaderProgramConstants.UNIFORM_TEXTURE_0 + ", "
+            + ShaderProgramConstants.VARYING_TEXTURECOORDINATES + ").rgb;\n" + "\tfloat a = texture2D("
+            + ShaderProgramConstants.UNIFORM_TEXTURE_1 + ", " + ShaderProgramConstants.VARYING_TEXTURECOORDINATES
+            + ").g;\n" + "\tgl_FragColor = " + ShaderProgramConstants.VARYING_COLOR + " * vec4(rgb, a);\n" + "}";
+
+    /**
+     * The only instance
+     */
+    private static SplitAlphaShaderProgram _instance;
+
+    /**
+     * Where the matrix goes
+     */
+    private int _matrixLocation = -1;
+
+    /**
+     * Where the color texture goes
+     */
+    private int _texture0Location = -1;
+
+    /**
+     * Where the transparency texture goes
+     */
+    private int _texture1Location = -1;
+
+    /**
+     * Make the shader program, reusing the usual sprite vertex shader
+     */
+    private SplitAlphaShaderProgram()
+    {
+        super(PositionColorTextureCoordinatesShaderProgram.VERTEXSHADER, FRAGMENTSHADER);
+    }
+
+    /**
+     * @return The shader program
+     */
+    static SplitAlphaShaderProgram getInstance()
+    {
+        if (_instance == null)
+            _instance = new SplitAlphaShaderProgram();
+        return _instance;
+    }
+
+    /**
+     * Bind the attributes where sprites' vertex buffers expect them, and
+     * find the uniforms
+     *
+     * @param glState
+     *            The current GL state
+     */
+    @Override
+    protected void link(GLState glState) throws ShaderProgramLinkException
+    {
+        GLES20.glBindAttribLocation(mProgramID, ShaderProgramConstants.ATTRIBUTE_POSITION_LOCATION,
+                ShaderProgramConstants.ATTRIBUTE_POSITION);
+        GLES20.glBindAttribLocation(mProgramID, ShaderProgramConstants.ATTRIBUTE_COLOR_LOCATION,
+                ShaderProgramConstants.ATTRIBUTE_COLOR);
+        GLES20.glBindAttribLocation(mProgramID, ShaderProgramConstants.ATTRIBUTE_TEXTURECOORDINATES_LOCATION,
+                ShaderProgramConstants.ATTRIBUTE_TEXTURECOORDINATES);
+        super.link(glState);
+        _matrixLocation = getUniformLocation(ShaderProgramConstants.UNIFORM_MODELVIEWPROJECTIONMATRIX);
+        _texture0Location = getUniformLocation(ShaderProgramConstants.UNIFORM_TEXTURE_0);
+        _texture1Location = getUniformLocation(ShaderProgramConstants.UNIFORM_TEXTURE_1);
+    }
+
+    /**
+     * Set the matrix, and point the samplers at the two texture units
+     *
+     * @param glState
+     *            The current GL state
+     * @param attributes
+     *            The layout of the vertex buffer being drawn
+     */
+    @Override
+    public void bind(GLState glState, VertexBufferObjectAttributes attributes)
+    {
+        GLES20.glDisableVertexAttribArray(ShaderProgramConstants.ATTRIBUTE_NORMAL_LOCATION);
+        super.bind(glState, attributes);
+        GLES20.glUniformMatrix4fv(_matrixLocation, 1, false, glState.getModelViewProjectionGLMatrix(), 0);
+        GLES20.glUniform1i(_texture0Location, 0);
+        GLES20.glUniform1i(_texture1Location, 1);
+    }
+}
@@ -0,0 +1,144 @@
+package edu.lehigh.cse.ale;
+
+import java.io.IOException;
+
+import org.andengine.opengl.texture.PixelFormat;
+import org.andengine.opengl.texture.Texture;
+import org.andengine.opengl.texture.TextureManager;
+import org.andengine.opengl.texture.TextureOptions;
+import org.andengine.opengl.util.GLState;
+
+import android.opengl.GLES20;
+
+/**
+ * A SplitAlphaTexture is an image whose colors and transparency are stored
+ * in two compressed textures.
+ *
+ * ETC1 compression can't store transparency, so images that need it are
+ * compressed twice: once for the colors, and once with the transparency of
+ * each pixel stored as its brightness. Binding this texture binds the colors
+ * to the first texture unit and the transparency to the second, and sprites
+ * that use it draw with a SplitAlphaShaderProgram, which puts the two back
+ * together.
+ *
+ * @author spear
+ */
+class SplitAlphaTexture extends Texture
+{
+    /**
+     * The colors of the image
+     */
+    private final Texture _color;
+
+    /**
+     * The transparency of the image
+     */
+    private final Texture _alpha;
+
+    /**
+     * Make a texture from its two halves
+     *
+     * @param textureManager
+     *            The manager that loads this texture
+     * @param color
+     *            The colors of the image
+     * @param alpha
+     *            The transparency of the image, as brightness
+     */
+    SplitAlphaTexture(TextureManager textureManager, Texture color, Texture alpha)
+    {
+        super(textureManager, PixelFormat.RGB_565, TextureOptions.BILINEAR, null);
+        _color = color;
+        _alpha = alpha;
+    }
+
+    /**
+     * @return The width of the image
+     */
+    @Override
+    public int getWidth()
+    {
+        return _color.getWidth();
+    }
+
+    /**
+     * @return The height of the image
+     */
+    @Override
+    public int getHeight()
+    {
+        return _color.getHeight();
+    }
+
+    /**
+     * Load both halves, use the color half's ID as this texture's, and tell
+     * the listener, as Texture does
+     *
+     * @param glState
+     *            The current GL state
+     */
+    @Override
+    public void loadToHardware(GLState glState) throws IOException
+    {
+        _color.loadToHardware(glState);
+        _alpha.loadToHardware(glState);
+        mHardwareTextureID = _color.getHardwareTextureID();
+        mUpdateOnHardwareNeeded = false;
+        if (mTextureStateListener != null)
+            mTextureStateListener.onLoadedToHardware(this);
+    }
+
+    /**
+     * Unload both halves, and tell the listener, as Texture does
+     *
+     * @param glState
+     *            The current GL state
+     */
+    @Override
+    public void unloadFromHardware(GLState glState)
+    {
+        _color.unloadFromHardware(glState);
+        _alpha.unloadFromHardware(glState);
+        mHardwareTextureID = HARDWARE_TEXTURE_ID_INVALID;
+        if (mTextureStateListener != null)
+            mTextureStateListener.onUnloadedFromHardware(this);
+    }
+
+    /**
+     * Forget both halves, after the GL context is lost
+     */
+    @Override
+    public void setNotLoadedToHardware()
+    {
+        _color.setNotLoadedToHardware();
+        _alpha.setNotLoadedToHardware();
+        super.setNotLoadedToHardware();
+    }
+
+    /**
+     * The halves write themselves when they are loaded
+     *
+     * @param glState
+     *            The current GL state
+     */
+    @Override
+    protected void writeTextureToHardware(GLState glState)
+    {
+    }
+
+    /**
+     * Bind the transparency to the second texture unit, and then the colors
+     * to the first, which is left active
+     *
+     * @param glState
+     *            The current GL state
+     */
+    @Override
+    public void bind(GLState glState)
+    {
+        glState.activeTexture(GLES20.GL_TEXTURE1);
+        _alpha.bind(glState);
+        glState.activeTexture(GLES20.GL_TEXTURE0);
+        _color.bind(glState);
+    }
+}
@@ -0,0 +1,168 @@
+package edu.lehigh.cse.ale;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.andengine.entity.sprite.batch.DynamicSpriteBatch;
+import org.andengine.opengl.texture.ITexture;
+
+/**
+ * The SpriteBatcher draws batched entities that share a texture with a single
+ * draw call.
+ *
+ * Normally every entity's sprite draws itself, so forty bullets on the screen
+ * means forty draw calls that all use the same texture. When an entity is
+ * batched, its sprite still moves, animates, and receives touches as usual,
+ * but it doesn't draw itself. Instead, each frame the batch for its texture
+ * copies the position, rotation, scale, color and current animation cell of
+ * every visible sprite into one vertex buffer, and draws them all at once.
+ * Since images are packed onto shared atlases, most batched entities end up
+ * in the same few batches.
+ *
+ * @author spear
+ */
+class SpriteBatcher
+{
+    /**
+     * The number of sprites a new batch has room for
+     */
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * A batch of sprites that share a texture
+     */
+    private static final class Batch extends DynamicSpriteBatch
+    {
+        /**
+         * The entities drawn by this batch
+         */
+        final ArrayList<PhysicsSprite> entities;
+
+        /**
+         * The number of sprites this batch has room for
+         */
+        final int capacity;
+
+        /**
+         * Make a batch
+         *
+         * @param texture
+         *            The texture that every sprite in the batch uses
+         * @param capacity
+         *            The number of sprites the batch has room for
+         * @param entities
+         *            The entities drawn by this batch
+         */
+        Batch(ITexture texture, int capacity, ArrayList<PhysicsSprite> entities)
+        {
+            super(texture, capacity, Platform.current().getVertexBufferObjectManager());
+            this.capacity = capacity;
+            this.entities = entities;
+            // draw at the same depth as the sprites would have
+            setZIndex(1);
+            if (texture instanceof SplitAlphaTexture)
+                setShaderProgram(SplitAlphaShaderProgram.getInstance());
+        }
+
+        /**
+         * Each frame, copy every visible sprite into the batch, and forget
+         * about entities whose sprites are no longer in the scene
+         *
+         * @return true, since the batch always changes
+         */
+        @Override
+        protected boolean onUpdateSpriteBatch()
+        {
+            for (int i = entities.size() - 1; i >= 0; --i) {
+                PhysicsSprite.SpriteType s = entities.get(i).getSprite();
+                if (!s.hasParent()) {
+                    // swap-remove, so that the list never shifts
+                    int last = entities.size() - 1;
+                    entities.get(i).batched = false;
+                    entities.set(i, entities.get(last));
+                    entities.remove(last);
+                }
+                else if (s.isVisible()) {
+                    drawWithoutChecks(s.getTiledTextureRegion().getTextureRegion(s.getCurrentTileIndex()), s,
+                            s.getWidth(), s.getHeight(), s.getRed(), s.getGreen(), s.getBlue(), s.getAlpha());
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The batch for each texture in the current level
+     */
+    private static final HashMap<ITexture, Batch> _batches = new HashMap<ITexture, Batch>();
+
+    /**
+     * Prevent this from being created
+     */
+    private SpriteBatcher()
+    {
+    }
+
+    /**
+     * Call this whenever we create a new level, since the old level's batches
+     * belong to its scene
+     */
+    static void onNewLevel()
+    {
+        _batches.clear();
+    }
+
+    /**
+     * Internal method to start drawing an entity as part of the batch for its
+     * texture. The batch is made, or grown, as needed.
+     *
+     * @param ps
+     *            The entity to batch
+     */
+    static void add(PhysicsSprite ps)
+    {
+        ITexture texture = ps.getSprite().getTiledTextureRegion().getTexture();
+        Batch b = _batches.get(texture);
+        if (b == null) {
+            b = new Batch(texture, INITIAL_CAPACITY, new ArrayList<PhysicsSprite>());
+            _batches.put(texture, b);
+            attach(b);
+        }
+        else if (b.entities.size() == b.capacity) {
+            // the batch's buffer can't grow, so replace it with a bigger one
+            final Batch old = b;
+            b = new Batch(texture, old.capacity * 2, old.entities);
+            _batches.put(texture, b);
+            attach(b);
+            // this may be in the middle of the scene's update, so the old
+            // batch just stops drawing now, and is thrown away next frame
+            old.setVisible(false);
+            old.setIgnoreUpdate(true);
+            Platform.current().runNextFrame(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    old.detachSelf();
+                    old.dispose();
+                }
+            });
+        }
+        b.entities.add(ps);
+    }
+
+    /**
+     * Internal method to put a batch in the current level's scene, at the
+     * depth of the sprites it draws
+     *
+     * @param b
+     *            The batch
+     */
+    private static void attach(Batch b)
+    {
+        Level.current.attachChild(b);
+        // sorting right away could reorder the scene while it is being
+        // updated, so the sort waits until the scene is next drawn
+        Level.current.sortChildren(false);
+    }
+}
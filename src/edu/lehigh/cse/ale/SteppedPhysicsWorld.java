@@ -0,0 +1,149 @@
+package edu.lehigh.cse.ale;
+
+import java.util.ArrayList;
+
+import org.andengine.extension.physics.box2d.PhysicsConnector;
+import org.andengine.extension.physics.box2d.PhysicsWorld;
+
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * The SteppedPhysicsWorld advances the physics world in fixed steps, like
+ * AndEngine's FixedStepPhysicsWorld, but lets each level choose how much work
+ * a step does and how far the world may fall behind.
+ *
+ * The number of velocity and position iterations trades accuracy of stacking
+ * and joints for CPU time; a game without either can use far fewer than the
+ * defaults. When a frame takes a long time, the world catches up by running
+ * several steps at once, which can make the next frame take even longer; a
+ * limit on steps per update makes the game slow down instead, by dropping the
+ * time that couldn't be simulated.
+ *
+ * With interpolation turned on, sprites are drawn between their bodies' last
+ * two steps, according to how much time is left over toward the next step,
+ * so that motion is smooth on screens whose refresh rate doesn't match the
+ * step rate.
+ *
+ * The newest tilt sample is applied right before every step, so that tilt
+ * forces act on each step no matter how often the sensor reports.
+ *
+ * @author spear
+ */
+class SteppedPhysicsWorld extends PhysicsWorld
+{
+    /**
+     * The length of a step, in seconds
+     */
+    private final float _stepLength;
+
+    /**
+     * The most steps to run in one update
+     */
+    private int _maxSteps = Integer.MAX_VALUE;
+
+    /**
+     * Time that has passed, but hasn't been simulated yet
+     */
+    private float _accumulator;
+
+    /**
+     * Are sprites drawn between their bodies' last two steps?
+     */
+    private boolean _interpolate;
+
+    /**
+     * Make a physics world
+     *
+     * @param stepsPerSecond
+     *            How many steps to run for each second of play
+     * @param gravity
+     *            The world's gravity
+     * @param allowSleep
+     *            May bodies that stop moving go to sleep?
+     */
+    SteppedPhysicsWorld(int stepsPerSecond, Vector2 gravity, boolean allowSleep)
+    {
+        super(gravity, allowSleep);
+        _stepLength = 1.0f / stepsPerSecond;
+    }
+
+    /**
+     * Internal method to limit how many steps may run in one update
+     *
+     * @param maxSteps
+     *            The most steps, at least 1
+     */
+    void setMaxSteps(int maxSteps)
+    {
+        _maxSteps = Math.max(1, maxSteps);
+    }
+
+    /**
+     * Internal method to turn interpolation on or off
+     *
+     * @param interpolate
+     *            Should sprites be drawn between their bodies' last two steps?
+     */
+    void setInterpolation(boolean interpolate)
+    {
+        _interpolate = interpolate;
+    }
+
+    /**
+     * Run as many steps as the elapsed time calls for, up to the limit, and
+     * then move the sprites
+     *
+     * @param elapsed
+     *            Time since the last update
+     */
+    @Override
+    public void onUpdate(float elapsed)
+    {
+        mRunnableHandler.onUpdate(elapsed);
+        _accumulator += elapsed;
+        int steps = (int) (_accumulator / _stepLength);
+        if (steps > _maxSteps) {
+            // drop the time that there isn't room to simulate
+            steps = _maxSteps;
+            _accumulator = steps * _stepLength + (_accumulator % _stepLength);
+        }
+        ArrayList<PhysicsConnector> connectors = mPhysicsConnectorManager;
+        for (int i = 0; i < steps; ++i) {
+            // interpolation only needs where things were before the last step
+            if (_interpolate && i == steps - 1) {
+                for (int c = connectors.size() - 1; c >= 0; --c) {
+                    PhysicsConnector pc = connectors.get(c);
+                    if (pc instanceof InterpolatingConnector)
+                        ((InterpolatingConnector) pc).savePrevious();
+                }
+            }
+            // tilt is applied once per step, since Box2D clears forces after
+            // each one
+            TiltInput.onStep(_stepLength);
+            mWorld.step(_stepLength, mVelocityIterations, mPositionIterations);
+            _accumulator -= _stepLength;
+        }
+        if (!_interpolate) {
+            mPhysicsConnectorManager.onUpdate(elapsed);
+            return;
+        }
+        float alpha = Math.max(0, Math.min(1, _accumulator / _stepLength));
+        for (int c = connectors.size() - 1; c >= 0; --c) {
+            PhysicsConnector pc = connectors.get(c);
+            if (pc instanceof InterpolatingConnector)
+                ((InterpolatingConnector) pc).interpolate(alpha, _stepLength);
+            else
+                pc.onUpdate(elapsed);
+        }
+    }
+
+    /**
+     * Forget any time that hasn't been simulated
+     */
+    @Override
+    public void reset()
+    {
+        super.reset();
+        _accumulator = 0;
+    }
+}
@@ -0,0 +1,291 @@
+package edu.lehigh.cse.ale;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.andengine.opengl.texture.ITexture;
+import org.andengine.util.debug.Debug;
+
+/**
+ * TextureStats keeps track of every texture that the engine makes, so that a
+ * game can see how much texture memory it is holding.
+ *
+ * Media, the font cache in Util, and the MenuManager report each texture when
+ * they make it, along with its format and size, and report when it is loaded,
+ * unloaded, or thrown away. The bytes of the loaded textures are totaled as
+ * they change, and the highest total is remembered for the whole game and for
+ * each level, so that a level's images can be budgeted for the devices the
+ * game needs to run on. Controls.addTextureMeter shows the totals on the HUD.
+ *
+ * @author spear
+ */
+public class TextureStats
+{
+    /**
+     * What is known about a texture
+     */
+    private static final class Entry
+    {
+        /**
+         * What the texture is for
+         */
+        String owner;
+
+        /**
+         * How the texture stores its pixels
+         */
+        String format;
+
+        /**
+         * The size of the texture
+         */
+        int width, height;
+
+        /**
+         * Bytes that the texture takes on the GPU
+         */
+        long bytes;
+
+        /**
+         * Is the texture loaded?
+         */
+        boolean loaded;
+    }
+
+    /**
+     * Every texture that hasn't been thrown away
+     */
+    private static final HashMap<ITexture, Entry> _entries = new HashMap<ITexture, Entry>();
+
+    /**
+     * The number of textures that are loaded
+     */
+    private static int _loadedCount;
+
+    /**
+     * Bytes of texture memory used by loaded textures
+     */
+    private static long _loadedBytes;
+
+    /**
+     * The most bytes that have been loaded at once
+     */
+    private static long _peakBytes;
+
+    /**
+     * The most bytes that have been loaded at once during the current level
+     */
+    private static long _levelPeakBytes;
+
+    /**
+     * The level being played, or -1 before the first one
+     */
+    private static int _level = -1;
+
+    /**
+     * The most bytes that have been loaded at once during each level that has
+     * been played, by level number
+     */
+    private static final HashMap<Integer, Long> _levelPeaks = new HashMap<Integer, Long>();
+
+    /**
+     * Prevent this from being created
+     */
+    private TextureStats()
+    {
+    }
+
+    /**
+     * Internal method to start keeping track of a texture. Its size is worked
+     * out from its dimensions and pixel format.
+     *
+     * @param texture
+     *            The texture
+     * @param owner
+     *            What the texture is for, such as the name of its image
+     */
+    static void track(ITexture texture, String owner)
+    {
+        long bytes = (long) texture.getWidth() * texture.getHeight() * texture.getPixelFormat().getBitsPerPixel() / 8;
+        track(texture, owner, texture.getPixelFormat().toString(), bytes);
+    }
+
+    /**
+     * Internal method to start keeping track of a texture whose size can't be
+     * worked out from its pixel format, such as a compressed one
+     *
+     * @param texture
+     *            The texture
+     * @param owner
+     *            What the texture is for, such as the name of its image
+     * @param format
+     *            How the texture stores its pixels
+     * @param bytes
+     *            Bytes that the texture takes on the GPU
+     */
+    static void track(ITexture texture, String owner, String format, long bytes)
+    {
+        forget(texture);
+        Entry e = new Entry();
+        e.owner = owner;
+        e.format = format;
+        e.width = texture.getWidth();
+        e.height = texture.getHeight();
+        e.bytes = bytes;
+        _entries.put(texture, e);
+    }
+
+    /**
+     * Internal method to note that a texture was loaded
+     *
+     * @param texture
+     *            A texture that is being tracked
+     */
+    static void loaded(ITexture texture)
+    {
+        Entry e = _entries.get(texture);
+        if (e == null || e.loaded)
+            return;
+        e.loaded = true;
+        _loadedCount++;
+        _loadedBytes += e.bytes;
+        if (_loadedBytes > _peakBytes)
+            _peakBytes = _loadedBytes;
+        if (_loadedBytes > _levelPeakBytes)
+            _levelPeakBytes = _loadedBytes;
+    }
+
+    /**
+     * Internal method to note that a texture was unloaded
+     *
+     * @param texture
+     *            A texture that is being tracked
+     */
+    static void unloaded(ITexture texture)
+    {
+        Entry e = _entries.get(texture);
+        if (e == null || !e.loaded)
+            return;
+        e.loaded = false;
+        _loadedCount--;
+        _loadedBytes -= e.bytes;
+    }
+
+    /**
+     * Internal method to stop keeping track of a texture that was thrown away
+     *
+     * @param texture
+     *            The texture
+     */
+    static void forget(ITexture texture)
+    {
+        unloaded(texture);
+        _entries.remove(texture);
+    }
+
+    /**
+     * Internal method to start a new level's high-water mark. This should be
+     * called after the previous level's textures have been released.
+     */
+    static void onNewLevel()
+    {
+        recordLevelPeak();
+        _level = MenuManager._currLevel;
+        _levelPeakBytes = _loadedBytes;
+    }
+
+    /**
+     * Internal method to remember the current level's high-water mark, keeping
+     * the highest one if the level was played before
+     */
+    private static void recordLevelPeak()
+    {
+        if (_level < 0)
+            return;
+        Long old = _levelPeaks.get(_level);
+        if (old == null || old < _levelPeakBytes)
+            _levelPeaks.put(_level, _levelPeakBytes);
+    }
+
+    /**
+     * Report how many textures have been made and not thrown away
+     *
+     * @return The number of textures
+     */
+    static public int getTextureCount()
+    {
+        return _entries.size();
+    }
+
+    /**
+     * Report how many textures are loaded
+     *
+     * @return The number of textures
+     */
+    static public int getLoadedTextureCount()
+    {
+        return _loadedCount;
+    }
+
+    /**
+     * Report how much texture memory the loaded textures use
+     *
+     * @return The number of bytes
+     */
+    static public long getLoadedBytes()
+    {
+        return _loadedBytes;
+    }
+
+    /**
+     * Report the most texture memory that has been used at once
+     *
+     * @return The number of bytes
+     */
+    static public long getPeakBytes()
+    {
+        return _peakBytes;
+    }
+
+    /**
+     * Report the most texture memory that has been used at once during any
+     * play of a level
+     *
+     * @param level
+     *            The level number
+     * @return The number of bytes, or 0 if the level hasn't been played
+     */
+    static public long getLevelPeakBytes(int level)
+    {
+        if (level == _level)
+            return Math.max(_levelPeakBytes, getRecordedPeak(level));
+        return getRecordedPeak(level);
+    }
+
+    /**
+     * Internal method to look up a finished level's high-water mark
+     *
+     * @param level
+     *            The level number
+     * @return The number of bytes, or 0 if the level hasn't been played
+     */
+    private static long getRecordedPeak(int level)
+    {
+        Long peak = _levelPeaks.get(level);
+        return peak == null ? 0 : peak;
+    }
+
+    /**
+     * Write every texture, and the totals, to the debug log
+     */
+    static public void dump()
+    {
+        for (Map.Entry<ITexture, Entry> me : _entries.entrySet()) {
+            Entry e = me.getValue();
+            Debug.d("texture " + e.owner + ": " + e.format + " " + e.width + "x" + e.height + ", " + e.bytes
+                    + " bytes" + (e.loaded ? "" : " (not loaded)"));
+        }
+        Debug.d(_entries.size() + " textures, " + _loadedCount + " loaded, " + _loadedBytes + " bytes, peak "
+                + _peakBytes + " bytes, level peak " + _levelPeakBytes + " bytes");
+    }
+}
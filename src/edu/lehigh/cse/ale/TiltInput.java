@@ -0,0 +1,165 @@
+package edu.lehigh.cse.ale;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TiltInput carries accelerometer samples from the sensor to the physics
+ * world.
+ *
+ * The sensor delivers samples on its own thread, often a hundred or more times
+ * a second, which is much faster than the physics world steps. Pushing each
+ * sample onto the tilting entities as it arrived did work that the next sample
+ * immediately undid, and changed Box2D bodies while the update thread might be
+ * stepping them. Instead, the sensor thread only stores the newest sample in a
+ * single slot, packed into one atomic value so that no lock is needed and x
+ * and y always belong together. Right before each physics step, on the update
+ * thread, the newest sample is read, optionally smoothed and given a dead
+ * zone, and applied to the tilting entities exactly once.
+ *
+ * @author spear
+ */
+public class TiltInput
+{
+    /**
+     * The newest sample, with the bits of x in the high half and the bits of
+     * y in the low half
+     */
+    private static final AtomicLong _latest = new AtomicLong();
+
+    /**
+     * Has a sample arrived since tilt was turned on?
+     */
+    private static volatile boolean _hasSample;
+
+    /**
+     * Does the current level use tilt?
+     */
+    private static boolean _enabled;
+
+    /**
+     * How long, in seconds, the smoothing filter takes to move about two
+     * thirds of the way to a new tilt, or 0 for no smoothing
+     */
+    private static float _timeConstant;
+
+    /**
+     * Tilts smaller than this, in each dimension, are treated as no tilt
+     */
+    private static float _deadZone;
+
+    /**
+     * The smoothed tilt
+     */
+    private static float _filteredX, _filteredY;
+
+    /**
+     * Has the smoothed tilt been started from a sample yet?
+     */
+    private static boolean _primed;
+
+    /**
+     * Prevent this from being created
+     */
+    private TiltInput()
+    {
+    }
+
+    /**
+     * Call this whenever we create a new level, so that the old level's tilt
+     * and filter aren't used
+     */
+    static void onNewLevel()
+    {
+        _enabled = false;
+        _hasSample = false;
+        _timeConstant = 0;
+        _deadZone = 0;
+        _primed = false;
+    }
+
+    /**
+     * Internal method to turn tilt on for the current level
+     */
+    static void enable()
+    {
+        _enabled = true;
+        _hasSample = false;
+        _primed = false;
+    }
+
+    /**
+     * Internal method to describe how samples should be filtered
+     *
+     * @param timeConstant
+     *            How long, in seconds, smoothing takes to move about two thirds
+     *            of the way to a new tilt, or 0 for no smoothing
+     * @param deadZone
+     *            Tilts smaller than this, in each dimension, are treated as no
+     *            tilt
+     */
+    static void setFilter(float timeConstant, float deadZone)
+    {
+        _timeConstant = Math.max(0, timeConstant);
+        _deadZone = Math.max(0, deadZone);
+    }
+
+    /**
+     * Internal method to store a sample. This may be called from any thread,
+     * and replaces any sample that hasn't been used yet.
+     *
+     * @param x
+     *            The acceleration in the X dimension
+     * @param y
+     *            The acceleration in the Y dimension
+     */
+    static void offer(float x, float y)
+    {
+        _latest.set(((long) Float.floatToRawIntBits(x) << 32) | (Float.floatToRawIntBits(y) & 0xFFFFFFFFL));
+        _hasSample = true;
+    }
+
+    /**
+     * Internal method to apply the newest sample to the tilting entities. The
+     * physics world calls this on the update thread, right before each step.
+     *
+     * @param stepLength
+     *            The length of the coming step, in seconds
+     */
+    static void onStep(float stepLength)
+    {
+        if (!_enabled || !_hasSample)
+            return;
+        long packed = _latest.get();
+        float x = Float.intBitsToFloat((int) (packed >>> 32));
+        float y = Float.intBitsToFloat((int) packed);
+        if (!_primed || _timeConstant == 0) {
+            _filteredX = x;
+            _filteredY = y;
+            _primed = true;
+        }
+        else {
+            float alpha = stepLength / (_timeConstant + stepLength);
+            _filteredX += (x - _filteredX) * alpha;
+            _filteredY += (y - _filteredY) * alpha;
+        }
+        Level.applyTilt(deadZone(_filteredX), deadZone(_filteredY));
+    }
+
+    /**
+     * Internal method to remove the dead zone from one dimension of tilt, so
+     * that tilt starts from zero at the edge of the dead zone instead of
+     * jumping
+     *
+     * @param value
+     *            The tilt in one dimension
+     * @return The tilt, less the dead zone
+     */
+    private static float deadZone(float value)
+    {
+        if (value > _deadZone)
+            return value - _deadZone;
+        if (value < -_deadZone)
+            return value + _deadZone;
+        return 0;
+    }
+}
@@ -0,0 +1,480 @@
+package edu.lehigh.cse.ale;
+
+import java.util.ArrayList;
+
+import org.andengine.engine.handler.IUpdateHandler;
+
+/**
+ * The TimerWheel runs every timed callback in a level from a single update
+ * handler.
+ *
+ * Registering a separate TimerHandler for every delayed action means that the
+ * scene has to update hundreds of handlers each frame when lots of bullets
+ * have disappear delays. Instead, timers are kept in a hashed wheel of slots,
+ * one slot per tick. Scheduling a timer links it into the slot for the tick on
+ * which it is due (with a count of how many more trips around the wheel it
+ * must wait), and cancelling it unlinks it, so both are O(1). Each tick, only
+ * the timers in one slot are looked at.
+ *
+ * Timer entries are reused, so scheduling does not allocate once the level is
+ * warmed up. Rather than create a callback object for each timer, callers pass
+ * a shared Callback along with the entity, object, and integer that it needs.
+ * Periodic timers stay in the wheel and fire repeatedly until cancelled.
+ *
+ * @author spear
+ */
+public class TimerWheel implements IUpdateHandler
+{
+    /**
+     * Code to run when a timer fires
+     */
+    interface Callback
+    {
+        /**
+         * Run the timer's code
+         *
+         * @param e
+         *            The timer that fired. Its target, other, and tag fields
+         *            hold whatever was passed when it was scheduled.
+         */
+        void onTimer(Entry e);
+    }
+
+    /**
+     * One timer in the wheel
+     */
+    static final class Entry
+    {
+        /**
+         * The entity that this timer is about, if any
+         */
+        PhysicsSprite target;
+
+        /**
+         * Some other object that this timer needs, if any
+         */
+        Object other;
+
+        /**
+         * An integer that this timer needs, such as a timer ID
+         */
+        int tag;
+
+        /**
+         * The code to run
+         */
+        Callback callback;
+
+        /**
+         * Ticks between firings, or 0 if this only fires once
+         */
+        int period;
+
+        /**
+         * Trips around the wheel remaining before this is due
+         */
+        int rounds;
+
+        /**
+         * The slot that this is linked into
+         */
+        int slot;
+
+        /**
+         * Where this is in the list of all entries, for looking up handles
+         */
+        final int index;
+
+        /**
+         * Bumped every time this entry is reused, so that stale handles don't
+         * cancel the wrong timer
+         */
+        int generation;
+
+        /**
+         * One of the STATE_ constants
+         */
+        int state;
+
+        /**
+         * Neighbors in the slot's list, or in the free list
+         */
+        Entry prev, next;
+
+        /**
+         * Make an entry
+         *
+         * @param index
+         *            Where this entry is in the list of all entries
+         */
+        Entry(int index)
+        {
+            this.index = index;
+        }
+    }
+
+    /**
+     * The entry is in the free list
+     */
+    private static final int STATE_FREE = 0;
+
+    /**
+     * The entry is waiting in a slot
+     */
+    private static final int STATE_SCHEDULED = 1;
+
+    /**
+     * The entry is due, and is about to fire in this tick
+     */
+    private static final int STATE_DUE = 2;
+
+    /**
+     * The entry was cancelled after it became due, but before it fired
+     */
+    private static final int STATE_CANCELLED = 3;
+
+    /**
+     * The length of a tick, in seconds
+     */
+    static final float TICK = 1 / 60f;
+
+    /**
+     * Number of bits in a slot index
+     */
+    private static final int WHEEL_BITS = 8;
+
+    /**
+     * Number of slots in the wheel
+     */
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    /**
+     * For turning tick counts into slot indices
+     */
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /**
+     * Handle value that never refers to a timer
+     */
+    public static final long NO_TIMER = -1;
+
+    /**
+     * The one update handler that we register with each level
+     */
+    static final TimerWheel handler = new TimerWheel();
+
+    /**
+     * The first entry in each slot
+     */
+    private static final Entry[] _slots = new Entry[WHEEL_SIZE];
+
+    /**
+     * Every entry that has ever been made, so that handles can be looked up
+     */
+    private static final ArrayList<Entry> _all = new ArrayList<Entry>();
+
+    /**
+     * Entries that are ready to be reused
+     */
+    private static Entry _free;
+
+    /**
+     * Entries that are due in the current tick
+     */
+    private static final ArrayList<Entry> _due = new ArrayList<Entry>();
+
+    /**
+     * The slot for the current tick
+     */
+    private static int _cursor;
+
+    /**
+     * Time that has passed but not yet been turned into ticks
+     */
+    private static float _accumulated;
+
+    /**
+     * Number of timers waiting in the wheel
+     */
+    private static int _scheduled;
+
+    /**
+     * Prevent this from being created anywhere else
+     */
+    private TimerWheel()
+    {
+    }
+
+    /**
+     * Call this whenever we create a new level, to forget about the old one's
+     * timers
+     */
+    static void onNewLevel()
+    {
+        for (int i = 0; i < WHEEL_SIZE; ++i)
+            _slots[i] = null;
+        _due.clear();
+        _free = null;
+        for (int i = _all.size() - 1; i >= 0; --i)
+            free(_all.get(i));
+        _cursor = 0;
+        _accumulated = 0;
+        _scheduled = 0;
+    }
+
+    /**
+     * Internal method to run some code once, after a delay
+     *
+     * @param delay
+     *            How long to wait, in seconds
+     * @param callback
+     *            The code to run
+     * @param target
+     *            The entity that the code is about, or null
+     * @param other
+     *            Some other object that the code needs, or null
+     * @param tag
+     *            An integer that the code needs
+     * @return a handle for cancelling the timer
+     */
+    static long schedule(float delay, Callback callback, PhysicsSprite target, Object other, int tag)
+    {
+        return schedulePeriodic(delay, 0, callback, target, other, tag);
+    }
+
+    /**
+     * Internal method to run some code repeatedly
+     *
+     * @param delay
+     *            How long to wait before the first time the code runs, in
+     *            seconds
+     * @param period
+     *            How long to wait between runs after that, in seconds, or 0
+     *            to only run once
+     * @param callback
+     *            The code to run
+     * @param target
+     *            The entity that the code is about, or null
+     * @param other
+     *            Some other object that the code needs, or null
+     * @param tag
+     *            An integer that the code needs
+     * @return a handle for cancelling the timer
+     */
+    static long schedulePeriodic(float delay, float period, Callback callback, PhysicsSprite target, Object other,
+            int tag)
+    {
+        Entry e = allocate();
+        e.callback = callback;
+        e.target = target;
+        e.other = other;
+        e.tag = tag;
+        e.period = period > 0 ? toTicks(period) : 0;
+        insert(e, toTicks(delay));
+        return ((long) e.index << 32) | (e.generation & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Internal method to stop a timer from firing (again)
+     *
+     * @param handle
+     *            The handle returned when the timer was scheduled
+     * @return true if the timer was waiting and has now been cancelled
+     */
+    static boolean cancel(long handle)
+    {
+        if (handle == NO_TIMER)
+            return false;
+        int index = (int) (handle >>> 32);
+        if (index >= _all.size())
+            return false;
+        Entry e = _all.get(index);
+        if (e.generation != (int) handle)
+            return false;
+        return cancel(e);
+    }
+
+    /**
+     * Internal method to stop a timer from firing (again). This can be called
+     * from inside the timer's own callback.
+     *
+     * @param e
+     *            The timer to cancel
+     * @return true if the timer was waiting and has now been cancelled
+     */
+    static boolean cancel(Entry e)
+    {
+        if (e.state == STATE_SCHEDULED) {
+            unlink(e);
+            free(e);
+            return true;
+        }
+        if (e.state == STATE_DUE) {
+            // it will be freed by the loop that is firing timers
+            e.state = STATE_CANCELLED;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Report the number of timers that are waiting to fire
+     *
+     * @return The number of scheduled timers
+     */
+    public static int getScheduledCount()
+    {
+        return _scheduled;
+    }
+
+    /**
+     * Each update, advance the wheel by however many ticks have passed
+     *
+     * @param secondsElapsed
+     *            How much time has passed since the last update
+     */
+    @Override
+    public void onUpdate(float secondsElapsed)
+    {
+        _accumulated += secondsElapsed;
+        while (_accumulated >= TICK) {
+            _accumulated -= TICK;
+            _cursor = (_cursor + 1) & WHEEL_MASK;
+            tick();
+        }
+    }
+
+    /**
+     * Internal method to fire everything that is due in the current slot
+     */
+    private static void tick()
+    {
+        // first pull the due entries out of the slot, so that callbacks can
+        // schedule and cancel freely while we fire them
+        Entry e = _slots[_cursor];
+        while (e != null) {
+            Entry next = e.next;
+            if (e.rounds > 0) {
+                e.rounds--;
+            }
+            else {
+                unlink(e);
+                e.state = STATE_DUE;
+                _due.add(e);
+            }
+            e = next;
+        }
+
+        for (int i = 0; i < _due.size(); ++i) {
+            e = _due.get(i);
+            if (e.state == STATE_DUE)
+                e.callback.onTimer(e);
+            // the callback may have cancelled this timer
+            if (e.state == STATE_DUE && e.period > 0)
+                insert(e, e.period);
+            else
+                free(e);
+        }
+        _due.clear();
+    }
+
+    /**
+     * Internal method to convert seconds into a number of ticks. Every timer
+     * waits at least one tick.
+     *
+     * @param seconds
+     *            The amount of time
+     * @return The number of ticks
+     */
+    private static int toTicks(float seconds)
+    {
+        int ticks = (int) Math.ceil(seconds / TICK);
+        return ticks < 1 ? 1 : ticks;
+    }
+
+    /**
+     * Internal method to put an entry in the slot for a number of ticks from
+     * now
+     *
+     * @param e
+     *            The entry
+     * @param ticks
+     *            How many ticks from now it is due
+     */
+    private static void insert(Entry e, int ticks)
+    {
+        e.slot = (_cursor + ticks) & WHEEL_MASK;
+        e.rounds = (ticks - 1) >>> WHEEL_BITS;
+        e.state = STATE_SCHEDULED;
+        e.prev = null;
+        e.next = _slots[e.slot];
+        if (e.next != null)
+            e.next.prev = e;
+        _slots[e.slot] = e;
+        _scheduled++;
+    }
+
+    /**
+     * Internal method to take an entry out of its slot
+     *
+     * @param e
+     *            The entry
+     */
+    private static void unlink(Entry e)
+    {
+        if (e.prev != null)
+            e.prev.next = e.next;
+        else
+            _slots[e.slot] = e.next;
+        if (e.next != null)
+            e.next.prev = e.prev;
+        e.prev = null;
+        e.next = null;
+        _scheduled--;
+    }
+
+    /**
+     * Internal method to get an unused entry
+     *
+     * @return An entry that is not in the wheel
+     */
+    private static Entry allocate()
+    {
+        Entry e = _free;
+        if (e == null) {
+            e = new Entry(_all.size());
+            _all.add(e);
+        }
+        else {
+            _free = e.next;
+            e.next = null;
+        }
+        return e;
+    }
+
+    /**
+     * Internal method to put an entry back in the free list
+     *
+     * @param e
+     *            The entry
+     */
+    private static void free(Entry e)
+    {
+        e.generation++;
+        e.state = STATE_FREE;
+        e.callback = null;
+        e.target = null;
+        e.other = null;
+        e.prev = null;
+        e.next = _free;
+        _free = e;
+    }
+
+    /**
+     * We don't need to do anything on a reset
+     */
+    @Override
+    public void reset()
+    {
+    }
+}
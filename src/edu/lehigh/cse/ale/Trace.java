@@ -0,0 +1,317 @@
+package edu.lehigh.cse.ale;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Trace records what the engine and game are doing, cheaply enough that it
+ * can be left in the code that runs every frame.
+ *
+ * Calling Log.v with a concatenated string on every bullet builds a string
+ * and writes to logcat, even when nobody is reading. Instead, each kind of
+ * event is defined once, with a category and a format string, and recording
+ * an event only copies an event number, the time, an integer and two floats
+ * into preallocated arrays that form a ring. When the event's category is
+ * turned off, recording returns right away. Nothing is formatted until the
+ * ring is dumped to a file, either on demand or when the game crashes.
+ *
+ * All categories start off, so release builds pay only for the category
+ * check. ALE turns everything on for debug builds.
+ *
+ * @author spear
+ */
+public class Trace
+{
+    /**
+     * Category for entities being moved by code
+     */
+    public static final int CATEGORY_PHYSICS = 0x1;
+
+    /**
+     * Category for collisions between entities
+     */
+    public static final int CATEGORY_COLLISION = 0x2;
+
+    /**
+     * Category for touches and other input
+     */
+    public static final int CATEGORY_INPUT = 0x4;
+
+    /**
+     * Category for events that the game defines for itself
+     */
+    public static final int CATEGORY_GAME = 0x8;
+
+    /**
+     * Every category
+     */
+    public static final int CATEGORY_ALL = 0xFFFF;
+
+    /**
+     * Number of events that the ring holds before it starts overwriting the
+     * oldest ones
+     */
+    private static final int CAPACITY = 4096;
+
+    /**
+     * Most kinds of events that can be defined
+     */
+    private static final int MAX_EVENTS = 64;
+
+    /**
+     * The category of each kind of event
+     */
+    private static final int[] _eventCategories = new int[MAX_EVENTS];
+
+    /**
+     * The format string of each kind of event. It is given the event's
+     * integer and two floats, in that order.
+     */
+    private static final String[] _eventFormats = new String[MAX_EVENTS];
+
+    /**
+     * Number of kinds of events defined so far
+     */
+    private static int _eventCount;
+
+    /**
+     * The kind of each recorded event
+     */
+    private static final int[] _events = new int[CAPACITY];
+
+    /**
+     * The time at which each event was recorded
+     */
+    private static final float[] _times = new float[CAPACITY];
+
+    /**
+     * The integer recorded with each event
+     */
+    private static final int[] _ints = new int[CAPACITY];
+
+    /**
+     * The first float recorded with each event
+     */
+    private static final float[] _xs = new float[CAPACITY];
+
+    /**
+     * The second float recorded with each event
+     */
+    private static final float[] _ys = new float[CAPACITY];
+
+    /**
+     * Total number of events recorded, including ones that have been
+     * overwritten
+     */
+    private static long _recorded;
+
+    /**
+     * The categories that are currently being recorded
+     */
+    private static int _enabled;
+
+    /**
+     * Where to dump the ring when the game crashes
+     */
+    private static File _crashFile;
+
+    /**
+     * An entity's velocity was set by code
+     */
+    static final int VELOCITY = defineEvent(CATEGORY_PHYSICS, "entity of type %1$d set velocity to (%2$.2f, %3$.2f)");
+
+    /**
+     * A pair of entities started touching
+     */
+    static final int CONTACT = defineEvent(CATEGORY_COLLISION, "contact between types %1$d and %2$.0f");
+
+    /**
+     * The hero hit an obstacle that guides enemies
+     */
+    static final int GUIDE_COLLISION = defineEvent(CATEGORY_COLLISION, "hero hit guide obstacle %1$d");
+
+    /**
+     * A guide trigger moved its enemies
+     */
+    static final int GUIDE_TRIGGER = defineEvent(CATEGORY_COLLISION, "guide trigger %1$d");
+
+    /**
+     * The hero hit a speed boost obstacle
+     */
+    static final int SPEED_BOOST = defineEvent(CATEGORY_COLLISION, "speed boost to (%2$.2f, %3$.2f)");
+
+    /**
+     * The hero hit a projectile
+     */
+    static final int HERO_PROJECTILE = defineEvent(CATEGORY_COLLISION, "hero hit projectile");
+
+    /**
+     * Prevent this from being created
+     */
+    private Trace()
+    {
+    }
+
+    /**
+     * Define a new kind of event. This should be done once, when the game
+     * starts, and the result kept in a static final field.
+     *
+     * @param category
+     *            The category that turns this event on and off
+     * @param format
+     *            How to print the event when the trace is dumped. It is given
+     *            the event's integer and two floats, so, for example,
+     *            "enemy %1$d at (%2$.0f, %3$.0f)" prints all three.
+     * @return The number to pass to record
+     */
+    public static int defineEvent(int category, String format)
+    {
+        if (_eventCount == MAX_EVENTS)
+            throw new IllegalStateException("Too many kinds of trace events");
+        _eventCategories[_eventCount] = category;
+        _eventFormats[_eventCount] = format;
+        return _eventCount++;
+    }
+
+    /**
+     * Choose which categories of events to record
+     *
+     * @param categories
+     *            The categories to record, or'd together
+     */
+    public static void setEnabledCategories(int categories)
+    {
+        _enabled = categories;
+    }
+
+    /**
+     * Check whether a category is being recorded, to skip work that is only
+     * needed to compute an event's values
+     *
+     * @param category
+     *            The category to check
+     * @return true if events in the category are being recorded
+     */
+    public static boolean isEnabled(int category)
+    {
+        return (_enabled & category) != 0;
+    }
+
+    /**
+     * Record an event that has no values
+     *
+     * @param event
+     *            The kind of event, from defineEvent
+     */
+    public static void record(int event)
+    {
+        record(event, 0, 0, 0);
+    }
+
+    /**
+     * Record an event that has an integer value
+     *
+     * @param event
+     *            The kind of event, from defineEvent
+     * @param i
+     *            The integer to record
+     */
+    public static void record(int event, int i)
+    {
+        record(event, i, 0, 0);
+    }
+
+    /**
+     * Record an event. This should only be called from the update thread.
+     *
+     * @param event
+     *            The kind of event, from defineEvent
+     * @param i
+     *            The integer to record
+     * @param x
+     *            The first float to record
+     * @param y
+     *            The second float to record
+     */
+    public static void record(int event, int i, float x, float y)
+    {
+        if ((_enabled & _eventCategories[event]) == 0)
+            return;
+        int slot = (int) (_recorded % CAPACITY);
+        _events[slot] = event;
+        _times[slot] = Platform.current().getSecondsElapsedTotal();
+        _ints[slot] = i;
+        _xs[slot] = x;
+        _ys[slot] = y;
+        _recorded++;
+    }
+
+    /**
+     * Throw away everything that has been recorded
+     */
+    public static void clear()
+    {
+        _recorded = 0;
+    }
+
+    /**
+     * Write everything in the ring to a file, oldest first
+     *
+     * @param file
+     *            The file to write
+     * @return true if the file was written
+     */
+    public static synchronized boolean dump(File file)
+    {
+        PrintWriter out = null;
+        try {
+            out = new PrintWriter(new FileWriter(file));
+            long first = _recorded > CAPACITY ? _recorded - CAPACITY : 0;
+            if (first > 0)
+                out.println("(" + first + " older events were overwritten)");
+            for (long n = first; n < _recorded; ++n) {
+                int slot = (int) (n % CAPACITY);
+                out.print(String.format(Locale.US, "%10.3f  ", _times[slot]));
+                out.println(String.format(Locale.US, _eventFormats[_events[slot]], _ints[slot], _xs[slot],
+                        _ys[slot]));
+            }
+            return !out.checkError();
+        }
+        catch (IOException e) {
+            return false;
+        }
+        finally {
+            if (out != null)
+                out.close();
+        }
+    }
+
+    /**
+     * Dump the ring to a file if the game crashes. The crash is still
+     * reported the way it would have been otherwise.
+     *
+     * @param file
+     *            The file to write
+     */
+    public static void dumpOnCrash(File file)
+    {
+        // only wrap the handler once, but let the file change
+        if (_crashFile == null) {
+            final Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+            Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler()
+            {
+                @Override
+                public void uncaughtException(Thread thread, Throwable ex)
+                {
+                    dump(_crashFile);
+                    if (previous != null)
+                        previous.uncaughtException(thread, ex);
+                }
+            });
+        }
+        _crashFile = file;
+    }
+}
@@ -1,5 +1,7 @@
 package edu.lehigh.cse.ale;
 
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Random;
 
 import org.andengine.opengl.font.Font;
@@ -16,6 +18,36 @@ import android.graphics.Typeface;
  */
 public class Util
 {
+    /**
+     * A font that is shared by everything that asks for the same color, size
+     * and style
+     */
+    private static final class CachedFont
+    {
+        /**
+         * The font
+         */
+        Font font;
+
+        /**
+         * The texture that the font draws its glyphs into
+         */
+        BitmapTextureAtlas atlas;
+
+        /**
+         * True if the font was requested during the current level. This is not
+         * a reference count: nothing ever gives a font back, so a font is only
+         * known to be unused once a whole level goes by without anyone asking
+         * for it.
+         */
+        boolean usedThisLevel;
+    }
+
+    /**
+     * Fonts that have been made, by color, size and style
+     */
+    private static final HashMap<Long, CachedFont> _fonts = new HashMap<Long, CachedFont>();
+
     /**
      * Internal method to make a font
      * 
@@ -31,14 +63,71 @@ public class Util
      */
     public static Font makeFont(int red, int green, int blue, int size)
     {
-        BitmapTextureAtlas bta = new BitmapTextureAtlas(ALE.self().getTextureManager(), 256, 256,
-                TextureOptions.DEFAULT);
-        Font font = new Font(ALE.self().getFontManager(), bta, Typeface.create(Typeface.DEFAULT, Typeface.BOLD),
-                size, true, Color.rgb(red, green, blue));
-        ALE.self().getTextureManager().loadTexture(bta);
-        ALE.self().getFontManager().loadFont(font);
-
-        return font;
+        return makeFont(red, green, blue, size, Typeface.BOLD);
+    }
+
+    /**
+     * Internal method to get a font. Fonts are shared: asking for the same
+     * color, size and style again returns the same font, rather than making a
+     * new texture.
+     * 
+     * @param red
+     *            The red component of the font color
+     * @param green
+     *            The green component of the font color
+     * @param blue
+     *            The blue component of the font color
+     * @param size
+     *            The size of the font
+     * @param style
+     *            The style of the default typeface, such as Typeface.BOLD
+     * @return A Font object that is ready for use
+     */
+    public static Font makeFont(int red, int green, int blue, int size, int style)
+    {
+        int rgb = Color.rgb(red, green, blue);
+        Long key = ((long) style << 48) | ((long) size << 24) | (rgb & 0xFFFFFF);
+        CachedFont cf = _fonts.get(key);
+        if (cf == null) {
+            cf = new CachedFont();
+            cf.atlas = new BitmapTextureAtlas(Platform.current().getTextureManager(), 256, 256, TextureOptions.DEFAULT);
+            cf.font = new Font(Platform.current().getFontManager(), cf.atlas,
+                    Typeface.create(Typeface.DEFAULT, style), size,
+                    true, rgb);
+            Platform.current().getTextureManager().loadTexture(cf.atlas);
+            Platform.current().getFontManager().loadFont(cf.font);
+            TextureStats.track(cf.atlas, "font " + size);
+            TextureStats.loaded(cf.atlas);
+            _fonts.put(key, cf);
+        }
+        cf.usedThisLevel = true;
+        return cf.font;
+    }
+
+    /**
+     * Internal method to release fonts when a new level is created. Fonts are
+     * kept for one level after their last use: a font that nothing asked for
+     * during the whole last level is unloaded, but one that was just used is
+     * kept, since the next level probably wants it too. This means that a Text
+     * must not outlive the level after the last one that asked for its font;
+     * anything that is kept across levels, such as a menu or HUD text, should
+     * call makeFont again each level to keep its font loaded.
+     */
+    static void onNewLevel()
+    {
+        Iterator<CachedFont> it = _fonts.values().iterator();
+        while (it.hasNext()) {
+            CachedFont cf = it.next();
+            if (!cf.usedThisLevel) {
+                Platform.current().getFontManager().unloadFont(cf.font);
+                Platform.current().getTextureManager().unloadTexture(cf.atlas);
+                TextureStats.forget(cf.atlas);
+                it.remove();
+            }
+            else {
+                cf.usedThisLevel = false;
+            }
+        }
     }
 
     /**
@@ -0,0 +1,380 @@
+package edu.lehigh.cse.ale;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+
+import javax.imageio.ImageIO;
+
+/**
+ * The Etc1Converter compresses the big images in a game's assets folder with
+ * ETC1, so that Media can load them without decoding them, in an eighth of
+ * the texture memory.
+ *
+ * Every PNG with at least a minimum number of pixels gets a .pkm file next to
+ * it, with the same name. ETC1 can't store transparency, so an image that has
+ * any is also given a _alpha.pkm file, which stores each pixel's transparency
+ * as its brightness. Images whose .pkm file is newer than the PNG are
+ * skipped. The PNGs are left alone, since Media still reads them when no
+ * compressed copy exists, and for the size of a repeating image.
+ *
+ * Only textures whose sides are powers of two can repeat, so images in the
+ * folders that hold scrolling backgrounds are stretched to the smallest such
+ * size that holds them before they are compressed, the same way Media
+ * stretches the originals. Media only uses a repeating image's compressed
+ * copy if it was stretched.
+ *
+ * To run it, compile this file on its own, and run it with the path to the
+ * assets folder, optionally the minimum number of pixels in an image worth
+ * compressing, and then the folders inside the assets folder whose images
+ * repeat, such as "bg bg2". It only needs a regular JVM.
+ *
+ * @author spear
+ */
+class Etc1Converter
+{
+    /**
+     * Images with fewer pixels than this aren't compressed, unless told
+     * otherwise
+     */
+    private static final int DEFAULT_MIN_PIXELS = 256 * 256;
+
+    /**
+     * The largest side of a stretched image, which matches the largest
+     * texture Media makes for a repeating image
+     */
+    private static final int MAX_REPEATING_SIZE = 2048;
+
+    /**
+     * How far each of the eight intensity tables moves a pixel away from its
+     * sub-block's base color
+     */
+    private static final int[][] MODIFIERS = { { 2, 8 }, { 5, 17 }, { 9, 29 }, { 13, 42 }, { 18, 60 }, { 24, 80 },
+            { 33, 106 }, { 47, 183 } };
+
+    /**
+     * Compress the images in an assets folder
+     *
+     * @param args
+     *            The path to the assets folder, optionally the minimum number
+     *            of pixels in an image worth compressing, and then the folders
+     *            whose images repeat
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1) {
+            System.err.println("usage: Etc1Converter <assets folder> [minimum pixels [repeating folder ...]]");
+            return;
+        }
+        File assets = new File(args[0]);
+        int minPixels = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MIN_PIXELS;
+        HashSet<File> repeatingFolders = new HashSet<File>();
+        for (int i = 2; i < args.length; ++i)
+            repeatingFolders.add(new File(assets, args[i]));
+        convertFolder(assets, minPixels, repeatingFolders, false);
+    }
+
+    /**
+     * Internal method to compress the images in a folder and its subfolders
+     *
+     * @param folder
+     *            The folder
+     * @param minPixels
+     *            The minimum number of pixels in an image worth compressing
+     * @param repeatingFolders
+     *            The folders whose images repeat
+     * @param repeating
+     *            true if this folder's images repeat
+     */
+    private static void convertFolder(File folder, int minPixels, HashSet<File> repeatingFolders, boolean repeating)
+            throws IOException
+    {
+        File[] files = folder.listFiles();
+        if (files == null)
+            return;
+        for (File f : files) {
+            if (f.isDirectory()) {
+                convertFolder(f, minPixels, repeatingFolders, repeating || repeatingFolders.contains(f));
+                continue;
+            }
+            String name = f.getName();
+            if (!name.toLowerCase().endsWith(".png"))
+                continue;
+            String base = name.substring(0, name.length() - 4);
+            File color = new File(folder, base + ".pkm");
+            File alpha = new File(folder, base + "_alpha.pkm");
+            if (color.exists() && color.lastModified() >= f.lastModified())
+                continue;
+            BufferedImage img = ImageIO.read(f);
+            if (img == null || img.getWidth() * img.getHeight() < minPixels)
+                continue;
+            if (repeating)
+                img = stretchToPowerOfTwo(img);
+
+            int w = img.getWidth();
+            int h = img.getHeight();
+            int[] argb = img.getRGB(0, 0, w, h, null, 0, w);
+            boolean transparent = false;
+            for (int p : argb)
+                if ((p >>> 24) != 0xFF)
+                    transparent = true;
+            writePkm(color, argb, w, h, false);
+            if (transparent)
+                writePkm(alpha, argb, w, h, true);
+            else
+                alpha.delete();
+            System.out.println(f.getPath() + (transparent ? " (with transparency)" : ""));
+        }
+    }
+
+    /**
+     * Internal method to stretch an image to the smallest size whose sides
+     * are powers of two, up to the largest repeating texture. The sides are
+     * at least 4, the size of an ETC1 block.
+     *
+     * @param img
+     *            The image
+     * @return The stretched image, or the image itself if it already has
+     *         that size
+     */
+    private static BufferedImage stretchToPowerOfTwo(BufferedImage img)
+    {
+        int w = 4;
+        while (w < img.getWidth() && w < MAX_REPEATING_SIZE)
+            w <<= 1;
+        int h = 4;
+        while (h < img.getHeight() && h < MAX_REPEATING_SIZE)
+            h <<= 1;
+        if (w == img.getWidth() && h == img.getHeight())
+            return img;
+        BufferedImage stretched = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = stretched.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(img, 0, 0, w, h, null);
+        g.dispose();
+        return stretched;
+    }
+
+    /**
+     * Internal method to compress an image and write it as a PKM file
+     *
+     * @param file
+     *            The file to write
+     * @param argb
+     *            The image's pixels, in rows
+     * @param w
+     *            The width of the image
+     * @param h
+     *            The height of the image
+     * @param alpha
+     *            true to compress the image's transparency instead of its
+     *            colors
+     */
+    private static void writePkm(File file, int[] argb, int w, int h, boolean alpha) throws IOException
+    {
+        int bw = (w + 3) / 4;
+        int bh = (h + 3) / 4;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            // the header: magic, version, format 0 (RGB, no mipmaps), the
+            // size rounded up to whole blocks, and the real size
+            out.writeBytes("PKM 10");
+            out.writeShort(0);
+            out.writeShort(bw * 4);
+            out.writeShort(bh * 4);
+            out.writeShort(w);
+            out.writeShort(h);
+
+            int[] block = new int[48];
+            for (int by = 0; by < bh; ++by) {
+                for (int bx = 0; bx < bw; ++bx) {
+                    // gather the block's pixels, column by column, repeating
+                    // the edge for blocks that hang off the image
+                    for (int x = 0; x < 4; ++x) {
+                        for (int y = 0; y < 4; ++y) {
+                            int p = argb[Math.min(by * 4 + y, h - 1) * w + Math.min(bx * 4 + x, w - 1)];
+                            int i = (x * 4 + y) * 3;
+                            if (alpha) {
+                                block[i] = block[i + 1] = block[i + 2] = p >>> 24;
+                            }
+                            else {
+                                block[i] = (p >> 16) & 0xFF;
+                                block[i + 1] = (p >> 8) & 0xFF;
+                                block[i + 2] = p & 0xFF;
+                            }
+                        }
+                    }
+                    out.writeLong(encodeBlock(block));
+                }
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Internal method to compress one 4x4 block, trying both ways of
+     * splitting it into halves, and both ways of storing the halves' colors
+     *
+     * @param block
+     *            The block's pixels, column by column, as red, green, blue
+     * @return The compressed block
+     */
+    private static long encodeBlock(int[] block)
+    {
+        long best = 0;
+        long bestError = Long.MAX_VALUE;
+        int[] avg1 = new int[3];
+        int[] avg2 = new int[3];
+        int[] base1 = new int[3];
+        int[] base2 = new int[3];
+        for (int flip = 0; flip < 2; ++flip) {
+            average(block, flip, 0, avg1);
+            average(block, flip, 1, avg2);
+            for (int diff = 0; diff < 2; ++diff) {
+                long colors = 0;
+                boolean fits = true;
+                for (int c = 0; c < 3; ++c) {
+                    if (diff == 0) {
+                        int q1 = (avg1[c] * 15 + 127) / 255;
+                        int q2 = (avg2[c] * 15 + 127) / 255;
+                        base1[c] = q1 << 4 | q1;
+                        base2[c] = q2 << 4 | q2;
+                        colors |= (long) (q1 << 4 | q2) << (56 - 8 * c);
+                    }
+                    else {
+                        int q1 = (avg1[c] * 31 + 127) / 255;
+                        int q2 = (avg2[c] * 31 + 127) / 255;
+                        int d = q2 - q1;
+                        if (d < -4 || d > 3) {
+                            fits = false;
+                            break;
+                        }
+                        base1[c] = q1 << 3 | q1 >> 2;
+                        base2[c] = q2 << 3 | q2 >> 2;
+                        colors |= (long) (q1 << 3 | (d & 7)) << (56 - 8 * c);
+                    }
+                }
+                if (!fits)
+                    continue;
+                long bits = colors | (long) diff << 33 | (long) flip << 32;
+                long error = 0;
+                long[] half = new long[2];
+                for (int sub = 0; sub < 2; ++sub) {
+                    half[0] = Long.MAX_VALUE;
+                    encodeHalf(block, flip, sub, sub == 0 ? base1 : base2, half);
+                    error += half[0];
+                    bits |= half[1];
+                }
+                if (error < bestError) {
+                    bestError = error;
+                    best = bits;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Internal method to check whether a pixel is in one half of a block
+     *
+     * @param i
+     *            The pixel's position, column by column
+     * @param flip
+     *            0 if the halves are the left and right, 1 if they are the
+     *            top and bottom
+     * @param sub
+     *            Which half
+     * @return true if the pixel is in that half
+     */
+    private static boolean inHalf(int i, int flip, int sub)
+    {
+        int x = i / 4;
+        int y = i % 4;
+        return (flip == 0 ? x / 2 : y / 2) == sub;
+    }
+
+    /**
+     * Internal method to find the average color of one half of a block
+     *
+     * @param block
+     *            The block's pixels
+     * @param flip
+     *            How the block is split
+     * @param sub
+     *            Which half
+     * @param avg
+     *            Where to put the average red, green and blue
+     */
+    private static void average(int[] block, int flip, int sub, int[] avg)
+    {
+        int r = 0, g = 0, b = 0;
+        for (int i = 0; i < 16; ++i) {
+            if (inHalf(i, flip, sub)) {
+                r += block[i * 3];
+                g += block[i * 3 + 1];
+                b += block[i * 3 + 2];
+            }
+        }
+        avg[0] = (r + 4) / 8;
+        avg[1] = (g + 4) / 8;
+        avg[2] = (b + 4) / 8;
+    }
+
+    /**
+     * Internal method to pick the intensity table, and each pixel's modifier,
+     * for one half of a block
+     *
+     * @param block
+     *            The block's pixels
+     * @param flip
+     *            How the block is split
+     * @param sub
+     *            Which half
+     * @param base
+     *            The half's base color
+     * @param result
+     *            Where to put the error and the half's bits, if the error is
+     *            lower than what is already there
+     */
+    private static void encodeHalf(int[] block, int flip, int sub, int[] base, long[] result)
+    {
+        for (int table = 0; table < 8; ++table) {
+            long error = 0;
+            long bits = (long) table << (sub == 0 ? 37 : 34);
+            for (int i = 0; i < 16; ++i) {
+                if (!inHalf(i, flip, sub))
+                    continue;
+                int bestIndex = 0;
+                long bestError = Long.MAX_VALUE;
+                // indices 0 and 1 add the small and large amounts, and 2 and 3
+                // subtract them
+                for (int index = 0; index < 4; ++index) {
+                    int m = MODIFIERS[table][index & 1] * ((index & 2) == 0 ? 1 : -1);
+                    long e = 0;
+                    for (int c = 0; c < 3; ++c) {
+                        int v = Math.max(0, Math.min(255, base[c] + m)) - block[i * 3 + c];
+                        e += v * v;
+                    }
+                    if (e < bestError) {
+                        bestError = e;
+                        bestIndex = index;
+                    }
+                }
+                error += bestError;
+                bits |= (long) (bestIndex >> 1) << (16 + i) | (long) (bestIndex & 1) << i;
+            }
+            if (error < result[0]) {
+                result[0] = error;
+                result[1] = bits;
+            }
+        }
+    }
+}